@@ -51,6 +51,7 @@ dependencies {
     testCompile("org.powermock:powermock-api-mockito:1.6.4")
     testCompile("org.hamcrest:hamcrest-junit:2.0.0.0")
     testCompile("junit", "junit", "4.12")
+    testCompile("com.h2database:h2:1.4.196")
 }
 
 val downloadCompat by tasks.registering(de.undercouch.gradle.tasks.download.Download::class) {
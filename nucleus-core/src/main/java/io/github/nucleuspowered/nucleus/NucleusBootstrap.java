@@ -37,6 +37,7 @@ import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.NucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.commandmetadata.CommandMetadataService;
 import io.github.nucleuspowered.nucleus.services.impl.moduledata.ModuleDataProvider;
+import io.github.nucleuspowered.nucleus.services.impl.storage.registry.IStorageRepositoryFactoryRegistryModule;
 import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IModuleDataProvider;
@@ -266,6 +267,13 @@ public class NucleusBootstrap {
         TeleportScannerRegistryModule registryModule = new TeleportScannerRegistryModule();
         registryModule.registerDefaults();
 
+        // Storage repository factories, the registry is created by the storage manager.
+        IStorageManager storageManager = this.serviceCollection.storageManager();
+        if (storageManager instanceof IReloadableService.Reloadable) {
+            this.serviceCollection.reloadableService().registerReloadable((IReloadableService.Reloadable) storageManager);
+        }
+        IStorageRepositoryFactoryRegistryModule.getInstance().registerDefaults();
+
         // Compatibility
         Optional<Asset> compatJson = Sponge.getAssetManager().getAsset(this.pluginContainer, "compat.json");
         compatJson.ifPresent(x -> {
@@ -600,7 +608,7 @@ public class NucleusBootstrap {
         IMessageProviderService messageProvider = this.serviceCollection.messageProvider();
         if (this.isErrored == null) {
             try {
-                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).resetUniqueUserCount();
+                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).recountIfRequired();
                 this.serviceCollection.getServiceUnchecked(UUIDChangeService.class).setStateAndReload(this.serviceCollection);
                 this.serviceCollection.commandMetadataService().activate();
 
@@ -688,6 +696,8 @@ public class NucleusBootstrap {
 
     private void saveData() {
         IStorageManager ism = this.serviceCollection.storageManager();
+        // Drain the write behind queues on this thread, the async scheduler may not get to them.
+        ism.flushPendingWrites();
         ism.getUserService().ensureSaved();
         ism.getWorldService().ensureSaved();
 
@@ -695,6 +705,7 @@ public class NucleusBootstrap {
             try {
                 ism.getGeneralService().ensureSaved();
                 this.serviceCollection.userCacheService().save();
+                this.serviceCollection.cooldownService().save();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -9,8 +9,11 @@ import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 @ConfigSerializable
 public class UserCacheVersionNode {
 
@@ -20,6 +23,17 @@ public class UserCacheVersionNode {
     @Setting
     private Map<UUID, UserCacheDataNode> node = Maps.newHashMap();
 
+    @Setting("walk-in-progress")
+    private boolean walkInProgress = false;
+
+    @Setting("walk-checkpoint")
+    @Nullable
+    private UUID walkCheckpoint = null;
+
+    @Setting("walk-node")
+    @Nullable
+    private Map<UUID, UserCacheDataNode> walkNode = null;
+
     public int getVersion() {
         return this.version;
     }
@@ -27,4 +41,65 @@ public class UserCacheVersionNode {
     public Map<UUID, UserCacheDataNode> getNode() {
         return this.node;
     }
+
+    /**
+     * Creates a copy of this node. The {@link UserCacheDataNode}s are shared.
+     *
+     * @return The copy
+     */
+    public UserCacheVersionNode copy() {
+        UserCacheVersionNode copy = new UserCacheVersionNode();
+        copy.version = this.version;
+        copy.node.putAll(this.node);
+        copy.walkInProgress = this.walkInProgress;
+        copy.walkCheckpoint = this.walkCheckpoint;
+        copy.walkNode = this.walkNode == null ? null : Maps.newHashMap(this.walkNode);
+        return copy;
+    }
+
+    /**
+     * Gets whether a file walk was started against this node but has not finished.
+     *
+     * @return true if so
+     */
+    public boolean isWalkInProgress() {
+        return this.walkInProgress;
+    }
+
+    /**
+     * Gets the last key, in {@link UUID} order, that a file walk in progress has
+     * processed along with all keys before it.
+     *
+     * @return The key, if any have been processed
+     */
+    public Optional<UUID> getWalkCheckpoint() {
+        return Optional.ofNullable(this.walkCheckpoint);
+    }
+
+    /**
+     * Gets the entries that a file walk in progress has found so far, which includes every
+     * key up to the {@link #getWalkCheckpoint() checkpoint}.
+     *
+     * @return The entries, or null if there is no walk in progress
+     */
+    @Nullable
+    public Map<UUID, UserCacheDataNode> getWalkNode() {
+        return this.walkNode;
+    }
+
+    public void setWalkInProgress(boolean walkInProgress) {
+        this.walkInProgress = walkInProgress;
+        if (!walkInProgress) {
+            this.walkCheckpoint = null;
+            this.walkNode = null;
+        }
+    }
+
+    public void setWalkNode(@Nullable Map<UUID, UserCacheDataNode> walkNode) {
+        this.walkNode = walkNode;
+    }
+
+    public void setWalkCheckpoint(@Nullable UUID walkCheckpoint) {
+        this.walkCheckpoint = walkCheckpoint;
+    }
 }
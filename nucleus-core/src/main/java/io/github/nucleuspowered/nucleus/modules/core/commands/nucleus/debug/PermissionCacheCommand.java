@@ -0,0 +1,37 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.commands.nucleus.debug;
+
+import io.github.nucleuspowered.nucleus.modules.core.CorePermissions;
+import io.github.nucleuspowered.nucleus.modules.core.commands.nucleus.DebugCommand;
+import io.github.nucleuspowered.nucleus.scaffold.command.ICommandContext;
+import io.github.nucleuspowered.nucleus.scaffold.command.ICommandExecutor;
+import io.github.nucleuspowered.nucleus.scaffold.command.ICommandResult;
+import io.github.nucleuspowered.nucleus.scaffold.command.annotation.Command;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.util.annotation.NonnullByDefault;
+
+@NonnullByDefault
+@Command(
+        aliases = "permissioncache",
+        basePermission = CorePermissions.BASE_DEBUG_PERMISSIONCACHE,
+        commandDescriptionKey = "nucleus.debug.permissioncache",
+        parentCommand = DebugCommand.class
+)
+public class PermissionCacheCommand implements ICommandExecutor<CommandSource> {
+
+    @Override public ICommandResult execute(ICommandContext<? extends CommandSource> context) {
+        IPermissionService permissionService = context.getServiceCollection().permissionService();
+        long hits = permissionService.getCacheHits();
+        long misses = permissionService.getCacheMisses();
+        long total = hits + misses;
+        context.sendMessage("command.nucleus.debug.permissioncache",
+                hits,
+                misses,
+                String.format("%.1f", total == 0 ? 0 : hits * 100.0 / total));
+        return context.successResult();
+    }
+}
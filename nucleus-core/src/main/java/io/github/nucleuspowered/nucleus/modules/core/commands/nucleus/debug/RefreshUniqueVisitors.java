@@ -29,7 +29,7 @@ public class RefreshUniqueVisitors implements ICommandExecutor<CommandSource> {
 
     @Override public ICommandResult execute(ICommandContext<? extends CommandSource> context) throws CommandException {
         UniqueUserService uus = context.getServiceCollection().getServiceUnchecked(UniqueUserService.class);
-        context.sendMessage("command.nucleus.debug.refreshuniquevisitors.started", uus.getUniqueUserCount());
+        long previous = uus.getUniqueUserCount();
 
         Optional<UUID> optionalUUID = context.getUniqueId();
         Supplier<CommandSource> scs;
@@ -40,7 +40,11 @@ public class RefreshUniqueVisitors implements ICommandExecutor<CommandSource> {
             scs = Sponge.getServer()::getConsole;
         }
 
-        uus.resetUniqueUserCount(l -> context.sendMessageTo(scs.get(), "command.nucleus.debug.refreshuniquevisitors.done", l));
+        if (!uus.recount(l -> context.sendMessageTo(scs.get(), "command.nucleus.debug.refreshuniquevisitors.done", l))) {
+            return context.errorResult("command.nucleus.debug.refreshuniquevisitors.running");
+        }
+
+        context.sendMessage("command.nucleus.debug.refreshuniquevisitors.started", previous);
         return context.successResult();
     }
 }
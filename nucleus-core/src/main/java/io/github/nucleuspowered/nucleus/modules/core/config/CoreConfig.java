@@ -58,12 +58,18 @@ public class CoreConfig {
     @Setting(value = "more-accurate-visitor-count", comment = "config.core.accurate")
     private boolean moreAccurate = false;
 
+    @Setting(value = "visitor-recount-rate", comment = "config.core.visitorrecountrate")
+    private int visitorRecountRate = 500;
+
     @Setting(value = "override-language", comment = "config.core.language")
     private String serverLocale = "default";
 
     @Setting(value = "data-file-location", comment = "config.core.datafilelocation")
     private String dataFileLocation = "default";
 
+    @Setting(value = "storage", comment = "config.core.storage.info")
+    private StorageConfig storageConfig = new StorageConfig();
+
     @Setting(value = "offline-user-tab-limit", comment = "config.core.offlineusertablimit")
     private int nicknameArgOfflineLimit = 20;
 
@@ -135,10 +141,18 @@ public class CoreConfig {
         return this.moreAccurate;
     }
 
+    public int getVisitorRecountRate() {
+        return Math.max(0, this.visitorRecountRate);
+    }
+
     public String getServerLocale() {
         return this.serverLocale;
     }
 
+    public StorageConfig getStorageConfig() {
+        return this.storageConfig;
+    }
+
     public int getNicknameArgOfflineLimit() {
         return this.nicknameArgOfflineLimit;
     }
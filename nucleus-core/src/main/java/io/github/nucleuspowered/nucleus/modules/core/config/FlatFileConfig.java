@@ -0,0 +1,33 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.config;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+@ConfigSerializable
+public class FlatFileConfig {
+
+    @Setting(value = "atomic-writes", comment = "config.core.storage.flatfile.atomic")
+    private boolean atomicWrites = false;
+
+    @Setting(value = "keep-backups", comment = "config.core.storage.flatfile.backups")
+    private boolean keepBackups = true;
+
+    @Setting(value = "sync-writes", comment = "config.core.storage.flatfile.sync")
+    private boolean syncWrites = false;
+
+    public boolean isAtomicWrites() {
+        return this.atomicWrites;
+    }
+
+    public boolean isKeepBackups() {
+        return this.keepBackups;
+    }
+
+    public boolean isSyncWrites() {
+        return this.syncWrites;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.config;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+@ConfigSerializable
+public class StorageConfig {
+
+    @Setting(value = "data-store", comment = "config.core.storage.datastore")
+    private String dataStore = "nucleus:flatfile";
+
+    @Setting(value = "write-behind", comment = "config.core.storage.writebehind.info")
+    private WriteBehindConfig writeBehindConfig = new WriteBehindConfig();
+
+    @Setting(value = "flat-file", comment = "config.core.storage.flatfile.info")
+    private FlatFileConfig flatFileConfig = new FlatFileConfig();
+
+    public String getDataStore() {
+        return this.dataStore;
+    }
+
+    public WriteBehindConfig getWriteBehindConfig() {
+        return this.writeBehindConfig;
+    }
+
+    public FlatFileConfig getFlatFileConfig() {
+        return this.flatFileConfig;
+    }
+}
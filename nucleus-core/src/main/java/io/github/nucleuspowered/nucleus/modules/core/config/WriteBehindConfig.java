@@ -0,0 +1,35 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.config;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+import java.time.Duration;
+
+@ConfigSerializable
+public class WriteBehindConfig {
+
+    @Setting(value = "enabled", comment = "config.core.storage.writebehind.enabled")
+    private boolean enabled = false;
+
+    @Setting(value = "flush-interval-seconds", comment = "config.core.storage.writebehind.interval")
+    private int flushInterval = 10;
+
+    @Setting(value = "batch-size", comment = "config.core.storage.writebehind.batchsize")
+    private int batchSize = 50;
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return Duration.ofSeconds(Math.max(1, this.flushInterval));
+    }
+
+    public int getBatchSize() {
+        return Math.max(1, this.batchSize);
+    }
+}
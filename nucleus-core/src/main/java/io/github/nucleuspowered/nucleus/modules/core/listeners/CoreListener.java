@@ -26,6 +26,7 @@ import org.spongepowered.api.event.CauseStackManager;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.game.GameReloadEvent;
 import org.spongepowered.api.event.game.state.GameStoppingServerEvent;
 import org.spongepowered.api.event.network.ClientConnectionEvent;
@@ -35,20 +36,31 @@ import org.spongepowered.api.service.pagination.PaginationService;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.action.TextActions;
 import org.spongepowered.api.text.format.TextColors;
+import org.spongepowered.api.util.Tristate;
 
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 public class CoreListener implements IReloadableService.Reloadable, ListenerBase {
 
+    // Longer than the client is given to log in once it has been authenticated.
+    private static final long LOGIN_TIMEOUT_SECONDS = 60;
+
     private final INucleusServiceCollection serviceCollection;
+
+    // The pins taken at Auth that have not yet been handed over at Login, with the number for
+    // each player. A connection that drops in between fires neither Login nor Disconnect.
+    private final Map<UUID, Integer> awaitingLogin = new ConcurrentHashMap<>();
     @Nullable private NucleusTextTemplate getKickOnStopMessage = null;
     @Nullable private final URL url;
     private boolean warnOnWildcard = true;
@@ -72,9 +84,21 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
             return;
         }
 
-        // Create user data if required, and place into cache.
-        // As this is already async, load on thread.
-        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(userId);
+        // Create user data if required, and keep it in the cache while the player is online, so that
+        // the listeners that use it on the main thread never have to load it. As this is already
+        // async, load on thread.
+        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().pin(userId);
+        this.awaitingLogin.merge(userId, 1, Integer::sum);
+        Task.builder()
+                .async()
+                .delay(LOGIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .execute(() -> {
+                    if (releaseAwaitingLogin(userId)) {
+                        this.serviceCollection.storageManager().getUserService().unpin(userId);
+                    }
+                })
+                .submit(this.serviceCollection.pluginContainer());
+        this.serviceCollection.cooldownService().preload(userId);
 
         // Fire the event, which will be async too, perhaps unsurprisingly.
         // The main use for this will be migrations.
@@ -90,6 +114,35 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
         this.serviceCollection.messageProvider().invalidateLocaleCacheFor(userId);
     }
 
+    /*
+     * The pin taken at Auth is released at Disconnect from here on. If the login was cancelled,
+     * the player will not join, so will not disconnect either, and it is released now. The
+     * cooldowns that were preloaded at Auth need no release, as they leave the cooldown cache
+     * once they have expired.
+     */
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.UNDEFINED)
+    public void onPlayerLoginPost(final ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        boolean released = releaseAwaitingLogin(user.getUniqueId());
+        if (event.isCancelled()) {
+            if (released) {
+                this.serviceCollection.storageManager().getUserService().unpin(user.getUniqueId());
+            }
+        } else if (!released) {
+            // The login took long enough for the pin to have been released already.
+            this.serviceCollection.storageManager().getUserService().pin(user.getUniqueId());
+        }
+    }
+
+    private boolean releaseAwaitingLogin(UUID uuid) {
+        boolean[] released = new boolean[1];
+        this.awaitingLogin.computeIfPresent(uuid, (k, count) -> {
+            released[0] = true;
+            return count == 1 ? null : count - 1;
+        });
+        return released[0];
+    }
+
     /* (non-Javadoc)
      * We do this last to avoid interfering with other modules.
      */
@@ -137,11 +190,12 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
 
     @Listener
     public void onPlayerJoinLast(final ClientConnectionEvent.Join event, @Getter("getTargetEntity") final Player player) {
+        // Counted on every join, so that players the count has missed are picked up.
+        this.serviceCollection.getServiceUnchecked(UniqueUserService.class).recordVisit(player.getUniqueId());
+
         // created before
         if (!this.serviceCollection.storageManager().getUserService().getOnThread(player.getUniqueId())
                 .map(x -> x.get(CoreKeys.FIRST_JOIN)).isPresent()) {
-            this.serviceCollection.getServiceUnchecked(UniqueUserService.class).resetUniqueUserCount();
-
             NucleusFirstJoinEvent firstJoinEvent = new OnFirstLoginEvent(
                 event.getCause(), player, event.getOriginalChannel(), event.getChannel().orElse(null), event.getOriginalMessage(),
                     event.isMessageCancelled(), event.getFormatter());
@@ -188,10 +242,17 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
         // completely established.
         //noinspection ConstantConditions
         if (player.getConnection() == null || player.getConnection().getAddress() == null) {
+            this.serviceCollection.storageManager().getUserService().unpin(player.getUniqueId());
             return;
         }
 
-        this.serviceCollection.storageManager().getUser(player.getUniqueId()).thenAccept(x -> x.ifPresent(y -> onPlayerQuit(player, y)));
+        this.serviceCollection.storageManager().getUser(player.getUniqueId()).thenAccept(x -> {
+            if (x.isPresent()) {
+                onPlayerQuit(player, x.get());
+            } else {
+                this.serviceCollection.storageManager().getUserService().unpin(player.getUniqueId());
+            }
+        });
 
     }
 
@@ -201,10 +262,12 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
         try {
             udo.set(CoreKeys.IP_ADDRESS, address.toString());
             this.serviceCollection.userCacheService().updateCacheForPlayer(player.getUniqueId(), udo);
-            this.serviceCollection.storageManager().saveUser(player.getUniqueId(), udo);
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // Saves the changes above, and lets the data leave the cache.
+        this.serviceCollection.storageManager().getUserService().unpin(player.getUniqueId());
     }
 
     @Override public void onReload(INucleusServiceCollection serviceCollection) {
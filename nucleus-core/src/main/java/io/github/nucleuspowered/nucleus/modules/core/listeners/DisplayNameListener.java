@@ -0,0 +1,49 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.listeners;
+
+import io.github.nucleuspowered.nucleus.modules.nickname.events.ChangeNicknameEventPost;
+import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
+
+import javax.inject.Inject;
+
+public class DisplayNameListener implements ListenerBase {
+
+    private final IPlayerDisplayNameService playerDisplayNameService;
+
+    @Inject
+    public DisplayNameListener(INucleusServiceCollection serviceCollection) {
+        this.playerDisplayNameService = serviceCollection.playerDisplayNameService();
+    }
+
+    @Listener
+    public void onNicknameChange(ChangeNicknameEventPost event) {
+        this.playerDisplayNameService.invalidateDisplayName(event.getUser().getUniqueId());
+    }
+
+    @Listener
+    public void onSubjectDataUpdate(SubjectDataUpdateEvent event) {
+        this.playerDisplayNameService.invalidateDisplayNames();
+    }
+
+    // Players may have changed their name since they were last online.
+    @Listener
+    public void onPlayerJoin(ClientConnectionEvent.Join event) {
+        Player player = event.getTargetEntity();
+        this.playerDisplayNameService.invalidateDisplayName(player.getUniqueId());
+        this.playerDisplayNameService.addOnlinePlayer(player.getUniqueId(), player.getName());
+    }
+
+    @Listener
+    public void onPlayerQuit(ClientConnectionEvent.Disconnect event) {
+        this.playerDisplayNameService.removeOnlinePlayer(event.getTargetEntity().getUniqueId());
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.listeners;
+
+import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
+import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+
+import javax.inject.Inject;
+
+public class ExpiryListener implements ListenerBase {
+
+    private final IExpiryService expiryService;
+
+    @Inject
+    public ExpiryListener(INucleusServiceCollection serviceCollection) {
+        this.expiryService = serviceCollection.expiryService();
+    }
+
+    @Listener(order = Order.POST)
+    public void onPlayerQuit(ClientConnectionEvent.Disconnect event) {
+        this.expiryService.cancelAll(event.getTargetEntity().getUniqueId());
+    }
+}
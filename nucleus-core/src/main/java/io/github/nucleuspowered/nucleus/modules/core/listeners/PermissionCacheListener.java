@@ -0,0 +1,35 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.listeners;
+
+import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
+
+import javax.inject.Inject;
+
+public class PermissionCacheListener implements ListenerBase {
+
+    private final IPermissionService permissionService;
+
+    @Inject
+    public PermissionCacheListener(INucleusServiceCollection serviceCollection) {
+        this.permissionService = serviceCollection.permissionService();
+    }
+
+    // Any change to subject data may affect any player through inheritance, so drop everything.
+    @Listener
+    public void onSubjectDataUpdate(SubjectDataUpdateEvent event) {
+        this.permissionService.invalidateCache();
+    }
+
+    @Listener
+    public void onPlayerQuit(ClientConnectionEvent.Disconnect event) {
+        this.permissionService.invalidateCache(event.getTargetEntity().getUniqueId());
+    }
+}
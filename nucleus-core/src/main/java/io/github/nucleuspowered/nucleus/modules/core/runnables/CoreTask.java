@@ -9,6 +9,8 @@ import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
 import io.github.nucleuspowered.nucleus.scaffold.task.TaskBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import io.github.nucleuspowered.storage.services.AbstractKeyedService;
+import io.github.nucleuspowered.storage.services.IStorageService;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 
@@ -49,9 +51,39 @@ public class CoreTask implements TaskBase, IReloadableService.Reloadable {
         }
 
         this.serviceCollection.storageManager().saveAll();
+        this.serviceCollection.cooldownService().save();
 
         if (this.printSave) {
             this.serviceCollection.logger().info(this.serviceCollection.messageProvider().getMessageString("core.savetask.complete"));
+            printWriteBehindStatistics("users", this.serviceCollection.storageManager().getUserService());
+            printWriteBehindStatistics("worlds", this.serviceCollection.storageManager().getWorldService());
+            printCacheStatistics("users", this.serviceCollection.storageManager().getUserService());
+        }
+    }
+
+    private void printCacheStatistics(String name, IStorageService.Keyed<?, ?, ?> service) {
+        if (service instanceof AbstractKeyedService) {
+            AbstractKeyedService<?, ?> keyedService = (AbstractKeyedService<?, ?>) service;
+            this.serviceCollection.logger().info(this.serviceCollection.messageProvider().getMessageString(
+                    "core.savetask.cache",
+                    name,
+                    String.valueOf(keyedService.getPinnedCount()),
+                    String.valueOf(keyedService.getMainThreadMisses())));
+        }
+    }
+
+    private void printWriteBehindStatistics(String name, IStorageService.Keyed<?, ?, ?> service) {
+        if (service instanceof AbstractKeyedService) {
+            ((AbstractKeyedService<?, ?>) service).getWriteBehindQueue().ifPresent(queue ->
+                    this.serviceCollection.logger().info(this.serviceCollection.messageProvider().getMessageString(
+                            "core.savetask.writebehind",
+                            name,
+                            String.valueOf(queue.getQueueDepth()),
+                            String.valueOf(queue.getWrittenCount()),
+                            String.valueOf(queue.getFlushCount()),
+                            String.valueOf(queue.getCoalescedCount()),
+                            String.valueOf(queue.getLastFlushLatencyMillis()),
+                            String.valueOf(queue.getAverageFlushLatencyMillis()))));
         }
     }
 
@@ -0,0 +1,45 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.runnables;
+
+import com.google.inject.Inject;
+import io.github.nucleuspowered.nucleus.scaffold.task.TaskBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.util.annotation.NonnullByDefault;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Lifts timed punishments, such as mutes and jailings, as they expire.
+ */
+@NonnullByDefault
+public class ExpiryTask implements TaskBase {
+
+    private final IExpiryService expiryService;
+
+    @Inject
+    public ExpiryTask(INucleusServiceCollection serviceCollection) {
+        this.expiryService = serviceCollection.expiryService();
+    }
+
+    @Override
+    public void accept(Task task) {
+        this.expiryService.expire();
+    }
+
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
+    @Override
+    public Duration interval() {
+        return Duration.of(1, ChronoUnit.SECONDS);
+    }
+
+}
@@ -4,117 +4,425 @@
  */
 package io.github.nucleuspowered.nucleus.modules.core.services;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import io.github.nucleuspowered.storage.services.IStorageService;
+import org.slf4j.Logger;
+import org.spongepowered.api.GameState;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.manipulator.mutable.entity.JoinData;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.profile.GameProfile;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.service.user.UserStorageService;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Counts the unique visitors to the server.
+ *
+ * <p>The {@link UUID}s of the players that have visited are held in memory and in a file in the
+ * data directory, which is appended to as players visit for the first time, so that the count
+ * does not need to look at every user the server knows about. If there is no file, such as when
+ * upgrading, the visitors are counted from the user data once, when the server starts.</p>
+ *
+ * <p>A full recount can be started by an admin. It looks users up on a few threads, at the rate
+ * set in the config, so that it does not starve the server of disk access.</p>
+ */
 @Singleton
-public class UniqueUserService implements ServiceBase, IReloadableService.Reloadable {
+public class UniqueUserService implements ServiceBase, IReloadableService.Reloadable, IReloadableService.DataLocationReloadable {
 
     public static UniqueUserService INSTANCE;
-    private final INucleusServiceCollection serviceCollection;
+
+    private static final String FILE_NAME = "uniquevisitors.dat";
+    private static final int FILE_VERSION = 1;
+    private static final int RECORD_LENGTH = 2 * Long.BYTES;
+    private static final int RECOUNT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int RECOUNT_BATCH_SIZE = 250;
+
+    private final Supplier<Path> dataDirectory;
+    private final IStorageManager storageManager;
+    private final PluginContainer pluginContainer;
+    private final Logger logger;
     private boolean isMoreAccurate = false;
+    private int recountRate = 0;
+
+    // Guards the set and the recount visits.
+    private final Object lockingObject = new Object();
+    private UniqueUserSet visitors = new UniqueUserSet();
+    @Nullable private List<UUID> recountVisits = null;
+    private volatile long userCount = 0;
+    private boolean recountRequired = false;
+
+    // Held while writing to the file.
+    private final Object writeLock = new Object();
+    private final Queue<UUID> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    @Nullable private Path file;
+
+    private volatile boolean isRecounting = false;
 
     @Inject
     public UniqueUserService(INucleusServiceCollection serviceCollection) {
         if (INSTANCE == null) {
             INSTANCE = this;
         }
-        this.serviceCollection = serviceCollection;
+        this.dataDirectory = serviceCollection.dataDir();
+        this.storageManager = serviceCollection.storageManager();
+        this.pluginContainer = serviceCollection.pluginContainer();
+        this.logger = serviceCollection.logger();
     }
 
     private static boolean ERROR_REPORTED = false;
 
-    // This is a session variable - does not get saved on restart.
-    private long userCount = 0;
-    private boolean userCountIsDirty = false;
-
     public long getUniqueUserCount() {
-        if (this.userCountIsDirty) {
-            return this.userCount + 1;
+        return this.userCount;
+    }
+
+    /**
+     * Records that a player has visited, counting them if this is their first visit.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void recordVisit(UUID uuid) {
+        synchronized (this.lockingObject) {
+            if (this.recountVisits != null) {
+                this.recountVisits.add(uuid);
+            }
+
+            if (!this.visitors.add(uuid)) {
+                return;
+            }
+
+            this.userCount = this.visitors.size();
         }
 
-        return this.userCount;
+        queue(uuid);
     }
 
-    public void resetUniqueUserCount() {
-        resetUniqueUserCount(null);
+    /**
+     * Counts the visitors from the user data if there was no file to load them from.
+     */
+    public void recountIfRequired() {
+        boolean required;
+        synchronized (this.lockingObject) {
+            required = this.recountRequired;
+        }
+
+        if (required) {
+            recount(null);
+        }
     }
 
-    public void resetUniqueUserCount(@Nullable final Consumer<Long> resultConsumer) {
-        if (!this.userCountIsDirty) {
-            this.userCountIsDirty = true;
+    /**
+     * Counts the visitors from the user data, off the main thread, replacing the visitors that
+     * are held.
+     *
+     * @param resultConsumer Called with the new count when the recount has finished
+     * @return false if a recount is already running
+     */
+    public boolean recount(@Nullable final Consumer<Long> resultConsumer) {
+        synchronized (this.lockingObject) {
+            if (this.isRecounting) {
+                return false;
+            }
+
+            this.isRecounting = true;
             ERROR_REPORTED = false;
+        }
 
-            if (Sponge.getServer().isMainThread()) {
-                Task.builder().async().execute(t -> this.doTask(resultConsumer)).submit(this.serviceCollection.pluginContainer());
-            } else {
-                this.doTask(resultConsumer);
-            }
+        if (Sponge.getServer().isMainThread()) {
+            Task.builder().async().execute(t -> this.doRecount(resultConsumer)).submit(this.pluginContainer);
+        } else {
+            this.doRecount(resultConsumer);
         }
+
+        return true;
     }
 
-    private void doTask(@Nullable final Consumer<Long> resultConsumer) {
-        UserStorageService uss = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
-        IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service =
-                this.serviceCollection.storageManager().getUserService();
-
-        // This could be slow...
-        if (this.isMoreAccurate) {
-            this.userCount = uss.getAll().stream().filter(GameProfile::isFilled)
-                    .map(uss::get).filter(Optional::isPresent)
-                    .filter(x -> {
-                        boolean ret = x.get().getPlayer().isPresent() || service.exists(x.get().getUniqueId()).join(); // already async
-                        if (!ret) {
-                            try {
-                                // Temporary until Data is hooked up properly, I hope.
-                                return x.get().get(JoinData.class).map(y -> y.firstPlayed().getDirect().isPresent()).orElse(false);
-                            } catch (IllegalStateException e) {
-                                if (!ERROR_REPORTED) {
-                                    ERROR_REPORTED = true;
-                                    this.serviceCollection.logger().warn("The Sponge player data provider has not yet been initialised, not "
-                                            + "using join data in this count.");
-                                }
-                            } catch (NoSuchElementException e) {
-                                if (!ERROR_REPORTED) {
-                                    ERROR_REPORTED = true;
-                                    this.serviceCollection.logger().warn("The join data can not be constructed on some users.");
-                                }
-                            }
-                        }
+    private void doRecount(@Nullable final Consumer<Long> resultConsumer) {
+        ExecutorService executorService = null;
+        try {
+            // Anything waiting to be written would otherwise be missed.
+            this.storageManager.flushPendingWrites();
+            synchronized (this.lockingObject) {
+                this.recountVisits = new ArrayList<>();
+            }
 
-                        return ret;
-                    }).count();
-        } else {
-            this.userCount = uss.getAll().stream().filter(GameProfile::isFilled).filter(x -> service.exists(x.getUniqueId()).join()).count();
+            UserStorageService uss = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
+            List<GameProfile> profiles = uss.getAll().stream().filter(GameProfile::isFilled).collect(Collectors.toList());
+            RateLimiter rateLimiter = this.recountRate > 0 ? RateLimiter.create(this.recountRate) : null;
+            executorService = Executors.newFixedThreadPool(RECOUNT_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("Nucleus Unique Visitor Counter - %d").setDaemon(true).build());
+            List<Future<List<UUID>>> results = new ArrayList<>();
+            for (List<GameProfile> batch : Lists.partition(profiles, RECOUNT_BATCH_SIZE)) {
+                results.add(executorService.submit(() -> recountBatch(uss, batch, rateLimiter)));
+            }
+
+            UniqueUserSet counted = new UniqueUserSet(profiles.size());
+            for (Future<List<UUID>> result : results) {
+                result.get().forEach(counted::add);
+            }
+
+            synchronized (this.lockingObject) {
+                // Players who visited during the recount may not have been saved when they were looked up.
+                this.recountVisits.forEach(counted::add);
+                this.visitors = counted;
+                this.userCount = counted.size();
+                this.recountRequired = false;
+            }
+
+            rewrite();
+        } catch (Exception e) {
+            this.logger.error("Could not count the unique visitors.", e);
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+
+            synchronized (this.lockingObject) {
+                this.recountVisits = null;
+                this.isRecounting = false;
+            }
         }
 
-        this.userCountIsDirty = false;
         if (resultConsumer != null) {
             resultConsumer.accept(this.userCount);
         }
     }
 
+    private List<UUID> recountBatch(UserStorageService uss, List<GameProfile> batch, @Nullable RateLimiter rateLimiter) {
+        IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service = this.storageManager.getUserService();
+        List<UUID> visited = new ArrayList<>();
+        for (GameProfile profile : batch) {
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+
+            if (hasVisited(uss, service, profile)) {
+                visited.add(profile.getUniqueId());
+            }
+        }
+
+        return visited;
+    }
+
+    private boolean hasVisited(UserStorageService uss, IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service,
+            GameProfile profile) {
+        if (!this.isMoreAccurate) {
+            return service.exists(profile.getUniqueId()).join();
+        }
+
+        Optional<User> user = uss.get(profile);
+        if (!user.isPresent()) {
+            return false;
+        }
+
+        if (user.get().getPlayer().isPresent() || service.exists(profile.getUniqueId()).join()) { // already async
+            return true;
+        }
+
+        try {
+            // Temporary until Data is hooked up properly, I hope.
+            return user.get().get(JoinData.class).map(y -> y.firstPlayed().getDirect().isPresent()).orElse(false);
+        } catch (IllegalStateException e) {
+            if (!ERROR_REPORTED) {
+                ERROR_REPORTED = true;
+                this.logger.warn("The Sponge player data provider has not yet been initialised, not "
+                        + "using join data in this count.");
+            }
+        } catch (NoSuchElementException e) {
+            if (!ERROR_REPORTED) {
+                ERROR_REPORTED = true;
+                this.logger.warn("The join data can not be constructed on some users.");
+            }
+        }
+
+        return false;
+    }
+
     @Override public void onReload(INucleusServiceCollection serviceCollection) {
-        this.isMoreAccurate = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class)
-                .isMoreAccurate();
+        CoreConfig coreConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class);
+        this.isMoreAccurate = coreConfig.isMoreAccurate();
+        this.recountRate = coreConfig.getVisitorRecountRate();
+    }
+
+    @Override public void onDataFileLocationChange(INucleusServiceCollection serviceCollection) {
+        synchronized (this.writeLock) {
+            flushPending();
+            this.file = this.dataDirectory.get().resolve(FILE_NAME);
+            load(this.file);
+        }
+
+        // At startup, this is done once the server has started.
+        if (Sponge.getGame().getState() == GameState.SERVER_STARTED) {
+            recountIfRequired();
+        }
+    }
+
+    // Must hold the write lock.
+    private void load(Path file) {
+        UniqueUserSet loaded = new UniqueUserSet();
+        boolean required = false;
+        boolean truncated = false;
+        if (Files.exists(file)) {
+            try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (inputStream.readInt() != FILE_VERSION) {
+                    this.logger.error("The unique visitors file is of an unknown version, the visitors will be counted again.");
+                    required = true;
+                } else {
+                    long length = Files.size(file) - Integer.BYTES;
+                    long records = length / RECORD_LENGTH;
+
+                    // The server stopped part way through a write, the rewrite drops the partial record.
+                    truncated = length % RECORD_LENGTH != 0;
+                    loaded = new UniqueUserSet((int) records);
+                    for (long i = 0; i < records; i++) {
+                        loaded.add(new UUID(inputStream.readLong(), inputStream.readLong()));
+                    }
+                }
+            } catch (IOException e) {
+                this.logger.error("Could not load the unique visitors, they will be counted again.", e);
+                required = true;
+            }
+        } else {
+            required = true;
+        }
+
+        synchronized (this.lockingObject) {
+            this.visitors = loaded;
+            this.userCount = loaded.size();
+            this.recountRequired = required;
+        }
+
+        if (truncated) {
+            this.logger.warn("The unique visitors file ends with an incomplete record, which has been discarded.");
+            rewrite();
+        }
+    }
+
+    private void queue(UUID uuid) {
+        this.pending.add(uuid);
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            Sponge.getScheduler().createTaskBuilder()
+                    .async()
+                    .execute(() -> {
+                        this.flushScheduled.set(false);
+                        synchronized (this.writeLock) {
+                            flushPending();
+                        }
+                    })
+                    .name("Nucleus Unique Visitor writer")
+                    .submit(this.pluginContainer);
+        }
+    }
+
+    // Must hold the write lock.
+    private void flushPending() {
+        if (this.pending.isEmpty() || this.file == null) {
+            return;
+        }
+
+        synchronized (this.lockingObject) {
+            if (this.recountRequired) {
+                // Written once the recount has finished, so that the recount is not skipped if
+                // the server stops before then.
+                this.pending.clear();
+                return;
+            }
+        }
+
+        try {
+            if (!Files.exists(this.file)) {
+                // Everything pending is also in the set, so is written by the rewrite.
+                this.pending.clear();
+                rewrite();
+                return;
+            }
+
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(this.file, StandardOpenOption.APPEND)))) {
+                UUID uuid;
+                while ((uuid = this.pending.poll()) != null) {
+                    writeUUID(outputStream, uuid);
+                }
+            }
+        } catch (IOException e) {
+            this.logger.error("Could not save the unique visitors.", e);
+        }
     }
+
+    private void rewrite() {
+        synchronized (this.writeLock) {
+            if (this.file == null) {
+                return;
+            }
+
+            List<UUID> snapshot = new ArrayList<>();
+            synchronized (this.lockingObject) {
+                this.visitors.forEach(snapshot::add);
+            }
+
+            try {
+                Files.createDirectories(this.file.getParent());
+                Path temporaryFile = this.file.resolveSibling(FILE_NAME + ".tmp");
+                try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    outputStream.writeInt(FILE_VERSION);
+                    for (UUID uuid : snapshot) {
+                        writeUUID(outputStream, uuid);
+                    }
+                }
+
+                try {
+                    Files.move(temporaryFile, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                this.logger.error("Could not save the unique visitors.", e);
+            }
+        }
+    }
+
+    private static void writeUUID(DataOutputStream outputStream, UUID uuid) throws IOException {
+        outputStream.writeLong(uuid.getMostSignificantBits());
+        outputStream.writeLong(uuid.getLeastSignificantBits());
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.services;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A set of {@link UUID}s held as pairs of longs in open addressed arrays, so that no objects
+ * are held for each {@link UUID}, which takes well under half of the memory of a
+ * {@link java.util.HashSet} of the same {@link UUID}s.
+ *
+ * <p>This is not thread safe.</p>
+ */
+public final class UniqueUserSet {
+
+    private static final int MINIMUM_CAPACITY = 64;
+
+    private long[] mostSignificant;
+    private long[] leastSignificant;
+    private boolean[] used;
+    private int size = 0;
+
+    public UniqueUserSet() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public UniqueUserSet(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean contains(UUID uuid) {
+        return this.used[find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits())];
+    }
+
+    /**
+     * Adds a {@link UUID} to the set.
+     *
+     * @param uuid The {@link UUID}
+     * @return true if it was not already in the set
+     */
+    public boolean add(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int slot = find(most, least);
+        if (this.used[slot]) {
+            return false;
+        }
+
+        this.mostSignificant[slot] = most;
+        this.leastSignificant[slot] = least;
+        this.used[slot] = true;
+
+        // Kept at most two thirds full, so that probes stay short.
+        if (++this.size * 3 > this.used.length * 2) {
+            resize(this.used.length * 2);
+        }
+
+        return true;
+    }
+
+    public void forEach(Consumer<UUID> consumer) {
+        for (int i = 0; i < this.used.length; i++) {
+            if (this.used[i]) {
+                consumer.accept(new UUID(this.mostSignificant[i], this.leastSignificant[i]));
+            }
+        }
+    }
+
+    // The slot holding the UUID, or the empty slot it would go in.
+    private int find(long most, long least) {
+        int mask = this.used.length - 1;
+        int slot = hash(most, least) & mask;
+        while (this.used[slot] && (this.mostSignificant[slot] != most || this.leastSignificant[slot] != least)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldMost = this.mostSignificant;
+        long[] oldLeast = this.leastSignificant;
+        boolean[] oldUsed = this.used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldMost[i], oldLeast[i]);
+                this.mostSignificant[slot] = oldMost[i];
+                this.leastSignificant[slot] = oldLeast[i];
+                this.used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.mostSignificant = new long[capacity];
+        this.leastSignificant = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * 2 < expected * 3) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private static int hash(long most, long least) {
+        // Version 4 UUIDs are mostly random, but offline mode UUIDs are name based, so mix anyway.
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
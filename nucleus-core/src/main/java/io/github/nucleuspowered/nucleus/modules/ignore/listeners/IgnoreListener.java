@@ -4,28 +4,37 @@
  */
 package io.github.nucleuspowered.nucleus.modules.ignore.listeners;
 
-import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Util;
 import io.github.nucleuspowered.nucleus.api.module.mail.event.NucleusMailEvent;
 import io.github.nucleuspowered.nucleus.api.module.message.event.NucleusMessageEvent;
+import io.github.nucleuspowered.nucleus.modules.core.events.UserDataLoadedEvent;
 import io.github.nucleuspowered.nucleus.modules.ignore.IgnorePermissions;
 import io.github.nucleuspowered.nucleus.modules.ignore.services.IgnoreService;
 import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.IChatMessageFormatterService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.filter.cause.Root;
 import org.spongepowered.api.event.message.MessageChannelEvent;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.text.channel.MessageReceiver;
 import org.spongepowered.api.text.channel.MutableMessageChannel;
+import org.spongepowered.api.util.Tristate;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import javax.inject.Inject;
 
@@ -60,6 +69,34 @@ public class IgnoreListener implements ListenerBase {
         }
     }
 
+    @Listener
+    public void onUserDataLoaded(UserDataLoadedEvent event) {
+        this.service.preload(event.getGameProfile().getUniqueId(), event.getDataObject());
+    }
+
+    /*
+     * The list must be loaded before the player can receive chat, as chat is only checked
+     * against the loaded lists.
+     */
+    @Listener(order = Order.FIRST)
+    public void onJoin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
+        this.service.ensureLoaded(player.getUniqueId());
+    }
+
+    /*
+     * The list was loaded at Auth, but the player will not join, so will not disconnect either.
+     */
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onLoginCancelled(ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        this.service.unload(user.getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    public void onQuit(ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.service.unload(player.getUniqueId());
+    }
+
     @Listener(order = Order.FIRST)
     public void onMessage(NucleusMessageEvent event, @Root Player player) {
         if (event.getRecipient() instanceof User) {
@@ -92,28 +129,24 @@ public class IgnoreListener implements ListenerBase {
             return Optional.empty();
         }
 
-        List<MessageReceiver> list = Lists.newArrayList(collection);
-        list.removeIf(x -> {
-            try {
-                if (!(x instanceof Player)) {
-                    // Remove if not a player.
-                    return true;
-                }
-
-                if (x.equals(player)) {
-                    // Remove if the same player.
-                    return true;
-                }
-
-                // Don't remove if they are in the list.
-                return !this.service.isIgnored(((Player) x).getUniqueId(), player.getUniqueId());
-            } catch (Exception e) {
-                e.printStackTrace();
+        // Only the players that ignore the sender can be removed.
+        Set<UUID> ignoredBy = this.service.getIgnoredBy(player.getUniqueId());
+        if (ignoredBy.isEmpty()) {
+            return Optional.empty();
+        }
 
-                // Remove them.
-                return true;
+        List<MessageReceiver> list = new ArrayList<>();
+        for (UUID uuid : ignoredBy) {
+            if (!uuid.equals(player.getUniqueId())) {
+                Sponge.getServer().getPlayer(uuid).ifPresent(list::add);
             }
-        });
+        }
+
+        if (!list.isEmpty()) {
+            // Only remove those that would have received the message.
+            Set<MessageReceiver> members = new HashSet<>(collection);
+            list.removeIf(x -> !members.contains(x));
+        }
 
         // We do this so we don't have to recreate a channel if nothing changes.
         if (list.isEmpty()) {
@@ -5,75 +5,187 @@
 package io.github.nucleuspowered.nucleus.modules.ignore.services;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.github.nucleuspowered.nucleus.modules.ignore.IgnoreKeys;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
+/**
+ * Holds the ignore lists of players, along with a reverse index of the players that ignore
+ * each player, so that a chat message only needs to consider the players that ignore the
+ * sender.
+ *
+ * <p>Lists are read from the user data of a player as it is loaded when they log in, and
+ * dropped when they leave. The lists of players that are not online are read from storage
+ * each time they are needed and are not held, so only players that are online are in the
+ * indexes. Both indexes are concurrent, and changes to a player's list are made while holding
+ * their entry in the forward index.</p>
+ */
 public class IgnoreService implements ServiceBase {
 
     private final INucleusServiceCollection serviceCollection;
 
-    private final Map<UUID, List<UUID>> ignoredBy = new HashMap<>();
+    // player to the players they ignore
+    private final Map<UUID, Set<UUID>> ignoring = new ConcurrentHashMap<>();
+
+    // player to the loaded players that ignore them
+    private final Map<UUID, Set<UUID>> ignoredBy = new ConcurrentHashMap<>();
 
     @Inject
     public IgnoreService(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
     }
 
-    private void addPlayer(UUID player, List<UUID> ignored) {
-        removePlayer(player);
-        this.ignoredBy.put(player, new ArrayList<>(ignored));
+    /**
+     * Reads the ignore list of the player from their user data as it is loaded, if it is not
+     * already loaded.
+     *
+     * @param player The player
+     * @param dataObject The user data of the player
+     */
+    public void preload(UUID player, IUserDataObject dataObject) {
+        if (!this.ignoring.containsKey(player)) {
+            List<UUID> ignored = dataObject.get(IgnoreKeys.IGNORED).orElseGet(ImmutableList::of);
+            this.ignoring.computeIfAbsent(player, k -> createEntry(player, ignored));
+        }
+    }
+
+    /**
+     * Loads the ignore list of the player on this thread if the preload has not yet
+     * completed.
+     *
+     * @param player The player
+     */
+    public void ensureLoaded(UUID player) {
+        if (!this.ignoring.containsKey(player)) {
+            // Load outside of the map so that storage is not read while holding the entry.
+            List<UUID> loaded = load(player);
+            this.ignoring.computeIfAbsent(player, k -> createEntry(player, loaded));
+        }
     }
 
-    private void removePlayer(UUID player) {
-        this.ignoredBy.remove(player);
+    /**
+     * Drops the ignore list of the player from memory.
+     *
+     * @param player The player
+     */
+    public void unload(UUID player) {
+        this.ignoring.computeIfPresent(player, (k, ignored) -> {
+            for (UUID ignoree : ignored) {
+                removeIgnorer(ignoree, player);
+            }
+
+            return null;
+        });
     }
 
     public void ignore(UUID ignorer, UUID ignoree) {
-        List<UUID> uuid = get(ignorer);
-        if (!uuid.contains(ignoree)) {
-            uuid.add(ignoree);
-            this.serviceCollection.storageManager().getUserService()
-                    .getOrNew(ignorer)
-                    .thenAccept(x -> x.set(IgnoreKeys.IGNORED, new ArrayList<>(uuid)));
-        }
+        update(ignorer, ignoree, true);
     }
 
     public void unignore(UUID ignorer, UUID ignoree) {
-        List<UUID> uuid = get(ignorer);
-        if (uuid.contains(ignoree)) {
-            uuid.remove(ignoree);
-            this.serviceCollection.storageManager().getUserService()
-                    .getOrNew(ignorer)
-                    .thenAccept(x -> x.set(IgnoreKeys.IGNORED, new ArrayList<>(uuid)));
-        }
+        update(ignorer, ignoree, false);
     }
 
     public boolean isIgnored(UUID ignorer, UUID ignoree) {
-        return get(ignorer).contains(ignoree);
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        return ignored == null ? load(ignorer).contains(ignoree) : ignored.contains(ignoree);
     }
 
     public List<UUID> getAllIgnored(UUID ignorer) {
-        return ImmutableList.copyOf(get(ignorer));
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        return ignored == null ? ImmutableList.copyOf(load(ignorer)) : ImmutableList.copyOf(ignored);
+    }
+
+    /**
+     * Gets the loaded players that ignore the supplied player, which includes every
+     * player that is online.
+     *
+     * @param ignoree The player who may be ignored
+     * @return The players that ignore them
+     */
+    public Set<UUID> getIgnoredBy(UUID ignoree) {
+        Set<UUID> ignorers = this.ignoredBy.get(ignoree);
+        return ignorers == null ? ImmutableSet.of() : ImmutableSet.copyOf(ignorers);
+    }
+
+    private void update(UUID ignorer, UUID ignoree, boolean ignore) {
+        AtomicReference<List<UUID>> toSave = new AtomicReference<>();
+        Set<UUID> entry = this.ignoring.computeIfPresent(ignorer, (k, ignored) -> {
+            if (ignore ? ignored.add(ignoree) : ignored.remove(ignoree)) {
+                if (ignore) {
+                    addIgnorer(ignoree, ignorer);
+                } else {
+                    removeIgnorer(ignoree, ignorer);
+                }
+
+                toSave.set(new ArrayList<>(ignored));
+            }
+
+            return ignored;
+        });
+
+        if (entry == null) {
+            // Not online, so not indexed. Only their stored list changes.
+            List<UUID> ignored = new ArrayList<>(load(ignorer));
+            if (ignore ? !ignored.contains(ignoree) && ignored.add(ignoree) : ignored.remove(ignoree)) {
+                toSave.set(ignored);
+            }
+        }
+
+        List<UUID> ignored = toSave.get();
+        if (ignored != null) {
+            this.serviceCollection.storageManager().getUserService()
+                    .getOrNew(ignorer)
+                    .thenAccept(x -> x.set(IgnoreKeys.IGNORED, ignored));
+        }
+    }
+
+    private List<UUID> load(UUID player) {
+        return this.serviceCollection.storageManager().getUserService()
+                .getOnThread(player)
+                .flatMap(x -> x.get(IgnoreKeys.IGNORED))
+                .orElseGet(ImmutableList::of);
     }
 
-    private List<UUID> get(UUID player) {
-        if (!this.ignoredBy.containsKey(player)) {
-            addPlayer(player,
-                    this.serviceCollection.storageManager().getUserService()
-                            .getOnThread(player)
-                            .flatMap(x -> x.get(IgnoreKeys.IGNORED))
-                            .orElseGet(ImmutableList::of));
+    // Called while holding the entry for the ignorer in the forward index.
+    private Set<UUID> createEntry(UUID ignorer, Collection<UUID> ignored) {
+        Set<UUID> entry = ConcurrentHashMap.newKeySet(Math.max(ignored.size(), 4));
+        entry.addAll(ignored);
+        for (UUID ignoree : entry) {
+            addIgnorer(ignoree, ignorer);
         }
 
-        return this.ignoredBy.get(player);
+        return entry;
+    }
+
+    private void addIgnorer(UUID ignoree, UUID ignorer) {
+        this.ignoredBy.compute(ignoree, (k, ignorers) -> {
+            if (ignorers == null) {
+                ignorers = ConcurrentHashMap.newKeySet();
+            }
+
+            ignorers.add(ignorer);
+            return ignorers;
+        });
+    }
+
+    private void removeIgnorer(UUID ignoree, UUID ignorer) {
+        this.ignoredBy.computeIfPresent(ignoree, (k, ignorers) -> {
+            ignorers.remove(ignorer);
+            return ignorers.isEmpty() ? null : ignorers;
+        });
     }
 }
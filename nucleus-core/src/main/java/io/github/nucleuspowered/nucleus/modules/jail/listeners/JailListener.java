@@ -143,7 +143,7 @@ public class JailListener implements IReloadableService.Reloadable, ListenerBase
             Optional<JailData> omd = this.handler.getPlayerJailDataInternal(user);
             if (omd.isPresent()) {
                 JailData md = omd.get();
-                md.nextLoginToTimestamp();
+                this.handler.startTimerOnLogin(user, md);
 
                 if (md.expired()) {
                     // free.
@@ -151,6 +151,7 @@ public class JailListener implements IReloadableService.Reloadable, ListenerBase
                 } else {
                     // ensure jailing is current
                     this.handler.onJail(md, event.getTargetEntity());
+                    this.handler.scheduleExpiry(user.getUniqueId(), md);
                 }
             }
         }).submit(this.pluginContainer);
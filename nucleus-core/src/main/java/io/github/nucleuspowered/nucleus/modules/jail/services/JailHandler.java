@@ -19,6 +19,7 @@ import io.github.nucleuspowered.nucleus.datatypes.EndTimestamp;
 import io.github.nucleuspowered.nucleus.datatypes.LocationData;
 import io.github.nucleuspowered.nucleus.modules.fly.FlyKeys;
 import io.github.nucleuspowered.nucleus.modules.jail.JailKeys;
+import io.github.nucleuspowered.nucleus.modules.jail.JailModule;
 import io.github.nucleuspowered.nucleus.modules.jail.data.JailData;
 import io.github.nucleuspowered.nucleus.modules.jail.events.JailEvent;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
@@ -26,6 +27,7 @@ import io.github.nucleuspowered.nucleus.scaffold.service.annotations.APIService;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IGeneralDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.INucleusTeleportService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
@@ -37,6 +39,7 @@ import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.CauseStackManager;
 import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.cause.EventContext;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.service.context.Context;
 import org.spongepowered.api.service.context.ContextCalculator;
@@ -73,6 +76,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
     private final Map<UUID, Context> jailDataCache = Maps.newHashMap();
     private final static Context jailContext = new Context(NucleusJailService.JAILED_CONTEXT, "true");
     private final PluginContainer pluginContainer;
+    private final IExpiryService expiryService;
 
     @Inject
     public JailHandler(INucleusServiceCollection serviceCollection) {
@@ -80,6 +84,49 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
         this.teleportService = serviceCollection.teleportService();
         this.messageProviderService = serviceCollection.messageProvider();
         this.pluginContainer = serviceCollection.pluginContainer();
+        this.expiryService = serviceCollection.expiryService();
+        this.expiryService.registerExpiryHandler(JailModule.ID, this::onJailExpiry);
+    }
+
+    /**
+     * Sets when the jailing of an online player ends, so that they are released then.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param data The {@link JailData} of their jailing
+     */
+    public void scheduleExpiry(UUID uuid, JailData data) {
+        Optional<Instant> end = data.getEndTimestamp();
+        if (end.isPresent()) {
+            this.expiryService.schedule(uuid, JailModule.ID, end.get());
+        } else {
+            this.expiryService.cancel(uuid, JailModule.ID);
+        }
+    }
+
+    /**
+     * Starts the clock on a jailing that runs from the next login, saving the
+     * time it now ends so that it is there when the data is next read.
+     *
+     * @param user The {@link User} who has logged in
+     * @param data The {@link JailData} of their jailing
+     */
+    public void startTimerOnLogin(User user, JailData data) {
+        if (data.getTimeFromNextLogin().isPresent() && !data.getEndTimestamp().isPresent()) {
+            data.nextLoginToTimestamp();
+            updateJailData(user, data);
+        }
+    }
+
+    private void onJailExpiry(UUID uuid) {
+        Sponge.getServer().getPlayer(uuid).ifPresent(player -> {
+            Optional<JailData> data = getPlayerJailDataInternal(player);
+            if (data.map(EndTimestamp::expired).orElse(false)) {
+                unjailPlayer(player, Cause.of(EventContext.empty(), this.pluginContainer));
+            } else {
+                // The jailing has changed since the deadline was set.
+                data.ifPresent(x -> scheduleExpiry(uuid, x));
+            }
+        });
     }
 
     public Map<String, NamedLocation> getJailLocations() {
@@ -237,6 +284,9 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
         this.storageManager.saveUser(user.getUniqueId(), udo);
         this.jailDataCache.put(user.getUniqueId(), new Context(NucleusJailService.JAIL_CONTEXT, data.getJailName()));
         this.storageManager.saveUser(user.getUniqueId(), udo);
+        if (user.isOnline()) {
+            scheduleExpiry(user.getUniqueId(), data);
+        }
 
         Sponge.getEventManager().post(new JailEvent.Jailed(
                 user,
@@ -269,6 +319,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
 
         Optional<Location<World>> ow = ojd.get().getPreviousLocation();
         this.jailDataCache.put(user.getUniqueId(), null);
+        this.expiryService.cancel(user.getUniqueId(), JailModule.ID);
         if (user.isOnline()) {
             Player player = user.getPlayer().get();
             Sponge.getScheduler().createSyncExecutor(this.pluginContainer).execute(() -> {
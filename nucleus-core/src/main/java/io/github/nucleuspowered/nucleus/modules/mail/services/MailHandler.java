@@ -9,24 +9,20 @@ import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Util;
 import io.github.nucleuspowered.nucleus.api.module.mail.NucleusMailService;
 import io.github.nucleuspowered.nucleus.api.module.mail.data.MailMessage;
-import io.github.nucleuspowered.nucleus.modules.mail.MailKeys;
 import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
 import io.github.nucleuspowered.nucleus.modules.mail.events.InternalNucleusMailEvent;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.scaffold.service.annotations.APIService;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
-import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
-import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.text.Text;
 
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 import java.util.function.Predicate;
 
 import javax.annotation.Nullable;
@@ -34,13 +30,20 @@ import javax.inject.Inject;
 
 @SuppressWarnings("UnstableApiUsage")
 @APIService(NucleusMailService.class)
-public class MailHandler implements NucleusMailService, ServiceBase {
+public class MailHandler implements NucleusMailService, ServiceBase, IReloadableService.DataLocationReloadable {
 
     private final INucleusServiceCollection serviceCollection;
+    private final MailboxStore mailboxStore;
 
     @Inject
     public MailHandler(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
+        this.mailboxStore = new MailboxStore(
+                serviceCollection.dataDir(),
+                serviceCollection.storageManager(),
+                serviceCollection.pluginContainer(),
+                serviceCollection.logger());
+        serviceCollection.storageManager().getUserService().addDeleteListener(this.mailboxStore::delete);
     }
 
     @Override
@@ -49,42 +52,25 @@ public class MailHandler implements NucleusMailService, ServiceBase {
     }
 
     public final List<MailMessage> getMailInternal(User player, MailFilter... filters) {
-        List<MailMessage> data = this.serviceCollection.storageManager().getUserService()
-                .getOrNewOnThread(player.getUniqueId())
-                .getNullable(MailKeys.MAIL_DATA);
-        if (data == null || data.isEmpty()) {
-            return ImmutableList.of();
-        }
-
         if (filters.length == 0) {
-            return ImmutableList.copyOf(data);
+            return ImmutableList.copyOf(this.mailboxStore.getMail(player.getUniqueId(), null));
         }
 
         Predicate<MailMessage> lmf = Arrays.stream(filters).map(x -> (Predicate<MailMessage>)x).reduce(Predicate::and).orElse(x -> true);
-        return data.stream().filter(lmf).collect(ImmutableList.toImmutableList());
+        return ImmutableList.copyOf(this.mailboxStore.getMail(player.getUniqueId(), lmf));
+    }
+
+    public int getMailCount(User player) {
+        return this.mailboxStore.getMailCount(player.getUniqueId());
     }
 
     @Override
     public boolean removeMail(User player, MailMessage mailData) {
-        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(player.getUniqueId());
-        List<MailMessage> data = dataObject.get(MailKeys.MAIL_DATA).orElseGet(ArrayList::new);
-        boolean result = data.removeIf(x ->
-                mailData.getDate().equals(x.getDate()) &&
-                mailData.getMessage().equalsIgnoreCase(x.getMessage()) &&
-                Objects.equals(mailData.getSender().orElse(null), x.getSender().orElse(null)));
-
-        if (result) {
-            dataObject.set(MailKeys.MAIL_DATA, data);
-            this.serviceCollection.storageManager().getUserService().save(player.getUniqueId(), dataObject);
-        }
-
-        return result;
+        return this.mailboxStore.remove(player.getUniqueId(), mailData);
     }
 
     @Override
     public void sendMail(@Nullable User playerFrom, User playerTo, String message) {
-        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(playerTo.getUniqueId());
-
         // Message is about to be sent. Send the event out. If canceled, then
         // that's that.
         IMessageProviderService messageProvider = this.serviceCollection.messageProvider();
@@ -100,11 +86,9 @@ public class MailHandler implements NucleusMailService, ServiceBase {
             return;
         }
 
-        List<MailMessage> messages = dataObject.get(MailKeys.MAIL_DATA).orElseGet(ArrayList::new);
+        // Written to the mailbox of the recipient off thread, along with any other mail sent at the same time.
         MailData md = new MailData(playerFrom == null ? Util.CONSOLE_FAKE_UUID : playerFrom.getUniqueId(), Instant.now(), message);
-        messages.add(md);
-        dataObject.set(MailKeys.MAIL_DATA, messages);
-        this.serviceCollection.storageManager().getUserService().save(playerTo.getUniqueId(), dataObject);
+        this.mailboxStore.add(playerTo.getUniqueId(), md);
 
         Text from = playerFrom == null ? Text.of(Sponge.getServer().getConsole().getName()) :
                 this.serviceCollection.playerDisplayNameService().getDisplayName(playerFrom);
@@ -119,14 +103,18 @@ public class MailHandler implements NucleusMailService, ServiceBase {
 
     @Override
     public boolean clearUserMail(User player) {
-        IStorageManager storageManager = this.serviceCollection.storageManager();
-        IUserDataObject dataObject = storageManager.getUserService().getOrNewOnThread(player.getUniqueId());
-        if (dataObject.getNullable(MailKeys.MAIL_DATA) != null) {
-            dataObject.remove(MailKeys.MAIL_DATA);
-            storageManager.getUserService().save(player.getUniqueId(), dataObject);
-            return true;
-        }
+        return this.mailboxStore.clear(player.getUniqueId());
+    }
 
-        return false;
+    /**
+     * Writes any mail that is waiting to be written on this thread.
+     */
+    public void flush() {
+        this.mailboxStore.flush();
+    }
+
+    @Override
+    public void onDataFileLocationChange(INucleusServiceCollection serviceCollection) {
+        this.mailboxStore.reset();
     }
 }
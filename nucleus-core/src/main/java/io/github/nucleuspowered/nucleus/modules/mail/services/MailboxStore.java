@@ -0,0 +1,538 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.mail.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import io.github.nucleuspowered.nucleus.Util;
+import io.github.nucleuspowered.nucleus.api.module.mail.data.MailMessage;
+import io.github.nucleuspowered.nucleus.modules.mail.MailKeys;
+import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import org.slf4j.Logger;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.util.Identifiable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores the mail for each player in its own append only log, rather than as a list in their
+ * user data.
+ *
+ * <p>Sending or removing a mail appends a record to the log of the recipient, so the cost does
+ * not depend on the size of the mailbox. Mailboxes are held in memory while in use, and are
+ * indexed so that a mail can be found without scanning. A mailbox is read off the calling
+ * thread, mail sent to it while it is being read is added once the read has finished, and
+ * anything else that uses it waits for the read. Writes are queued and written in
+ * batches off the main thread, in the order they were made, to the file the mailbox was in when
+ * they were made, so that changing the data directory does not move queued writes. A log is
+ * rewritten when the mailbox is cleared, or when most of its records are for removed mail.</p>
+ *
+ * <p>Mail held in the user data by previous versions is moved into the log the first time the
+ * mailbox is loaded.</p>
+ */
+public final class MailboxStore {
+
+    private static final String DIRECTORY = "mail";
+    private static final String EXTENSION = ".mail";
+    private static final int FILE_VERSION = 1;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    // A log is compacted when it holds at least this many records for removed mail, and
+    // more of them than live mail.
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private final Supplier<Path> dataDirectory;
+    private final IStorageManager storageManager;
+    private final Consumer<Runnable> asyncRunner;
+    private final Executor loader;
+    private final Logger logger;
+
+    // Ids are unique across all mailboxes, so that a mailbox that has been dropped from the
+    // cache and loaded again never hands out an id that is already in its log.
+    private final AtomicLong nextId = new AtomicLong();
+
+    // Held while writing and while loading, so that a mailbox is never read while writes to
+    // it are still queued.
+    private final Object writeLock = new Object();
+    private final Queue<Write> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final LoadingCache<UUID, Mailbox> mailboxes = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build(this::create);
+
+    MailboxStore(Supplier<Path> dataDirectory, IStorageManager storageManager, PluginContainer pluginContainer, Logger logger) {
+        this(dataDirectory, storageManager, runnable -> Sponge.getScheduler().createTaskBuilder()
+                .async()
+                .execute(runnable)
+                .name("Nucleus Mail writer")
+                .submit(pluginContainer), Sponge.getScheduler().createAsyncExecutor(pluginContainer), logger);
+    }
+
+    public MailboxStore(Supplier<Path> dataDirectory, IStorageManager storageManager, Consumer<Runnable> asyncRunner, Executor loader,
+            Logger logger) {
+        this.dataDirectory = dataDirectory;
+        this.storageManager = storageManager;
+        this.asyncRunner = asyncRunner;
+        this.loader = loader;
+        this.logger = logger;
+    }
+
+    public List<MailData> getMail(UUID uuid, @Nullable Predicate<MailMessage> filter) {
+        Mailbox mailbox = getLoaded(uuid);
+        synchronized (mailbox) {
+            List<MailData> result = new ArrayList<>();
+            for (MailData data : mailbox.entries.values()) {
+                if (filter == null || filter.test(data)) {
+                    result.add(data);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    public int getMailCount(UUID uuid) {
+        Mailbox mailbox = getLoaded(uuid);
+        synchronized (mailbox) {
+            return mailbox.entries.size();
+        }
+    }
+
+    public void add(UUID uuid, MailData data) {
+        Mailbox mailbox = this.mailboxes.get(uuid);
+        synchronized (mailbox) {
+            if (mailbox.loaded.isDone()) {
+                put(uuid, mailbox, data);
+            } else {
+                mailbox.deferred.add(data);
+            }
+        }
+    }
+
+    public boolean remove(UUID uuid, MailMessage message) {
+        MailData data = toMailData(message);
+        Mailbox mailbox = getLoaded(uuid);
+        synchronized (mailbox) {
+            Long id = mailbox.find(data);
+            if (id == null) {
+                return false;
+            }
+
+            mailbox.remove(id);
+            mailbox.garbage += 2;
+            if (mailbox.garbage >= COMPACT_THRESHOLD && mailbox.garbage > mailbox.entries.size()) {
+                mailbox.garbage = 0;
+                queue(new Write(uuid, mailbox.file, 0, null, mailbox.snapshot()));
+            } else {
+                queue(new Write(uuid, mailbox.file, id, null, null));
+            }
+
+            return true;
+        }
+    }
+
+    public boolean clear(UUID uuid) {
+        Mailbox mailbox = getLoaded(uuid);
+        synchronized (mailbox) {
+            if (mailbox.entries.isEmpty()) {
+                return false;
+            }
+
+            mailbox.entries.clear();
+            mailbox.ids.clear();
+            mailbox.garbage = 0;
+            queue(new Write(uuid, mailbox.file, 0, null, ImmutableList.of()));
+            return true;
+        }
+    }
+
+    public void delete(UUID uuid) {
+        Mailbox mailbox = this.mailboxes.getIfPresent(uuid);
+        if (mailbox != null) {
+            mailbox.loaded.join();
+        }
+
+        flush();
+        this.mailboxes.invalidate(uuid);
+        synchronized (this.writeLock) {
+            try {
+                Files.deleteIfExists(getFile(uuid));
+            } catch (IOException e) {
+                this.logger.error("Could not delete the mailbox for " + uuid.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes all queued changes on this thread, and drops the mailboxes held in memory, so
+     * that they are loaded from the current data directory when next used.
+     */
+    public void reset() {
+        // Mail sent while a mailbox is being read is only queued once the read has finished.
+        this.mailboxes.asMap().values().forEach(x -> x.loaded.join());
+        flush();
+        this.mailboxes.invalidateAll();
+    }
+
+    public void flush() {
+        synchronized (this.writeLock) {
+            flushPending();
+        }
+    }
+
+    private Mailbox create(UUID uuid) {
+        Mailbox mailbox = new Mailbox(getFile(uuid));
+        this.loader.execute(() -> load(uuid, mailbox));
+        return mailbox;
+    }
+
+    private Mailbox getLoaded(UUID uuid) {
+        Mailbox mailbox = this.mailboxes.get(uuid);
+        mailbox.loaded.join();
+        return mailbox;
+    }
+
+    // Must hold the lock on the mailbox, which must have been loaded.
+    private void put(UUID uuid, Mailbox mailbox, MailData data) {
+        long id = this.nextId.getAndIncrement();
+        mailbox.put(id, data);
+        queue(new Write(uuid, mailbox.file, id, data, null));
+    }
+
+    private void queue(Write write) {
+        this.pending.add(write);
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            this.asyncRunner.accept(() -> {
+                this.flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // Must hold the write lock.
+    private void flushPending() {
+        Map<Path, List<Write>> batches = new LinkedHashMap<>();
+        Write write;
+        while ((write = this.pending.poll()) != null) {
+            batches.computeIfAbsent(write.file, k -> new ArrayList<>()).add(write);
+        }
+
+        for (Map.Entry<Path, List<Write>> batch : batches.entrySet()) {
+            try {
+                writeBatch(batch.getKey(), batch.getValue());
+            } catch (IOException e) {
+                this.logger.error("Could not write the mailbox for " + batch.getValue().get(0).uuid.toString(), e);
+            }
+        }
+    }
+
+    private void writeBatch(Path file, List<Write> writes) throws IOException {
+        // Only the last rewrite matters, the appends after it are written on top of it.
+        int start = 0;
+        for (int i = writes.size() - 1; i >= 0; i--) {
+            if (writes.get(i).snapshot != null) {
+                rewrite(file, writes.get(i).snapshot);
+                start = i + 1;
+                break;
+            }
+        }
+
+        if (start == writes.size()) {
+            return;
+        }
+
+        if (!Files.exists(file)) {
+            rewrite(file, ImmutableList.of());
+        }
+
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND)))) {
+            for (Write write : writes.subList(start, writes.size())) {
+                if (write.data != null) {
+                    writeAdd(outputStream, write.id, write.data);
+                } else {
+                    outputStream.writeByte(REMOVE);
+                    outputStream.writeLong(write.id);
+                }
+            }
+        }
+    }
+
+    private void rewrite(Path file, List<Map.Entry<Long, MailData>> entries) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporaryFile, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)))) {
+                outputStream.writeInt(FILE_VERSION);
+                for (Map.Entry<Long, MailData> entry : entries) {
+                    writeAdd(outputStream, entry.getKey(), entry.getValue());
+                }
+            }
+
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static void writeAdd(DataOutputStream outputStream, long id, MailData data) throws IOException {
+        byte[] message = data.getMessage().getBytes(StandardCharsets.UTF_8);
+        outputStream.writeByte(ADD);
+        outputStream.writeLong(id);
+        outputStream.writeLong(data.getUuid().getMostSignificantBits());
+        outputStream.writeLong(data.getUuid().getLeastSignificantBits());
+        outputStream.writeLong(data.getDate().toEpochMilli());
+        outputStream.writeInt(message.length);
+        outputStream.write(message);
+    }
+
+    private void load(UUID uuid, Mailbox mailbox) {
+        try {
+            synchronized (this.writeLock) {
+                // Writes made through a mailbox that has since been dropped from the cache may
+                // still be queued.
+                flushPending();
+                if (Files.exists(mailbox.file)) {
+                    read(uuid, mailbox);
+                } else {
+                    migrate(uuid, mailbox);
+                }
+            }
+        } finally {
+            // Completed even if the read failed, so that nothing waits on it forever.
+            synchronized (mailbox) {
+                for (MailData data : mailbox.deferred) {
+                    put(uuid, mailbox, data);
+                }
+
+                mailbox.deferred.clear();
+                mailbox.loaded.complete(null);
+            }
+        }
+    }
+
+    // Must hold the write lock.
+    private void read(UUID uuid, Mailbox mailbox) {
+        int records = 0;
+        long maxId = -1;
+        boolean truncated = false;
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(mailbox.file)))) {
+            if (inputStream.readInt() != FILE_VERSION) {
+                this.logger.error("The mailbox for " + uuid.toString() + " is of an unknown version and will not be loaded.");
+                return;
+            }
+
+            while (true) {
+                int type = inputStream.read();
+                if (type == -1) {
+                    break;
+                }
+
+                long id = inputStream.readLong();
+                if (type == ADD) {
+                    UUID sender = new UUID(inputStream.readLong(), inputStream.readLong());
+                    long date = inputStream.readLong();
+                    byte[] message = new byte[inputStream.readInt()];
+                    inputStream.readFully(message);
+                    mailbox.put(id, new MailData(sender, Instant.ofEpochMilli(date), new String(message, StandardCharsets.UTF_8)));
+                } else {
+                    mailbox.remove(id);
+                }
+
+                maxId = Math.max(maxId, id);
+                records++;
+            }
+        } catch (EOFException e) {
+            // The server stopped part way through a write, the rewrite drops the partial record.
+            this.logger.warn("The mailbox for " + uuid.toString() + " ends with an incomplete record, which has been discarded.");
+            truncated = true;
+        } catch (IOException e) {
+            this.logger.error("Could not load the mailbox for " + uuid.toString(), e);
+            return;
+        } finally {
+            this.nextId.accumulateAndGet(maxId + 1, Math::max);
+        }
+
+        mailbox.garbage = records - mailbox.entries.size();
+        if (truncated || mailbox.garbage >= COMPACT_THRESHOLD && mailbox.garbage > mailbox.entries.size()) {
+            // Already off the calling thread and holding the write lock, so rewritten here.
+            try {
+                rewrite(mailbox.file, mailbox.snapshot());
+                mailbox.garbage = 0;
+            } catch (IOException e) {
+                this.logger.error("Could not compact the mailbox for " + uuid.toString(), e);
+            }
+        }
+    }
+
+    // Must hold the write lock.
+    private void migrate(UUID uuid, Mailbox mailbox) {
+        Optional<IUserDataObject> dataObject = this.storageManager.getUserService().getOnThread(uuid);
+        List<MailMessage> legacy = dataObject.flatMap(x -> x.get(MailKeys.MAIL_DATA)).orElseGet(ImmutableList::of);
+        List<MailData> toMigrate = new ArrayList<>();
+        for (MailMessage message : legacy) {
+            toMigrate.add(toMailData(message));
+        }
+
+        toMigrate.sort(Comparator.comparing(MailData::getDate));
+        for (MailData data : toMigrate) {
+            mailbox.put(this.nextId.getAndIncrement(), data);
+        }
+
+        try {
+            rewrite(mailbox.file, mailbox.snapshot());
+        } catch (IOException e) {
+            this.logger.error("Could not create the mailbox for " + uuid.toString(), e);
+            return;
+        }
+
+        if (!legacy.isEmpty()) {
+            IUserDataObject userDataObject = dataObject.get();
+            userDataObject.remove(MailKeys.MAIL_DATA);
+            this.storageManager.getUserService().save(uuid, userDataObject);
+        }
+    }
+
+    private Path getFile(UUID uuid) {
+        return this.dataDirectory.get().resolve(DIRECTORY).resolve(uuid.toString() + EXTENSION);
+    }
+
+    private static MailData toMailData(MailMessage message) {
+        if (message instanceof MailData) {
+            return (MailData) message;
+        }
+
+        return new MailData(
+                message.getSender().map(Identifiable::getUniqueId).orElse(Util.CONSOLE_FAKE_UUID),
+                message.getDate(),
+                message.getMessage());
+    }
+
+    private static final class Mailbox {
+
+        private final Path file;
+
+        // completed once the log has been read
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+
+        // mail sent before the log has been read, in the order it was sent
+        private final List<MailData> deferred = new ArrayList<>();
+
+        // in the order they were sent
+        private final Map<Long, MailData> entries = new LinkedHashMap<>();
+        private final ListMultimap<MailData, Long> ids = LinkedListMultimap.create();
+
+        // records in the log for mail that has since been removed
+        private int garbage;
+
+        private Mailbox(Path file) {
+            this.file = file;
+        }
+
+        private void put(long id, MailData data) {
+            this.entries.put(id, data);
+            this.ids.put(data, id);
+        }
+
+        private void remove(long id) {
+            MailData data = this.entries.remove(id);
+            if (data != null) {
+                this.ids.remove(data, id);
+            }
+        }
+
+        private List<Map.Entry<Long, MailData>> snapshot() {
+            List<Map.Entry<Long, MailData>> snapshot = new ArrayList<>(this.entries.size());
+            this.entries.forEach((id, data) -> snapshot.add(Maps.immutableEntry(id, data)));
+            return snapshot;
+        }
+
+        @Nullable
+        private Long find(MailData data) {
+            List<Long> found = this.ids.get(data);
+            if (!found.isEmpty()) {
+                return found.get(0);
+            }
+
+            // Messages are matched regardless of case.
+            for (Map.Entry<Long, MailData> entry : this.entries.entrySet()) {
+                if (entry.getValue().getDate().equals(data.getDate())
+                        && entry.getValue().getUuid().equals(data.getUuid())
+                        && entry.getValue().getMessage().equalsIgnoreCase(data.getMessage())) {
+                    return entry.getKey();
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final class Write {
+
+        private final UUID uuid;
+        private final Path file;
+        private final long id;
+
+        // the mail to add, or null to remove the mail with the id
+        @Nullable private final MailData data;
+
+        // if not null, the log is replaced with these entries
+        @Nullable private final List<Map.Entry<Long, MailData>> snapshot;
+
+        private Write(UUID uuid, Path file, long id, @Nullable MailData data, @Nullable List<Map.Entry<Long, MailData>> snapshot) {
+            this.uuid = uuid;
+            this.file = file;
+            this.id = id;
+            this.data = data;
+            this.snapshot = snapshot;
+        }
+    }
+}
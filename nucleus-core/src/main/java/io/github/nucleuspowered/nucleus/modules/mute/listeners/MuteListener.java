@@ -65,7 +65,8 @@ public class MuteListener implements IReloadableService.Reloadable, ListenerBase
             Optional<MuteData> omd = this.handler.getPlayerMuteData(user);
             if (omd.isPresent()) {
                 MuteData md = omd.get();
-                md.nextLoginToTimestamp();
+                this.handler.startTimerOnLogin(user, md);
+                this.handler.scheduleExpiry(user.getUniqueId(), md);
 
                 if (isMuted(user)) {
                     this.handler.onMute(md, event.getTargetEntity());
@@ -10,13 +10,16 @@ import com.google.common.collect.Maps;
 import io.github.nucleuspowered.nucleus.Util;
 import io.github.nucleuspowered.nucleus.api.module.mute.NucleusMuteService;
 import io.github.nucleuspowered.nucleus.api.module.mute.data.Mute;
+import io.github.nucleuspowered.nucleus.datatypes.EndTimestamp;
 import io.github.nucleuspowered.nucleus.modules.mute.MuteKeys;
+import io.github.nucleuspowered.nucleus.modules.mute.MuteModule;
 import io.github.nucleuspowered.nucleus.modules.mute.data.MuteData;
 import io.github.nucleuspowered.nucleus.modules.mute.events.MuteEvent;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.scaffold.service.annotations.APIService;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import io.github.nucleuspowered.nucleus.util.CauseStackHelper;
@@ -48,6 +51,7 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
     private final IMessageProviderService messageProviderService;
     private final IStorageManager storageManager;
     private final PluginContainer pluginContainer;
+    private final IExpiryService expiryService;
     private final Map<UUID, Boolean> muteContextCache = Maps.newHashMap();
     private final Context mutedContext = new Context(NucleusMuteService.MUTED_CONTEXT, "true");
 
@@ -59,6 +63,55 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
         this.messageProviderService = serviceCollection.messageProvider();
         this.storageManager = serviceCollection.storageManager();
         this.pluginContainer = serviceCollection.pluginContainer();
+        this.expiryService = serviceCollection.expiryService();
+        this.expiryService.registerExpiryHandler(MuteModule.ID, this::onMuteExpiry);
+    }
+
+    /**
+     * Sets when the mute of an online player ends, so that they are unmuted then.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param data The {@link MuteData} of their mute
+     */
+    public void scheduleExpiry(UUID uuid, MuteData data) {
+        Optional<Instant> end = data.getEndTimestamp();
+        if (end.isPresent()) {
+            this.expiryService.schedule(uuid, MuteModule.ID, end.get());
+        } else {
+            this.expiryService.cancel(uuid, MuteModule.ID);
+        }
+    }
+
+    /**
+     * Starts the clock on a mute that runs from the next login, saving the
+     * time it now ends so that it is there when the data is next read.
+     *
+     * @param user The {@link User} who has logged in
+     * @param data The {@link MuteData} of their mute
+     */
+    public void startTimerOnLogin(User user, MuteData data) {
+        if (data.getTimeFromNextLogin().isPresent() && !data.getEndTimestamp().isPresent()) {
+            data.nextLoginToTimestamp();
+            updateMuteData(user, data);
+        }
+    }
+
+    public void updateMuteData(User user, MuteData data) {
+        IUserDataObject udo = this.storageManager.getOrCreateUserOnThread(user.getUniqueId());
+        udo.set(MuteKeys.MUTE_DATA, data);
+        this.storageManager.saveUser(user.getUniqueId(), udo);
+    }
+
+    private void onMuteExpiry(UUID uuid) {
+        Sponge.getServer().getPlayer(uuid).ifPresent(player -> {
+            Optional<MuteData> data = getPlayerMuteData(player);
+            if (data.map(EndTimestamp::expired).orElse(false)) {
+                unmutePlayer(player);
+            } else {
+                // The mute has changed since the deadline was set.
+                data.ifPresent(x -> scheduleExpiry(uuid, x));
+            }
+        });
     }
 
     public void onMute(Player user) {
@@ -117,6 +170,10 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
         u.set(MuteKeys.MUTE_DATA, data);
         this.storageManager.saveUser(user.getUniqueId(), u);
         this.muteContextCache.put(user.getUniqueId(), true);
+        if (user.isOnline()) {
+            scheduleExpiry(user.getUniqueId(), data);
+        }
+
         Sponge.getEventManager().post(new MuteEvent.Muted(
                 cause,
                 user,
@@ -141,6 +198,7 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
                 udo.remove(MuteKeys.MUTE_DATA);
                 this.storageManager.saveUser(user.getUniqueId(), udo);
                 this.muteContextCache.put(user.getUniqueId(), false);
+                this.expiryService.cancel(user.getUniqueId(), MuteModule.ID);
                 Sponge.getEventManager().post(new MuteEvent.Unmuted(
                         cause,
                         user,
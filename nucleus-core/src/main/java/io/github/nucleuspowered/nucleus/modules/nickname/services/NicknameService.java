@@ -4,12 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.modules.nickname.services;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import io.github.nucleuspowered.nucleus.api.module.nickname.NucleusNicknameService;
 import io.github.nucleuspowered.nucleus.api.module.nickname.exception.NicknameException;
 import io.github.nucleuspowered.nucleus.modules.nickname.NicknameKeys;
@@ -20,8 +16,10 @@ import io.github.nucleuspowered.nucleus.modules.nickname.events.ChangeNicknameEv
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.scaffold.service.annotations.APIService;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.playername.NamePrefixIndex;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
+import io.github.nucleuspowered.nucleus.services.interfaces.INucleusTextTemplateFactory;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
@@ -39,14 +37,16 @@ import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.format.TextColors;
 import org.spongepowered.api.text.serializer.TextSerializers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -57,22 +57,24 @@ public class NicknameService implements NucleusNicknameService, IReloadableServi
     private final IMessageProviderService messageProviderService;
     private final IStorageManager storageManager;
     private final ITextStyleService textStyleService;
+    private final INucleusTextTemplateFactory textTemplateFactory;
 
     @Inject
     public NicknameService(INucleusServiceCollection serviceCollection) {
         this.messageProviderService = serviceCollection.messageProvider();
         this.storageManager = serviceCollection.storageManager();
         this.textStyleService = serviceCollection.textStyleService();
+        this.textTemplateFactory = serviceCollection.textTemplateFactory();
     }
 
     private Text prefix = Text.EMPTY;
     private Pattern pattern;
     private int min = 3;
     private int max = 16;
-    private final List<UUID> cached = Lists.newArrayList();
-    private final BiMap<UUID, String> cache = HashBiMap.create();
-    private final BiMap<UUID, Text> textCache = HashBiMap.create();
-    private final TreeMap<String, UUID> reverseLowerCaseCache = new TreeMap<>();
+    // players whose nickname has been loaded into the caches below
+    private final Set<UUID> cached = ConcurrentHashMap.newKeySet();
+    private final NamePrefixIndex nicknames = new NamePrefixIndex();
+    private final Map<UUID, Text> textCache = new ConcurrentHashMap<>();
 
     public void injectResolver(INucleusServiceCollection serviceCollection) {
         serviceCollection.playerDisplayNameService().provideDisplayNameResolver(this::getNicknameWithPrefix);
@@ -94,16 +96,16 @@ public class NicknameService implements NucleusNicknameService, IReloadableServi
     }
 
     public void updateCache(UUID player, Text text) {
-        this.cache.put(player, text.toPlain());
+        this.nicknames.put(player, text.toPlain());
         this.textCache.put(player, text);
     }
 
     public Optional<Player> getFromCache(String text) {
-        UUID u = this.cache.inverse().get(text);
-        if (u != null) {
-            Optional<Player> ret = Sponge.getServer().getPlayer(u);
+        Optional<UUID> u = this.nicknames.get(text);
+        if (u.isPresent()) {
+            Optional<Player> ret = Sponge.getServer().getPlayer(u.get());
             if (!ret.isPresent()) {
-                this.cache.remove(u);
+                this.nicknames.remove(u.get());
             }
 
             return ret;
@@ -113,54 +115,47 @@ public class NicknameService implements NucleusNicknameService, IReloadableServi
     }
 
     public Map<String, UUID> getAllCached() {
-        return Maps.newHashMap(this.cache.inverse());
+        Map<String, UUID> result = new HashMap<>();
+        this.nicknames.getAll().forEach((uuid, name) -> result.put(name, uuid));
+        return result;
     }
 
     public Map<Player, Text> getFromSubstring(String search) {
         final String prefix = search.toLowerCase();
-        Collection<UUID> uuidCollection;
-        if (prefix.length() > 0) {
-            char nextLetter = (char) (prefix.charAt(prefix.length() -1) + 1);
-            String end = prefix.substring(0, prefix.length()-1) + nextLetter;
-            uuidCollection = this.reverseLowerCaseCache.subMap(prefix, end).values();
-        } else {
-            uuidCollection = this.reverseLowerCaseCache.values();
-        }
-
         ImmutableMap.Builder<Player, Text> mapToReturn = ImmutableMap.builder();
         Sponge.getServer().getOnlinePlayers().stream()
-                .filter(x -> !this.cache.containsKey(x.getUniqueId()))
+                .filter(x -> !this.nicknames.contains(x.getUniqueId()))
                 .filter(x -> x.getName().toLowerCase().startsWith(prefix))
                 .forEach(player -> mapToReturn.put(player, player.get(Keys.DISPLAY_NAME).orElseGet(
                         () -> Text.of(player.getName(), "*"))));
 
-        for (UUID uuid : uuidCollection) {
+        for (UUID uuid : this.nicknames.startsWith(prefix).keySet()) {
             Optional<Player> op = Sponge.getServer().getPlayer(uuid);
-            op.ifPresent(player -> mapToReturn.put(player, this.textCache.get(uuid)));
+            Text text = this.textCache.get(uuid);
+            if (op.isPresent() && text != null) {
+                mapToReturn.put(op.get(), text);
+            }
         }
 
         return mapToReturn.build();
     }
 
     public Map<String, UUID> startsWithGetMap(String text) {
-        return this.cache.inverse().entrySet().stream().filter(x -> x.getKey().startsWith(text.toLowerCase()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, UUID> result = new HashMap<>();
+        this.nicknames.startsWith(text).forEach((uuid, name) -> result.put(name, uuid));
+        return result;
     }
 
     public Map<UUID, String> startsWithUUIDStringMap(String text) {
-        return this.cache.inverse().entrySet().stream().filter(x -> x.getKey().startsWith(text.toLowerCase()))
-                .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+        return this.nicknames.startsWith(text);
     }
 
-
     public List<UUID> startsWith(String text) {
-        return this.cache.inverse().entrySet().stream().filter(x -> x.getKey().startsWith(text.toLowerCase()))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        return new ArrayList<>(this.nicknames.startsWith(text).keySet());
     }
 
     public void removeFromCache(UUID player) {
-        this.cache.remove(player);
+        this.nicknames.remove(player);
         this.textCache.remove(player);
         this.cached.remove(player);
     }
@@ -229,6 +224,7 @@ public class NicknameService implements NucleusNicknameService, IReloadableServi
 
         mus.remove(NicknameKeys.USER_NICKNAME_JSON);
         removeFromCache(user.getUniqueId());
+        this.textTemplateFactory.invalidateRenderCache(user.getUniqueId());
         Sponge.getEventManager().post(new ChangeNicknameEventPost(cause, currentNickname, null, user));
 
         if (user.isOnline()) {
@@ -316,6 +312,7 @@ public class NicknameService implements NucleusNicknameService, IReloadableServi
         IUserDataObject userDataObject = this.storageManager.getUserService().getOrNewOnThread(pl.getUniqueId());
         userDataObject.set(NicknameKeys.USER_NICKNAME_JSON, TextSerializers.JSON.serialize(nickname));
         this.updateCache(pl.getUniqueId(), nickname);
+        this.textTemplateFactory.invalidateRenderCache(pl.getUniqueId());
 
         Sponge.getEventManager().post(new ChangeNicknameEventPost(cause, currentNickname, nickname, pl));
         pl.getPlayer().ifPresent(player -> player.sendMessage(Text.builder().append(
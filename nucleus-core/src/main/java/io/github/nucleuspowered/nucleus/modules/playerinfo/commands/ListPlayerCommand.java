@@ -6,11 +6,10 @@ package io.github.nucleuspowered.nucleus.modules.playerinfo.commands;
 
 import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Util;
-import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
-import io.github.nucleuspowered.nucleus.modules.afk.services.AFKHandler;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.PlayerInfoPermissions;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.config.ListConfig;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.config.PlayerInfoConfig;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerListService;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandContext;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandExecutor;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandResult;
@@ -19,14 +18,11 @@ import io.github.nucleuspowered.nucleus.scaffold.command.annotation.CommandModif
 import io.github.nucleuspowered.nucleus.scaffold.command.annotation.EssentialsEquivalent;
 import io.github.nucleuspowered.nucleus.scaffold.command.modifier.CommandModifiers;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
-import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerOnlineService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandException;
 import org.spongepowered.api.command.CommandSource;
-import org.spongepowered.api.data.key.Keys;
-import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.service.pagination.PaginationList;
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.text.Text;
@@ -35,12 +31,9 @@ import org.spongepowered.api.text.serializer.TextSerializers;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @NonnullByDefault
 @EssentialsEquivalent({"list", "who", "playerlist", "online", "plist"})
@@ -58,16 +51,32 @@ import java.util.stream.Collectors;
 )
 public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IReloadableService.Reloadable {
 
-    public static final String LIST_OPTION = "nucleus.list.group";
+    public static final String LIST_OPTION = PlayerListService.LIST_OPTION;
 
     private ListConfig listConfig = new ListConfig();
 
     @Override public ICommandResult execute(ICommandContext<? extends CommandSource> context) throws CommandException {
         boolean showVanished = context.testPermission(PlayerInfoPermissions.LIST_SEEVANISHED);
 
-        Collection<Player> players = Sponge.getServer().getOnlinePlayers();
-        long playerCount = players.size();
-        long hiddenCount = players.stream().filter(x -> x.get(Keys.VANISH).orElse(false)).count();
+        boolean grouped = this.listConfig.isGroupByPermissionGroup() && Sponge.getServiceManager().provide(PermissionService.class).isPresent();
+        IPlayerOnlineService playerOnlineService = context.getServiceCollection().playerOnlineService();
+        CommandSource source = context.getCommandSourceUnchecked();
+
+        List<PlayerListService.Entry> entries = context.getServiceCollection().getServiceUnchecked(PlayerListService.class).getEntries();
+        List<PlayerListService.Entry> visible = new ArrayList<>(entries.size());
+        long playerCount = entries.size();
+        long hiddenCount = 0;
+        for (PlayerListService.Entry entry : entries) {
+            boolean vanished = entry.isVanished();
+            if (vanished) {
+                hiddenCount++;
+            }
+
+            // The grouped list also shows vanished players to those who can see them.
+            if (showVanished || (grouped ? playerOnlineService.isOnline(source, entry.getPlayer()) : !vanished)) {
+                visible.add(entry);
+            }
+        }
 
         Text header;
         if (showVanished && hiddenCount > 0) {
@@ -80,35 +89,34 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
 
         PaginationList.Builder builder = Util.getPaginationBuilder(context.getCommandSource()).title(header);
 
-        Optional<PermissionService> optPermissionService = Sponge.getServiceManager().provide(PermissionService.class);
-        if (this.listConfig.isGroupByPermissionGroup() && optPermissionService.isPresent()) {
-            builder.contents(listByPermissionGroup(context, showVanished));
+        if (grouped) {
+            builder.contents(listByPermissionGroup(context, visible));
         } else {
             // If we have players, send them on.
-            builder.contents(getPlayerList(players, showVanished, context));
+            builder.contents(getPlayerList(visible, context));
         }
 
         builder.sendTo(context.getCommandSource());
         return context.successResult();
     }
 
-    private List<Text> listByPermissionGroup(ICommandContext<? extends CommandSource> context, boolean showVanished) {
+    private List<Text> listByPermissionGroup(ICommandContext<? extends CommandSource> context, List<PlayerListService.Entry> visible) {
         // Messages
         final List<Text> messages = Lists.newArrayList();
 
         String defName = this.listConfig.getDefaultGroupName();
-        final Map<String, List<Player>> groupToPlayer = playerList(
-                context,
-                showVanished,
-                defName
-        );
+        final Map<String, List<PlayerListService.Entry>> groupToPlayer = new HashMap<>();
+        for (PlayerListService.Entry entry : visible) {
+            String group = entry.getGroup();
+            groupToPlayer.computeIfAbsent(group == null ? defName : group, y -> new ArrayList<>()).add(entry);
+        }
 
         this.listConfig.getOrder().forEach(alias -> {
-            List<Player> plList = groupToPlayer.get(alias);
+            List<PlayerListService.Entry> plList = groupToPlayer.get(alias);
             if (plList != null && !plList.isEmpty()) {
                 // Get and put the player list into the map, if there is a
                 // player to show. There might not be, they might be vanished!
-                getList(plList, showVanished, messages, alias, context);
+                getList(plList, messages, alias, context);
             }
 
             groupToPlayer.remove(alias);
@@ -118,44 +126,25 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
                 .filter(x -> !x.getValue().isEmpty())
                 .filter(x -> !x.getKey().equals(defName))
                 .sorted((x, y) -> x.getKey().compareToIgnoreCase(y.getKey()))
-                .forEach(x -> getList(x.getValue(), showVanished, messages, x.getKey(), context));
+                .forEach(x -> getList(x.getValue(), messages, x.getKey(), context));
 
-        List<Player> pl = groupToPlayer.get(defName);
+        List<PlayerListService.Entry> pl = groupToPlayer.get(defName);
         if (pl != null && !pl.isEmpty()) {
-            getList(pl, showVanished, messages, defName, context);
+            getList(pl, messages, defName, context);
         }
 
         return messages;
     }
 
-    private Map<String, List<Player>> playerList(
-            ICommandContext<? extends CommandSource> context,
-            boolean showVanished,
-            String def) {
-        IPlayerOnlineService playerOnlineService = context.getServiceCollection().playerOnlineService();
-        IPermissionService permissionService = context.getServiceCollection().permissionService();
-        Map<String, List<Player>> map = new HashMap<>();
-        for (Player player : Sponge.getServer().getOnlinePlayers()) {
-            if (showVanished || playerOnlineService.isOnline(context.getCommandSourceUnchecked(), player)) {
-                String perm = permissionService.getOptionFromSubject(player, LIST_OPTION).orElse(def);
-                if (perm.trim().isEmpty()) {
-                    perm = def;
-                }
-                map.computeIfAbsent(perm, y -> new ArrayList<>()).add(player);
-            }
-        }
-        return map;
-    }
-
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
         this.listConfig = serviceCollection.moduleDataProvider().getModuleConfig(PlayerInfoConfig.class).getList();
     }
 
-    private void getList(Collection<Player> player, boolean showVanished, List<Text> messages, String groupName,
+    private void getList(List<PlayerListService.Entry> player, List<Text> messages, String groupName,
             ICommandContext<? extends CommandSource> context) {
         Text groupNameText = TextSerializers.FORMATTING_CODE.deserialize(groupName);
-        List<Text> m = getPlayerList(player, showVanished, context);
+        List<Text> m = getPlayerList(player, context);
         if (this.listConfig.isCompact()) {
             boolean isFirst = true;
             for (Text y : m) {
@@ -175,43 +164,34 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
     /**
      * Gets {@link Text} that represents the provided player list.
      *
-     * @param playersToList The {@link Player}s to list.
-     * @param showVanished <code>true</code> if those who are vanished are to be
-     *        shown.
-     * @return An {@link Optional} of {@link Text} objects, returning
-     *         <code>empty</code> if the player list is of zero length.
+     * @param playersToList The entries of the players to list, in the order
+     *        they are to be listed.
+     * @return A {@link List} of {@link Text} objects, which is empty if the
+     *         player list is of zero length.
      */
-    @SuppressWarnings("ConstantConditions")
-    private List<Text> getPlayerList(Collection<Player> playersToList, boolean showVanished, ICommandContext<? extends CommandSource> context) {
-        NucleusTextTemplate template = this.listConfig.getListTemplate();
-        final AFKHandler handler = context.getServiceCollection().getService(AFKHandler.class).orElse(null);
+    private List<Text> getPlayerList(List<PlayerListService.Entry> playersToList, ICommandContext<? extends CommandSource> context) {
         final Text afk = context.getMessage("command.list.afk");
         final Text hidden = context.getMessage("command.list.hidden");
 
-        List<Text> playerList = playersToList.stream().filter(x -> showVanished || !x.get(Keys.VANISH).orElse(false))
-                .sorted((x, y) -> x.getName().compareToIgnoreCase(y.getName())).map(x -> {
-                    Text.Builder tb = Text.builder();
-                    boolean appendSpace = false;
-                    if (handler != null && handler.isAFK(x)) {
-                        tb.append(afk);
-                        appendSpace = true;
-                    }
-
-                    if (x.get(Keys.VANISH).orElse(false)) {
-                        tb.append(hidden);
-                        appendSpace = true;
-                    }
+        List<Text> playerList = new ArrayList<>(playersToList.size());
+        for (PlayerListService.Entry x : playersToList) {
+            boolean isAfk = x.isAFK();
+            boolean isHidden = x.isVanished();
+            if (isAfk || isHidden) {
+                Text.Builder tb = Text.builder();
+                if (isAfk) {
+                    tb.append(afk);
+                }
 
-                    if (appendSpace) {
-                        tb.append(Text.of(" "));
-                    }
+                if (isHidden) {
+                    tb.append(hidden);
+                }
 
-                    if (template != null) { // it shouldn't be, but if it is, fallback...
-                        return tb.append(template.getForCommandSource(x)).build();
-                    } else {
-                        return tb.append(context.getDisplayName(x.getUniqueId())).build();
-                    }
-                }).collect(Collectors.toList());
+                playerList.add(tb.append(Text.of(" ")).append(x.getRendered()).build());
+            } else {
+                playerList.add(x.getRendered());
+            }
+        }
 
         if (this.listConfig.isCompact() && !playerList.isEmpty()) {
             List<Text> toReturn = new ArrayList<>();
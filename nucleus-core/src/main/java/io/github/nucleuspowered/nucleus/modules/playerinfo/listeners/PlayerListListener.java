@@ -0,0 +1,66 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.playerinfo.listeners;
+
+import io.github.nucleuspowered.nucleus.api.module.afk.event.NucleusAFKEvent;
+import io.github.nucleuspowered.nucleus.modules.nickname.events.ChangeNicknameEventPost;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerListService;
+import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
+
+import javax.inject.Inject;
+
+public class PlayerListListener implements ListenerBase {
+
+    private final PluginContainer pluginContainer;
+    private final PlayerListService service;
+
+    @Inject
+    public PlayerListListener(INucleusServiceCollection serviceCollection) {
+        this.pluginContainer = serviceCollection.pluginContainer();
+        this.service = serviceCollection.getServiceUnchecked(PlayerListService.class);
+    }
+
+    @Listener(order = Order.POST)
+    public void onJoin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
+        this.service.add(player);
+    }
+
+    @Listener(order = Order.POST)
+    public void onQuit(ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.service.remove(player.getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    public void onGoingAFK(NucleusAFKEvent.GoingAFK event, @Getter("getTargetEntity") Player player) {
+        this.service.setAFK(player.getUniqueId(), true);
+    }
+
+    @Listener(order = Order.POST)
+    public void onReturningFromAFK(NucleusAFKEvent.ReturningFromAFK event, @Getter("getTargetEntity") Player player) {
+        this.service.setAFK(player.getUniqueId(), false);
+    }
+
+    @Listener
+    public void onNicknameChange(ChangeNicknameEventPost event) {
+        this.service.invalidate(event.getUser().getUniqueId());
+    }
+
+    @Listener
+    public void onSubjectDataUpdate(SubjectDataUpdateEvent event) {
+        // On the next tick, as this may not be fired on the main thread, and so that the
+        // permission cache has been cleared.
+        Task.builder().execute(this.service::updateGroups).submit(this.pluginContainer);
+    }
+
+}
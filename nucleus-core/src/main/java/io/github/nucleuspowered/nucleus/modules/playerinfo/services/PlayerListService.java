@@ -0,0 +1,231 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.playerinfo.services;
+
+import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.config.ListConfig;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.config.PlayerInfoConfig;
+import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.data.key.Keys;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.text.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * Holds an entry for each online player for use by /list, so that listing players does not
+ * look up the list group of, and render the list template for, every player each time.
+ *
+ * <p>Entries are added when players join and removed when they leave. Their groups are looked
+ * up again when permissions change, and their names are rendered again when permissions or
+ * their nickname change. As the template may contain tokens that change without an event, such
+ * as the world a player is in, names are also rendered again when they are next listed if they
+ * were last rendered more than {@link #RENDER_LIFETIME_MILLIS} ago.</p>
+ */
+public class PlayerListService implements IReloadableService.Reloadable, ServiceBase {
+
+    public static final String LIST_OPTION = "nucleus.list.group";
+
+    static final long RENDER_LIFETIME_MILLIS = 10000;
+
+    private static final Comparator<Entry> BY_NAME = (x, y) -> x.name.compareToIgnoreCase(y.name);
+
+    private final IPermissionService permissionService;
+    private final IPlayerDisplayNameService displayNameService;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    // The entries sorted by name, replaced when players join or leave.
+    private volatile List<Entry> sorted = Collections.emptyList();
+
+    @Nullable private volatile NucleusTextTemplate template;
+
+    @Inject
+    public PlayerListService(INucleusServiceCollection serviceCollection) {
+        this.permissionService = serviceCollection.permissionService();
+        this.displayNameService = serviceCollection.playerDisplayNameService();
+    }
+
+    @Override
+    public void onReload(INucleusServiceCollection serviceCollection) {
+        ListConfig listConfig = serviceCollection.moduleDataProvider().getModuleConfig(PlayerInfoConfig.class).getList();
+
+        // Players may already be online if the module was enabled late.
+        for (Player player : Sponge.getServer().getOnlinePlayers()) {
+            if (!this.entries.containsKey(player.getUniqueId())) {
+                add(player);
+            }
+        }
+
+        setTemplate(listConfig.getListTemplate());
+    }
+
+    /**
+     * Sets the template that the names of players are rendered with, and marks all names to be
+     * rendered again.
+     *
+     * @param template The template
+     */
+    public void setTemplate(@Nullable NucleusTextTemplate template) {
+        this.template = template;
+        invalidateAll();
+    }
+
+    /**
+     * Adds the entry for a player who has joined.
+     *
+     * @param player The player
+     */
+    public void add(Player player) {
+        Entry entry = new Entry(player);
+        entry.group = lookupGroup(player);
+        this.entries.put(player.getUniqueId(), entry);
+        resort();
+    }
+
+    /**
+     * Removes the entry for a player who has left.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void remove(UUID uuid) {
+        if (this.entries.remove(uuid) != null) {
+            resort();
+        }
+    }
+
+    public void setAFK(UUID uuid, boolean afk) {
+        Entry entry = this.entries.get(uuid);
+        if (entry != null) {
+            entry.afk = afk;
+        }
+    }
+
+    /**
+     * Marks the name of a player to be rendered again when they are next listed.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void invalidate(UUID uuid) {
+        Entry entry = this.entries.get(uuid);
+        if (entry != null) {
+            entry.rendered = null;
+        }
+    }
+
+    private void invalidateAll() {
+        for (Entry entry : this.entries.values()) {
+            entry.rendered = null;
+        }
+    }
+
+    /**
+     * Looks up the groups of all online players again, and marks their names to be rendered
+     * again, such as when permissions change.
+     */
+    public void updateGroups() {
+        for (Entry entry : this.entries.values()) {
+            entry.group = lookupGroup(entry.player);
+            entry.rendered = null;
+        }
+    }
+
+    @Nullable
+    private String lookupGroup(Player player) {
+        return this.permissionService.getOptionFromSubject(player, LIST_OPTION)
+                .filter(x -> !x.trim().isEmpty())
+                .orElse(null);
+    }
+
+    private synchronized void resort() {
+        List<Entry> list = new ArrayList<>(this.entries.values());
+        list.sort(BY_NAME);
+        this.sorted = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the entries of the online players, sorted by name.
+     *
+     * @return The entries
+     */
+    public List<Entry> getEntries() {
+        return this.sorted;
+    }
+
+    public final class Entry {
+
+        private final Player player;
+        private final String name;
+        @Nullable private volatile String group;
+        private volatile boolean afk;
+        @Nullable private volatile Text rendered;
+        private volatile long renderedAt;
+
+        private Entry(Player player) {
+            this.player = player;
+            this.name = player.getName();
+        }
+
+        public Player getPlayer() {
+            return this.player;
+        }
+
+        /**
+         * Gets the list group of the player, if they have one.
+         *
+         * @return The group, or null
+         */
+        @Nullable
+        public String getGroup() {
+            return this.group;
+        }
+
+        public boolean isAFK() {
+            return this.afk;
+        }
+
+        public boolean isVanished() {
+            // Other plugins may vanish players, so this is read from the player.
+            return this.player.get(Keys.VANISH).orElse(false);
+        }
+
+        /**
+         * Gets the name of the player as rendered by the list template.
+         *
+         * @return The {@link Text}
+         */
+        public Text getRendered() {
+            Text text = this.rendered;
+            long now = System.currentTimeMillis();
+            if (text == null || now - this.renderedAt > RENDER_LIFETIME_MILLIS) {
+                NucleusTextTemplate template = PlayerListService.this.template;
+                if (template != null) { // it shouldn't be, but if it is, fallback...
+                    text = template.getForCommandSource(this.player);
+                } else {
+                    text = PlayerListService.this.displayNameService.getDisplayName(this.player.getUniqueId());
+                }
+
+                this.renderedAt = now;
+                this.rendered = text;
+            }
+
+            return text;
+        }
+    }
+
+}
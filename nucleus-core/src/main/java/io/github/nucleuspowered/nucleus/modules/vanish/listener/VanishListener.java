@@ -4,6 +4,7 @@
  */
 package io.github.nucleuspowered.nucleus.modules.vanish.listener;
 
+import io.github.nucleuspowered.nucleus.modules.core.events.UserDataLoadedEvent;
 import io.github.nucleuspowered.nucleus.modules.vanish.VanishKeys;
 import io.github.nucleuspowered.nucleus.modules.vanish.VanishPermissions;
 import io.github.nucleuspowered.nucleus.modules.vanish.config.VanishConfig;
@@ -19,13 +20,18 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IUserPreferenceServi
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.text.action.TextActions;
+import org.spongepowered.api.util.Tristate;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -72,6 +78,33 @@ public class VanishListener implements IReloadableService.Reloadable, ListenerBa
         }
     }
 
+    @Listener
+    public void onUserDataLoaded(UserDataLoadedEvent event) {
+        this.service.load(event.getGameProfile().getUniqueId(), event.getDataObject());
+    }
+
+    /*
+     * The state was loaded at Auth, but the player will not join, so will not disconnect either.
+     */
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onLoginCancelled(ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        this.service.clearLastVanishTime(user.getUniqueId());
+        this.service.unload(user.getUniqueId());
+    }
+
+    @Listener(order = Order.EARLY)
+    public void onJoin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
+        this.service.updateCanSeeVanished(player, true);
+    }
+
+    @Listener
+    public void onSubjectDataUpdate(SubjectDataUpdateEvent event) {
+        // On the next tick, as this may not be fired on the main thread, and so that the
+        // permission cache has been cleared.
+        Task.builder().execute(this.service::updateCanSeeVanished).submit(this.pluginContainer);
+    }
+
     @Listener
     public void onLogin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
         boolean persist = this.service.isVanished(player);
@@ -114,6 +147,7 @@ public class VanishListener implements IReloadableService.Reloadable, ListenerBa
         }
 
         this.service.clearLastVanishTime(player.getUniqueId());
+        this.service.unload(player.getUniqueId());
     }
 
     @Override
@@ -9,6 +9,7 @@ import io.github.nucleuspowered.nucleus.modules.vanish.VanishPermissions;
 import io.github.nucleuspowered.nucleus.modules.vanish.config.VanishConfig;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
@@ -17,27 +18,48 @@ import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.entity.living.player.tab.TabList;
 import org.spongepowered.api.entity.living.player.tab.TabListEntry;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.text.Text;
 
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
+/**
+ * Holds whether players are vanished, and hides vanished players from those that cannot see them.
+ *
+ * <p>The vanish state of a player is read from their user data as it is loaded when they log in,
+ * and is held in memory until they leave. Changes are written through to their user data. The
+ * state of players that are not online is read from storage.</p>
+ *
+ * <p>The online players that can see vanished players are also held, so that the checks made
+ * when resolving player names and when updating tab lists do not each need a permission check.
+ * They are recalculated when permissions change.</p>
+ */
 public class VanishService implements IReloadableService.Reloadable, ServiceBase {
 
     private boolean isAlter = false;
-    private final Map<UUID, Instant> lastVanish = new HashMap<>();
+    private final Map<UUID, Instant> lastVanish = new ConcurrentHashMap<>();
     private final IPermissionService permissionService;
     private final IStorageManager storageManager;
     private final PluginContainer pluginContainer;
 
+    // The vanish state of players who are online or logging in.
+    private final Map<UUID, Boolean> vanishStates = new ConcurrentHashMap<>();
+
+    // The online players that have the permission to see vanished players.
+    private final Set<UUID> canSeeVanished = ConcurrentHashMap.newKeySet();
+
     @Inject
     public VanishService(INucleusServiceCollection serviceCollection) {
         this.permissionService = serviceCollection.permissionService();
@@ -58,10 +80,94 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         }
     }
 
+    /**
+     * Holds the vanish state of a player who is logging in.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param dataObject Their user data
+     */
+    public void load(UUID uuid, IUserDataObject dataObject) {
+        this.vanishStates.put(uuid, dataObject.get(VanishKeys.VANISH_STATUS).orElse(false));
+    }
+
+    /**
+     * Drops the state held for a player who has left, or whose login was cancelled.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void unload(UUID uuid) {
+        this.vanishStates.remove(uuid);
+        this.canSeeVanished.remove(uuid);
+    }
+
+    /**
+     * Recalculates whether the player can see vanished players, and updates their tab list if
+     * that has changed, or if they have just joined and cannot.
+     *
+     * @param player The player
+     * @param joined Whether the player has just joined
+     */
+    public void updateCanSeeVanished(Player player, boolean joined) {
+        boolean canSee = this.permissionService.hasPermission(player, VanishPermissions.VANISH_SEE);
+        boolean changed = canSee ? this.canSeeVanished.add(player.getUniqueId()) : this.canSeeVanished.remove(player.getUniqueId());
+        if (this.isAlter) {
+            if (joined) {
+                // The tab list of a joining player is filled after they join.
+                if (!canSee) {
+                    Task.builder().execute(() -> updateTabList(player, false)).delayTicks(1).submit(this.pluginContainer);
+                }
+            } else if (changed) {
+                updateTabList(player, canSee);
+            }
+        }
+    }
+
+    /**
+     * Recalculates which online players can see vanished players, such as when permissions change.
+     */
+    public void updateCanSeeVanished() {
+        for (Player player : Sponge.getServer().getOnlinePlayers()) {
+            updateCanSeeVanished(player, false);
+        }
+    }
+
+    // Hides or shows all vanished players in the viewer's tab list in one pass.
+    private void updateTabList(Player viewer, boolean canSee) {
+        TabList tabList = viewer.getTabList();
+        for (Player player : getVanishedPlayers()) {
+            if (!player.equals(viewer)) {
+                if (canSee) {
+                    addTabListEntry(tabList, player);
+                } else {
+                    tabList.removeEntry(player.getUniqueId());
+                }
+            }
+        }
+    }
+
+    private List<Player> getVanishedPlayers() {
+        List<Player> players = new ArrayList<>();
+        this.vanishStates.forEach((uuid, vanished) -> {
+            if (vanished) {
+                Sponge.getServer().getPlayer(uuid).ifPresent(players::add);
+            }
+        });
+
+        return players;
+    }
+
+    private boolean canSeeVanished(CommandSource src) {
+        if (src instanceof Player) {
+            return this.canSeeVanished.contains(((Player) src).getUniqueId());
+        }
+
+        return this.permissionService.hasPermission(src, VanishPermissions.VANISH_SEE);
+    }
+
     public boolean isOnline(CommandSource src, User player) {
         if (player.isOnline()) {
             if (isVanished(player)) {
-                return this.permissionService.hasPermission(src, VanishPermissions.VANISH_SEE);
+                return canSeeVanished(src);
             }
 
             return true;
@@ -80,12 +186,26 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
     }
 
     public boolean isVanished(User player) {
+        Boolean vanished = this.vanishStates.get(player.getUniqueId());
+        if (vanished != null) {
+            return vanished;
+        }
+
         return this.storageManager.getUserService()
                 .getOnThread(player.getUniqueId())
                 .flatMap(x -> x.get(VanishKeys.VANISH_STATUS))
                 .orElse(false);
     }
 
+    private void setVanishState(User player, boolean vanished) {
+        if (player.isOnline()) {
+            this.vanishStates.put(player.getUniqueId(), vanished);
+        } else {
+            // Only update the state if it is held, so that offline players are not held forever.
+            this.vanishStates.replace(player.getUniqueId(), vanished);
+        }
+    }
+
     public void vanishPlayer(User player) {
         vanishPlayer(player, false);
     }
@@ -94,6 +214,7 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         this.storageManager.getUserService()
                 .getOrNewOnThread(player.getUniqueId())
                 .set(VanishKeys.VANISH_STATUS, true);
+        setVanishState(player, true);
 
         if (player instanceof Player) {
             if (delay) {
@@ -106,11 +227,7 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
     }
 
     private void vanishPlayerInternal(Player player) {
-        vanishPlayerInternal(player,
-                this.storageManager.getUserService()
-                        .getOrNewOnThread(player.getUniqueId())
-                        .get(VanishKeys.VANISH_STATUS)
-                        .orElse(false));
+        vanishPlayerInternal(player, isVanished(player));
     }
 
     private void vanishPlayerInternal(Player player, boolean vanish) {
@@ -120,9 +237,11 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
             player.offer(Keys.VANISH_PREVENTS_TARGETING, true);
 
             if (this.isAlter) {
-                Sponge.getServer().getOnlinePlayers().stream().filter(x -> !player.equals(x) || !this.permissionService
-                        .hasPermission(x, VanishPermissions.VANISH_SEE))
-                        .forEach(x -> x.getTabList().removeEntry(player.getUniqueId()));
+                for (Player viewer : Sponge.getServer().getOnlinePlayers()) {
+                    if (!player.equals(viewer) && !this.canSeeVanished.contains(viewer.getUniqueId())) {
+                        viewer.getTabList().removeEntry(player.getUniqueId());
+                    }
+                }
             }
         }
     }
@@ -131,22 +250,27 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         this.storageManager.getUserService()
                 .getOrNew(user.getUniqueId())
                 .thenAccept(x -> x.set(VanishKeys.VANISH_STATUS, false));
+        setVanishState(user, false);
         user.offer(Keys.VANISH, false);
         user.offer(Keys.VANISH_IGNORES_COLLISION, false);
         user.offer(Keys.VANISH_PREVENTS_TARGETING, false);
 
         if (this.isAlter && user instanceof Player) {
             Player player = (Player) user;
-            Sponge.getServer().getOnlinePlayers().forEach(x -> {
-                if (!x.getTabList().getEntry(player.getUniqueId()).isPresent()) {
-                    x.getTabList().addEntry(TabListEntry.builder()
-                            .displayName(Text.of(player.getName()))
-                            .profile(player.getProfile())
-                            .gameMode(player.gameMode().get())
-                            .latency(player.getConnection().getLatency())
-                            .list(x.getTabList()).build());
-                }
-            });
+            for (Player viewer : Sponge.getServer().getOnlinePlayers()) {
+                addTabListEntry(viewer.getTabList(), player);
+            }
+        }
+    }
+
+    private void addTabListEntry(TabList tabList, Player player) {
+        if (!tabList.getEntry(player.getUniqueId()).isPresent()) {
+            tabList.addEntry(TabListEntry.builder()
+                    .displayName(Text.of(player.getName()))
+                    .profile(player.getProfile())
+                    .gameMode(player.gameMode().get())
+                    .latency(player.getConnection().getLatency())
+                    .list(tabList).build());
         }
     }
 
@@ -94,6 +94,9 @@ public class CommandControl implements CommandCallable {
     private final CommandModifiersConfig commandModifiersConfig = new CommandModifiersConfig();
 
     private final String command;
+    private final String cooldownOption;
+    private final String warmupOption;
+    private final String costOption;
     private boolean acceptingRegistration = true;
 
     public CommandControl(
@@ -136,6 +139,11 @@ public class CommandControl implements CommandCallable {
         } else {
             this.command = meta.getAliases()[0];
         }
+
+        String optionPrefix = "nucleus." + this.command.replace(" ", ".");
+        this.cooldownOption = optionPrefix + ".cooldown";
+        this.warmupOption = optionPrefix + ".warmup";
+        this.costOption = optionPrefix + ".cost";
         this.isAsync = meta.getCommandAnnotation().async();
 
         // this must be last.
@@ -672,7 +680,7 @@ public class CommandControl implements CommandCallable {
 
     public int getCooldown(Subject subject) {
         return this.serviceCollection.permissionService()
-                .getIntOptionFromSubject(subject, String.format("nucleus.%s.cooldown", this.command.replace(" ", ".")))
+                .getIntOptionFromSubject(subject, this.cooldownOption)
                 .orElseGet(this::getCooldown);
     }
 
@@ -682,7 +690,7 @@ public class CommandControl implements CommandCallable {
 
     public int getWarmup(Subject subject) {
         return this.serviceCollection.permissionService()
-                .getIntOptionFromSubject(subject, String.format("nucleus.%s.warmup", this.command.replace(" ", ".")))
+                .getIntOptionFromSubject(subject, this.warmupOption)
                 .orElseGet(this::getWarmup);
     }
 
@@ -692,7 +700,7 @@ public class CommandControl implements CommandCallable {
 
     public double getCost(Subject subject) {
         return this.serviceCollection.permissionService()
-                .getDoubleOptionFromSubject(subject, String.format("nucleus.%s.cost", this.command.replace(" ", ".")))
+                .getDoubleOptionFromSubject(subject, this.costOption)
                 .orElseGet(this::getCost);
     }
 
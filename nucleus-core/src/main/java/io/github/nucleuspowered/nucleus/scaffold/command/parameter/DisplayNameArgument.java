@@ -4,7 +4,6 @@
  */
 package io.github.nucleuspowered.nucleus.scaffold.command.parameter;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
@@ -187,32 +186,15 @@ public class DisplayNameArgument extends CommandElement {
 
             String parse = toParse.toLowerCase();
             final Predicate<Player> shouldShow = determinePredicate(source);
-            final Predicate<Player> partial = x -> x.getName().toLowerCase().startsWith(parse);
 
             UserStorageService uss = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
-            Sponge.getServer().getOnlinePlayers().stream()
-                    .filter(partial.and(shouldShow))
-                    .forEach(player -> {
-                        if (playerOnly) {
-                            names.add("p:" + player.getName());
-                        } else {
-                            names.add(player.getName());
-                        }
-                    });
-
-            if (!playerOnly) {
-                this.displayNameService
-                        .startsWith(parse)
-                        .entrySet()
-                        .stream()
-                        .map(x ->
-                                Sponge.getServer().getPlayer(x.getKey())
-                                        .filter(shouldShow)
-                                        .map(y -> x.getValue())
-                                        .orElse(ImmutableList.of())
-                        )
-                        .filter(Objects::nonNull)
-                        .forEach(names::addAll);
+            if (playerOnly) {
+                this.displayNameService.startsWithRealName(parse).forEach((uuid, name) ->
+                        Sponge.getServer().getPlayer(uuid).filter(shouldShow).ifPresent(player -> names.add("p:" + name)));
+            } else {
+                // Real names of online players and nicknames.
+                this.displayNameService.startsWith(parse).forEach((uuid, strings) ->
+                        Sponge.getServer().getPlayer(uuid).filter(shouldShow).ifPresent(player -> names.addAll(strings)));
 
                 if (USER_LIMIT > 0 && this.target == Target.USER) {
                     uss.match(parse).stream()
@@ -13,6 +13,7 @@ import io.github.nucleuspowered.nucleus.services.interfaces.ICommandMetadataServ
 import io.github.nucleuspowered.nucleus.services.interfaces.ICompatibilityService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
 import io.github.nucleuspowered.nucleus.services.interfaces.ICooldownService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IDocumentationGenerationService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IEconomyServiceProvider;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
@@ -52,6 +53,8 @@ public interface INucleusServiceCollection {
 
     ICooldownService cooldownService();
 
+    IExpiryService expiryService();
+
     IUserPreferenceService userPreferenceService();
 
     IReloadableService reloadableService();
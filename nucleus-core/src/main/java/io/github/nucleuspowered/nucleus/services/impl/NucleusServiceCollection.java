@@ -14,6 +14,7 @@ import io.github.nucleuspowered.nucleus.services.interfaces.ICommandMetadataServ
 import io.github.nucleuspowered.nucleus.services.interfaces.ICompatibilityService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
 import io.github.nucleuspowered.nucleus.services.interfaces.ICooldownService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IDocumentationGenerationService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IEconomyServiceProvider;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
@@ -58,6 +59,7 @@ public class NucleusServiceCollection implements INucleusServiceCollection {
     private final Provider<IEconomyServiceProvider> economyServiceProvider;
     private final Provider<IWarmupService> warmupService;
     private final Provider<ICooldownService> cooldownService;
+    private final Provider<IExpiryService> expiryService;
     private final Provider<IPermissionService> permissionCheckService;
     private final Provider<IReloadableService> reloadableService;
     private final Provider<IPlayerOnlineService> playerOnlineService;
@@ -96,6 +98,7 @@ public class NucleusServiceCollection implements INucleusServiceCollection {
         this.economyServiceProvider = new LazyLoad<>(this, injector, IEconomyServiceProvider.class);
         this.warmupService = new LazyLoad<>(this, injector, IWarmupService.class);
         this.cooldownService = new LazyLoad<>(this, injector, ICooldownService.class);
+        this.expiryService = new LazyLoad<>(this, injector, IExpiryService.class);
         this.userPreferenceService = new LazyLoad<>(this, injector, IUserPreferenceService.class);
         this.permissionCheckService = new LazyLoad<>(this, injector, IPermissionService.class);
         this.reloadableService = new LazyLoad<>(this, injector, IReloadableService.class);
@@ -149,6 +152,11 @@ public class NucleusServiceCollection implements INucleusServiceCollection {
         return this.cooldownService.get();
     }
 
+    @Override
+    public IExpiryService expiryService() {
+        return this.expiryService.get();
+    }
+
     @Override
     public IUserPreferenceService userPreferenceService() {
         return this.userPreferenceService.get();
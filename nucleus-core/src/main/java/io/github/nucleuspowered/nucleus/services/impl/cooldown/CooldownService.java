@@ -4,82 +4,280 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.cooldown;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.ICooldownService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
 import org.spongepowered.api.util.Identifiable;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
-public class CooldownService implements ICooldownService {
-
-    private final Map<DualKey, Instant> cooldowns = new HashMap<>();
-
-    private Map<DualKey, Instant> cleanUp() {
-        Instant now = Instant.now();
-        Collection<DualKey> keys = this.cooldowns.entrySet()
-                .stream()
-                .filter(x -> x.getValue().isBefore(now))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-        for (DualKey key : keys) {
-            this.cooldowns.remove(key);
+public class CooldownService implements ICooldownService, IReloadableService.DataLocationReloadable {
+
+    private static final String FILE_NAME = "cooldowns.dat";
+    private static final int FILE_VERSION = 1;
+
+    private final Supplier<Path> dataDirectory;
+    private final Logger logger;
+    private final Object saveLock = new Object();
+
+    // Cooldowns loaded from disk that have not been looked at yet, as wall clock expiry times
+    // in milliseconds. A player's are moved into the cache the first time they are needed.
+    private final Map<UUID, Map<String, Long>> persisted = new ConcurrentHashMap<>();
+
+    // All of a player's cooldowns are removed together, once the last of them has expired.
+    // Caffeine tracks these deadlines on a timer wheel, so nothing ever scans every cooldown.
+    // Individual cooldowns that expire before that are removed when they are next looked up.
+    private final Cache<UUID, Cooldowns> cooldowns = Caffeine.newBuilder()
+            .expireAfter(new Expiry<UUID, Cooldowns>() {
+                @Override
+                public long expireAfterCreate(@NonNull UUID key, @NonNull Cooldowns value, long currentTime) {
+                    return value.getNanosUntilLastExpiry(currentTime);
+                }
+
+                @Override
+                public long expireAfterUpdate(@NonNull UUID key, @NonNull Cooldowns value, long currentTime, long currentDuration) {
+                    return value.getNanosUntilLastExpiry(currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(@NonNull UUID key, @NonNull Cooldowns value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    @Inject
+    public CooldownService(INucleusServiceCollection serviceCollection) {
+        this(serviceCollection.dataDir(), serviceCollection.logger());
+        serviceCollection.reloadableService().registerDataFileReloadable(this);
+    }
+
+    public CooldownService(Supplier<Path> dataDirectory, Logger logger) {
+        this.dataDirectory = dataDirectory;
+        this.logger = logger;
+        load();
+    }
+
+    @Nullable
+    private Cooldowns getCooldowns(UUID uuid) {
+        if (this.persisted.isEmpty()) {
+            return this.cooldowns.getIfPresent(uuid);
+        }
+
+        return this.cooldowns.get(uuid, this::restore);
+    }
+
+    @Nullable
+    private Cooldowns restore(UUID uuid) {
+        Map<String, Long> toRestore = this.persisted.remove(uuid);
+        if (toRestore == null) {
+            return null;
         }
 
-        return this.cooldowns;
+        long millis = System.currentTimeMillis();
+        long nanos = System.nanoTime();
+        Cooldowns cooldowns = new Cooldowns();
+        toRestore.forEach((key, expiry) -> {
+            if (expiry > millis) {
+                cooldowns.set(key, nanos + TimeUnit.MILLISECONDS.toNanos(expiry - millis));
+            }
+        });
+
+        return cooldowns.expiries.isEmpty() ? null : cooldowns;
+    }
+
+    private long getRemainingNanos(String key, Identifiable identifiable) {
+        Cooldowns cooldowns = getCooldowns(identifiable.getUniqueId());
+        if (cooldowns == null) {
+            return 0;
+        }
+
+        return cooldowns.getRemainingNanos(key, System.nanoTime());
     }
 
     @Override public boolean hasCooldown(String key, Identifiable identifiable) {
-        return cleanUp().containsKey(new DualKey(key, identifiable.getUniqueId()));
+        return getRemainingNanos(key, identifiable) > 0;
     }
 
     @Override public Optional<Duration> getCooldown(String key, Identifiable identifiable) {
-        return Optional.ofNullable(cleanUp()
-                .get(new DualKey(key, identifiable.getUniqueId())))
-                .map(x -> Duration.between(Instant.now(), x));
+        long remaining = getRemainingNanos(key, identifiable);
+        if (remaining > 0) {
+            return Optional.of(Duration.ofNanos(remaining));
+        }
+
+        return Optional.empty();
     }
 
     @Override public void setCooldown(String key, Identifiable identifiable, Duration cooldownLength) {
-        this.cooldowns.put(new DualKey(key, identifiable.getUniqueId()), Instant.now().plus(cooldownLength));
+        long expiry = System.nanoTime() + cooldownLength.toNanos();
+        // Compute (rather than get and set) so that the expiry of the group is recalculated.
+        this.cooldowns.asMap().compute(identifiable.getUniqueId(), (uuid, existing) -> {
+            Cooldowns cooldowns = existing == null ? restore(uuid) : existing;
+            if (cooldowns == null) {
+                cooldowns = new Cooldowns();
+            }
+
+            cooldowns.set(key, expiry);
+            return cooldowns;
+        });
     }
 
     @Override public void clearCooldown(String key, Identifiable identifiable) {
-        this.cooldowns.remove(new DualKey(key, identifiable.getUniqueId()));
+        Cooldowns cooldowns = getCooldowns(identifiable.getUniqueId());
+        if (cooldowns != null) {
+            cooldowns.clear(key);
+        }
     }
 
-    private static class DualKey {
+    @Override public void preload(UUID uuid) {
+        getCooldowns(uuid);
+    }
+
+    @Override public void load() {
+        this.persisted.clear();
+        Path file = this.dataDirectory.get().resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (inputStream.readInt() != FILE_VERSION) {
+                return;
+            }
+
+            int players = inputStream.readInt();
+            for (int i = 0; i < players; i++) {
+                UUID uuid = new UUID(inputStream.readLong(), inputStream.readLong());
+                int count = inputStream.readInt();
+                Map<String, Long> entries = new HashMap<>();
+                for (int j = 0; j < count; j++) {
+                    String key = inputStream.readUTF();
+                    long expiry = inputStream.readLong();
+                    if (expiry > now) {
+                        entries.put(key, expiry);
+                    }
+                }
+
+                if (!entries.isEmpty()) {
+                    this.persisted.put(uuid, entries);
+                }
+            }
+        } catch (IOException e) {
+            this.logger.error("Could not load the cooldowns from " + file.toString(), e);
+        }
+    }
+
+    @Override public void save() {
+        // Take the snapshot first, only unexpired cooldowns are written.
+        long millis = System.currentTimeMillis();
+        long nanos = System.nanoTime();
+        Map<UUID, Map<String, Long>> snapshot = new HashMap<>();
+        this.persisted.forEach((uuid, entries) -> entries.forEach((key, expiry) -> {
+            if (expiry > millis) {
+                snapshot.computeIfAbsent(uuid, x -> new HashMap<>()).put(key, expiry);
+            }
+        }));
+        this.cooldowns.asMap().forEach((uuid, cooldowns) -> cooldowns.expiries.forEach((key, expiry) -> {
+            long remaining = expiry - nanos;
+            if (remaining > 0) {
+                snapshot.computeIfAbsent(uuid, x -> new HashMap<>()).put(key, millis + TimeUnit.NANOSECONDS.toMillis(remaining));
+            }
+        }));
 
-        private final String key;
-        private final UUID uuid;
+        synchronized (this.saveLock) {
+            Path file = this.dataDirectory.get().resolve(FILE_NAME);
+            Path temporaryFile = file.resolveSibling(FILE_NAME + ".tmp");
+            try {
+                try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    outputStream.writeInt(FILE_VERSION);
+                    outputStream.writeInt(snapshot.size());
+                    for (Map.Entry<UUID, Map<String, Long>> player : snapshot.entrySet()) {
+                        outputStream.writeLong(player.getKey().getMostSignificantBits());
+                        outputStream.writeLong(player.getKey().getLeastSignificantBits());
+                        outputStream.writeInt(player.getValue().size());
+                        for (Map.Entry<String, Long> entry : player.getValue().entrySet()) {
+                            outputStream.writeUTF(entry.getKey());
+                            outputStream.writeLong(entry.getValue());
+                        }
+                    }
+                }
 
-        private DualKey(String key, UUID uuid) {
-            this.key = key;
-            this.uuid = uuid;
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                this.logger.error("Could not save the cooldowns to " + file.toString(), e);
+            }
         }
+    }
+
+    @Override
+    public void onDataFileLocationChange(INucleusServiceCollection serviceCollection) {
+        load();
+    }
 
-        @Override public boolean equals(Object o) {
-            if (this == o) {
-                return true;
+    private static final class Cooldowns {
+
+        private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+        private volatile long lastExpiry = Long.MIN_VALUE;
+
+        private long getRemainingNanos(String key, long now) {
+            Long expiry = this.expiries.get(key);
+            if (expiry == null) {
+                return 0;
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
+
+            long remaining = expiry - now;
+            if (remaining <= 0) {
+                this.expiries.remove(key, expiry);
+                return 0;
             }
-            DualKey dualKey = (DualKey) o;
-            return Objects.equals(key, dualKey.key) &&
-                    Objects.equals(uuid, dualKey.uuid);
+
+            return remaining;
+        }
+
+        private void set(String key, long expiry) {
+            this.expiries.put(key, expiry);
+            if (this.lastExpiry == Long.MIN_VALUE || expiry - this.lastExpiry > 0) {
+                this.lastExpiry = expiry;
+            }
+        }
+
+        private void clear(String key) {
+            this.expiries.remove(key);
         }
 
-        @Override public int hashCode() {
-            return Objects.hash(key, uuid.getLeastSignificantBits(), uuid.getMostSignificantBits());
+        private long getNanosUntilLastExpiry(long now) {
+            return Math.max(0, this.lastExpiry - now);
         }
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.expiry;
+
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IExpiryService;
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Holds the deadlines in a set sorted by time, so that finding the deadlines that have passed
+ * only looks at those, rather than at every online player.
+ */
+@Singleton
+public class ExpiryService implements IExpiryService {
+
+    private final Logger logger;
+    private final Map<String, Consumer<UUID>> handlers = new ConcurrentHashMap<>();
+
+    // Both guarded by this.
+    private final NavigableSet<Entry> deadlines = new TreeSet<>();
+    private final Map<String, Map<UUID, Entry>> entries = new HashMap<>();
+    private long sequence = 0;
+
+    @Inject
+    public ExpiryService(INucleusServiceCollection serviceCollection) {
+        this(serviceCollection.logger());
+    }
+
+    public ExpiryService(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void registerExpiryHandler(String kind, Consumer<UUID> handler) {
+        this.handlers.put(kind, handler);
+    }
+
+    @Override
+    public synchronized void schedule(UUID uuid, String kind, Instant deadline) {
+        Entry entry = new Entry(uuid, kind, deadline.toEpochMilli(), this.sequence++);
+        Entry previous = this.entries.computeIfAbsent(kind, k -> new HashMap<>()).put(uuid, entry);
+        if (previous != null) {
+            this.deadlines.remove(previous);
+        }
+
+        this.deadlines.add(entry);
+    }
+
+    @Override
+    public synchronized void cancel(UUID uuid, String kind) {
+        Map<UUID, Entry> ofKind = this.entries.get(kind);
+        if (ofKind != null) {
+            Entry previous = ofKind.remove(uuid);
+            if (previous != null) {
+                this.deadlines.remove(previous);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void cancelAll(UUID uuid) {
+        for (Map<UUID, Entry> ofKind : this.entries.values()) {
+            Entry previous = ofKind.remove(uuid);
+            if (previous != null) {
+                this.deadlines.remove(previous);
+            }
+        }
+    }
+
+    private synchronized List<Entry> removeExpired(long now) {
+        List<Entry> expired = new ArrayList<>();
+        while (!this.deadlines.isEmpty() && this.deadlines.first().deadline <= now) {
+            Entry entry = this.deadlines.pollFirst();
+            this.entries.get(entry.kind).remove(entry.uuid);
+            expired.add(entry);
+        }
+
+        return expired;
+    }
+
+    @Override
+    public void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    public void expire(long now) {
+        // Handlers are called without holding the lock, as they may set new deadlines.
+        for (Entry entry : removeExpired(now)) {
+            Consumer<UUID> handler = this.handlers.get(entry.kind);
+            if (handler != null) {
+                try {
+                    handler.accept(entry.uuid);
+                } catch (Exception e) {
+                    this.logger.error("Could not process the expiry of " + entry.kind + " for " + entry.uuid, e);
+                }
+            }
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final UUID uuid;
+        private final String kind;
+        private final long deadline;
+
+        // Orders entries with the same deadline.
+        private final long sequence;
+
+        private Entry(UUID uuid, String kind, long deadline, long sequence) {
+            this.uuid = uuid;
+            this.kind = kind;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int result = Long.compare(this.deadline, o.deadline);
+            return result == 0 ? Long.compare(this.sequence, o.sequence) : result;
+        }
+    }
+}
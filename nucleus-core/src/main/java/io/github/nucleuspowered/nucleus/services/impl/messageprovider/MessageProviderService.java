@@ -30,6 +30,7 @@ import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -37,6 +38,7 @@ import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -74,7 +76,7 @@ public class MessageProviderService implements IMessageProviderService, IReloada
     private final PropertiesMessageRepository defaultMessagesResource;
     private final ConfigFileMessagesRepository configFileMessagesRepository;
 
-    private final Map<Locale, PropertiesMessageRepository> messagesMap = new HashMap<>();
+    private final Map<Locale, PropertiesMessageRepository> messagesMap = new ConcurrentHashMap<>();
     private final LoadingCache<UUID, Locale> localeCache = Caffeine.newBuilder()
             .build(new CacheLoader<UUID, Locale>() {
                 @CheckForNull
@@ -204,10 +206,25 @@ public class MessageProviderService implements IMessageProviderService, IReloada
         }
         this.useClientLocalesWhenPossible = coreConfig.isClientLocaleWhenPossible();
         this.defaultLocale = Locale.forLanguageTag(coreConfig.getServerLocale().replace("_", "-"));
+        compileMessages();
         this.serviceCollection.logger().info(getMessageString("language.set", this.defaultLocale.toLanguageTag()));
         reloadMessageFile();
     }
 
+    // Compiles the bundled messages for the known locales in parallel, so that the first use of
+    // a message does not have to. The bundles do not change, so each is only compiled once.
+    private void compileMessages() {
+        Set<PropertiesMessageRepository> repositories = new HashSet<>();
+        repositories.add(getPropertiesMessagesRepository(this.defaultLocale));
+        for (Locale locale : KNOWN_LOCALES) {
+            repositories.add(getPropertiesMessagesRepository(locale));
+        }
+
+        repositories.parallelStream()
+                .filter(x -> !x.isCompiled())
+                .forEach(PropertiesMessageRepository::compile);
+    }
+
     @Override public IMessageRepository getMessagesRepository(Locale locale) {
         if (this.useMessagesFile) {
             return this.configFileMessagesRepository;
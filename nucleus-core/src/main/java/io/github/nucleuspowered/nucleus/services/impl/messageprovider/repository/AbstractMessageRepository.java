@@ -5,85 +5,132 @@
 package io.github.nucleuspowered.nucleus.services.impl.messageprovider.repository;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
 import io.github.nucleuspowered.nucleus.services.interfaces.ITextStyleService;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.TextRepresentable;
-import org.spongepowered.api.text.TextTemplate;
 import org.spongepowered.api.text.translation.Translatable;
 
 import java.text.MessageFormat;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
-abstract class AbstractMessageRepository implements IMessageRepository {
+public abstract class AbstractMessageRepository implements IMessageRepository {
 
     private final static Pattern STRING_REPLACER = Pattern.compile("\\{+[^0-9]+}+");
     private final static Pattern STRING_LOCALISER = Pattern.compile("loc:([a-z\\-.]+)");
+    private final static Pattern ARGUMENT = Pattern.compile("\\{([\\d]+)}");
+    private final static TextRepresentable[] NO_ARGS = new TextRepresentable[0];
 
-    final Map<String, String> cachedStringMessages = new HashMap<>();
-    final Map<String, TextTemplate> cachedMessages = new HashMap<>();
+    // Replaced as a whole when the messages are compiled, so that lookups never see a
+    // partially compiled set. Keys that were not compiled up front are added on first use.
+    private volatile Catalog catalog = new Catalog(false);
     private final IPlayerDisplayNameService playerDisplayNameService;
     private final ITextStyleService textStyleService;
 
-    AbstractMessageRepository(
+    public AbstractMessageRepository(
             ITextStyleService textStyleService,
             IPlayerDisplayNameService playerDisplayNameService) {
         this.textStyleService = textStyleService;
         this.playerDisplayNameService = playerDisplayNameService;
     }
 
-    abstract String getEntry(String key);
+    protected abstract String getEntry(String key);
+
+    /**
+     * Compiles the supplied messages, replacing any messages that have already been compiled.
+     *
+     * @param keys The keys of the messages to compile
+     */
+    public void compile(Collection<String> keys) {
+        Catalog next = new Catalog(true);
+        for (String key : keys) {
+            String entry = getEntry(key);
+            next.messages.put(key, compileMessage(entry));
+            next.strings.put(key, createStringEntry(entry));
+        }
+
+        this.catalog = next;
+    }
 
-    private String getStringEntry(String key) {
-        return STRING_REPLACER.matcher(
-                getEntry(key).replaceAll("'", "''")
-        ).replaceAll("'$0'");
+    /**
+     * Gets whether the messages have been compiled up front.
+     *
+     * @return Whether the messages are compiled
+     */
+    public boolean isCompiled() {
+        return this.catalog.compiled;
     }
 
-    private TextTemplate getTextTemplate(String key) {
-        return this.cachedMessages.computeIfAbsent(key, k -> templateCreator(getEntry(k)));
+    private String createStringEntry(String entry) {
+        return STRING_REPLACER.matcher(entry.replaceAll("'", "''")).replaceAll("'$0'");
+    }
+
+    private CompiledMessage getCompiledMessage(String key) {
+        Map<String, CompiledMessage> messages = this.catalog.messages;
+        CompiledMessage message = messages.get(key);
+        if (message == null) {
+            message = messages.computeIfAbsent(key, k -> compileMessage(getEntry(k)));
+        }
+
+        return message;
     }
 
     @Override
     public Text getText(String key) {
-        return this.cachedMessages.computeIfAbsent(key, this::getTextTemplate).toText();
+        return getCompiledMessage(key).toText();
     }
 
     @Override
     public Text getText(String key, Object[] args) {
-        return getTextMessageWithTextFormat(key,
-                Arrays.stream(args).map(x -> {
-                    if (x instanceof User) {
-                        return this.playerDisplayNameService.getDisplayName(((User) x).getUniqueId());
-                    } else if (x instanceof TextRepresentable) {
-                        return (TextRepresentable) x;
-                    } else if (x instanceof Translatable) {
-                        return Text.of(x);
-                    } else if (x instanceof String) {
-                        String s = (String) x;
-                        Matcher matcher = STRING_LOCALISER.matcher(s);
-                        if (matcher.matches()) {
-                             return getText(matcher.group(1));
-                        }
-
-                        return Text.of(x);
-                    } else {
-                        return Text.of(x.toString());
-                    }
-                }).collect(Collectors.toList()));
+        if (args.length == 0) {
+            return getCompiledMessage(key).apply(NO_ARGS);
+        }
+
+        TextRepresentable[] texts = new TextRepresentable[args.length];
+        for (int i = 0; i < args.length; i++) {
+            // Null arguments are left out of the message.
+            Object x = args[i];
+            if (x == null) {
+                continue;
+            }
+
+            if (x instanceof User) {
+                texts[i] = this.playerDisplayNameService.getDisplayName(((User) x).getUniqueId());
+            } else if (x instanceof TextRepresentable) {
+                texts[i] = (TextRepresentable) x;
+            } else if (x instanceof Translatable) {
+                texts[i] = Text.of(x);
+            } else if (x instanceof String) {
+                String s = (String) x;
+                Matcher matcher = STRING_LOCALISER.matcher(s);
+                if (matcher.matches()) {
+                    texts[i] = getText(matcher.group(1));
+                } else {
+                    texts[i] = Text.of(x);
+                }
+            } else {
+                texts[i] = Text.of(x.toString());
+            }
+        }
+
+        return getCompiledMessage(key).apply(texts);
     }
 
     @Override
     public String getString(String key) {
-        return this.cachedStringMessages.computeIfAbsent(key, this::getStringEntry);
+        Map<String, String> strings = this.catalog.strings;
+        String string = strings.get(key);
+        if (string == null) {
+            string = strings.computeIfAbsent(key, k -> createStringEntry(getEntry(k)));
+        }
+
+        return string;
     }
 
     @Override
@@ -91,30 +138,15 @@ abstract class AbstractMessageRepository implements IMessageRepository {
         return MessageFormat.format(getString(key), args);
     }
 
-    private Text getTextMessageWithTextFormat(String key, List<? extends TextRepresentable> textList) {
-        TextTemplate template = getTextTemplate(key);
-        if (textList.isEmpty()) {
-            return template.toText();
-        }
-
-        Map<String, TextRepresentable> objs = Maps.newHashMap();
-        for (int i = 0; i < textList.size(); i++) {
-            objs.put(String.valueOf(i), textList.get(i));
-        }
-
-        return template.apply(objs).build();
-    }
-
-    final TextTemplate templateCreator(String string) {
-        // regex!
-        Matcher mat = Pattern.compile("\\{([\\d]+)}").matcher(string);
+    final CompiledMessage compileMessage(String string) {
+        Matcher mat = ARGUMENT.matcher(string);
         List<Integer> map = Lists.newArrayList();
 
         while (mat.find()) {
             map.add(Integer.parseInt(mat.group(1)));
         }
 
-        String[] s = string.split("\\{([\\d]+)}");
+        String[] s = ARGUMENT.split(string);
 
         List<Object> objects = Lists.newArrayList();
         Text t = this.textStyleService.oldLegacy(s[0]);
@@ -122,7 +154,7 @@ abstract class AbstractMessageRepository implements IMessageRepository {
         objects.add(t);
         int count = 1;
         for (Integer x : map) {
-            objects.add(TextTemplate.arg(x.toString()).optional().color(tuple.colour()).style(tuple.style()).build());
+            objects.add(new CompiledMessage.Slot(x, tuple.colour(), tuple.style()));
             if (s.length > count) {
                 t = Text.of(tuple.colour(), tuple.style(), this.textStyleService.oldLegacy(s[count]));
                 tuple = this.textStyleService.getLastColourAndStyle(t, null);
@@ -132,7 +164,18 @@ abstract class AbstractMessageRepository implements IMessageRepository {
             count++;
         }
 
-        return TextTemplate.of(objects.toArray(new Object[0]));
+        return new CompiledMessage(objects.toArray());
+    }
+
+    private static final class Catalog {
+
+        private final Map<String, CompiledMessage> messages = new ConcurrentHashMap<>();
+        private final Map<String, String> strings = new ConcurrentHashMap<>();
+        private final boolean compiled;
+
+        private Catalog(boolean compiled) {
+            this.compiled = compiled;
+        }
     }
 
 }
@@ -0,0 +1,84 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.messageprovider.repository;
+
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.TextRepresentable;
+import org.spongepowered.api.text.format.TextColor;
+import org.spongepowered.api.text.format.TextStyle;
+
+/**
+ * A message that has been parsed into the fixed text between its arguments and a slot for each
+ * argument, which carries the colour and style in effect at that point of the message.
+ *
+ * <p>Instances are immutable, so may be shared between threads.</p>
+ */
+final class CompiledMessage {
+
+    // Each part is either a Text or a Slot, in the order they appear in the message.
+    private final Object[] parts;
+
+    // The message without any arguments, with the argument placeholders left in.
+    private final Text text;
+
+    CompiledMessage(Object[] parts) {
+        this.parts = parts;
+        Text.Builder builder = Text.builder();
+        for (Object part : parts) {
+            if (part instanceof Slot) {
+                builder.append(((Slot) part).placeholder);
+            } else {
+                builder.append((Text) part);
+            }
+        }
+
+        this.text = builder.build();
+    }
+
+    Text toText() {
+        return this.text;
+    }
+
+    /**
+     * Creates the message with the supplied arguments. Slots without an argument are left out.
+     *
+     * @param args The arguments, by index
+     * @return The {@link Text}
+     */
+    Text apply(TextRepresentable[] args) {
+        if (args.length == 0) {
+            return this.text;
+        }
+
+        Text.Builder builder = Text.builder();
+        for (Object part : this.parts) {
+            if (part instanceof Slot) {
+                Slot slot = (Slot) part;
+                if (slot.index < args.length && args[slot.index] != null) {
+                    builder.append(Text.builder().color(slot.colour).style(slot.style).append(args[slot.index].toText()).build());
+                }
+            } else {
+                builder.append((Text) part);
+            }
+        }
+
+        return builder.build();
+    }
+
+    static final class Slot {
+
+        private final int index;
+        private final TextColor colour;
+        private final TextStyle style;
+        private final Text placeholder;
+
+        Slot(int index, TextColor colour, TextStyle style) {
+            this.index = index;
+            this.colour = colour;
+            this.style = style;
+            this.placeholder = Text.builder("{" + index + "}").color(colour).style(style).build();
+        }
+    }
+}
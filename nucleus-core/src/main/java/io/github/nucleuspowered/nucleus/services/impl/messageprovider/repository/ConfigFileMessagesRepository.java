@@ -16,10 +16,10 @@ import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,8 +34,8 @@ public class ConfigFileMessagesRepository extends AbstractMessageRepository impl
     private final Path file;
     private final Logger logger;
     private final Supplier<PropertiesMessageRepository> messageRepositorySupplier;
-    private final Map<String, String> entryCache = new HashMap<>();
-    private CommentedConfigurationNode node = CommentedConfigurationNode.root();
+    private final Map<String, String> entryCache = new ConcurrentHashMap<>();
+    private volatile CommentedConfigurationNode node = CommentedConfigurationNode.root();
 
     public ConfigFileMessagesRepository(
             ITextStyleService textStyleService,
@@ -59,9 +59,10 @@ public class ConfigFileMessagesRepository extends AbstractMessageRepository impl
     }
 
     public void invalidateIfNecessary(boolean firstLoad) {
-        this.cachedMessages.clear();
-        this.cachedStringMessages.clear();
         this.load(firstLoad);
+
+        // Every message in the file has a default, so the defaults give us every key.
+        this.compile(this.messageRepositorySupplier.get().getKeys());
     }
 
     @Override
@@ -70,16 +71,15 @@ public class ConfigFileMessagesRepository extends AbstractMessageRepository impl
     }
 
     @Override
-    String getEntry(String key) {
-        if (!this.entryCache.containsKey(key)) {
-            String val = this.node.getNode((Object[]) key.split("\\.")).getString();
+    protected String getEntry(String key) {
+        return this.entryCache.computeIfAbsent(key, k -> {
+            String val = this.node.getNode((Object[]) k.split("\\.")).getString();
             if (val == null) {
                 // fallback if it is isn't specified.
-                val = this.messageRepositorySupplier.get().getEntry(key);
+                val = this.messageRepositorySupplier.get().getEntry(k);
             }
-            this.entryCache.put(key, val);
-        }
-        return this.entryCache.get(key);
+            return val;
+        });
     }
 
     protected CommentedConfigurationNode getDefaults() {
@@ -25,13 +25,20 @@ public class PropertiesMessageRepository extends AbstractMessageRepository imple
         return this.resource.keySet();
     }
 
+    /**
+     * Compiles every message in the bundle.
+     */
+    public void compile() {
+        compile(getKeys());
+    }
+
     @Override
     public boolean hasEntry(String key) {
         return this.resource.containsKey(key);
     }
 
     @Override
-    String getEntry(String key) {
+    protected String getEntry(String key) {
         if (this.resource.containsKey(key)) {
             return this.resource.getString(key);
         }
@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.permission;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -36,8 +38,10 @@ import org.spongepowered.api.text.Text;
 import org.spongepowered.api.util.Identifiable;
 import org.spongepowered.api.util.Tristate;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -47,6 +51,8 @@ import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -65,10 +71,25 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     private final Set<String> failedChecks = new HashSet<>();
     private final Map<String, IPermissionService.Metadata> metadataMap = new HashMap<>();
     private final Map<String, IPermissionService.Metadata> prefixMetadataMap = new HashMap<>();
+    private final PermissionTrie<IPermissionService.Metadata> prefixMetadataTrie = new PermissionTrie<>();
+    private final Map<SuggestedLevel, Map<String, IPermissionService.Metadata>> metadataByLevel = new EnumMap<>(SuggestedLevel.class);
 
     private final Map<UUID, Map<String, Context>> standardContexts = new ConcurrentHashMap<>();
     private final Map<SuggestedLevel, Set<SubjectReference>> appliedRoles = new HashMap<>();
 
+    // Results of permission and option checks, by subject and then by the active contexts at the
+    // time of the check. Invalidation removes the entries, so a check that is running at the same
+    // time puts its result into entries that are no longer in the cache. Offline users may be
+    // checked too, so subjects that are not checked for a while are dropped, as are context sets
+    // beyond the most recent few for each subject.
+    private static final int CONTEXT_SETS_PER_SUBJECT = 16;
+    private final Cache<UUID, Cache<Set<Context>, CachedResults>> cache = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .maximumSize(2000)
+            .build();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     @Inject
     public NucleusPermissionService(
             INucleusServiceCollection serviceCollection,
@@ -88,14 +109,11 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override
     public void assignRoleToGroup(SuggestedLevel role, Subject subject) {
-        for (Map.Entry<String, IPermissionService.Metadata> permission : this.metadataMap.entrySet()) {
-            if (permission.getValue().getSuggestedLevel() == role) {
-                subject.getTransientSubjectData().setPermission(ImmutableSet.of(), permission.getValue().getPermission(), Tristate.TRUE);
-            }
-        }
-        for (Map.Entry<String, IPermissionService.Metadata> permission : this.prefixMetadataMap.entrySet()) {
-            if (permission.getValue().getSuggestedLevel() == role) {
-                subject.getTransientSubjectData().setPermission(ImmutableSet.of(), permission.getValue().getPermission(), Tristate.TRUE);
+        invalidateCache();
+        Map<String, IPermissionService.Metadata> permissions = this.metadataByLevel.get(role);
+        if (permissions != null) {
+            for (IPermissionService.Metadata permission : permissions.values()) {
+                subject.getTransientSubjectData().setPermission(ImmutableSet.of(), permission.getPermission(), Tristate.TRUE);
             }
         }
     }
@@ -115,14 +133,49 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
         // don't know if there is a better way to do this.
         this.isOpOnly = service.getPlugin().getId().equals("sponge");
+        invalidateCache();
     }
 
     @Override public boolean hasPermission(Subject permissionSubject, String permission) {
-        return hasPermission(permissionSubject, permission, this.useRole);
+        Set<Context> contexts = permissionSubject.getActiveContexts();
+        CachedResults results = getCachedResults(permissionSubject, contexts);
+        if (results == null) {
+            return hasPermission(permissionSubject, contexts, permission, this.useRole);
+        }
+
+        Boolean result = results.permissions.get(permission);
+        if (result != null) {
+            this.cacheHits.increment();
+            return result;
+        }
+
+        this.cacheMisses.increment();
+        result = hasPermission(permissionSubject, contexts, permission, this.useRole);
+        results.permissions.put(permission, result);
+        return result;
     }
 
     @Override public Tristate hasPermissionTristate(Subject subject, String permission) {
-        return hasPermissionTristate(subject, permission, this.useRole);
+        if (!this.useRole || !permission.startsWith("nucleus.")) {
+            return Tristate.UNDEFINED;
+        }
+
+        Set<Context> contexts = subject.getActiveContexts();
+        CachedResults results = getCachedResults(subject, contexts);
+        if (results == null) {
+            return hasPermissionTristate(subject, contexts, permission, this.useRole);
+        }
+
+        Tristate result = results.tristates.get(permission);
+        if (result != null) {
+            this.cacheHits.increment();
+            return result;
+        }
+
+        this.cacheMisses.increment();
+        result = hasPermissionTristate(subject, contexts, permission, this.useRole);
+        results.tristates.put(permission, result);
+        return result;
     }
 
     @Override public boolean hasPermissionWithConsoleOverride(Subject subject, String permission, boolean permissionIfConsoleAndOverridden) {
@@ -141,6 +194,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         CoreConfig coreConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class);
         this.useRole = coreConfig.isUseParentPerms();
         this.consoleOverride = coreConfig.isConsoleOverride();
+        invalidateCache();
     }
 
     @Override public void registerDescriptions() {
@@ -162,11 +216,22 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override public void register(String permission, PermissionMetadata metadata, String moduleid) {
         NucleusPermissionService.Metadata m = new NucleusPermissionService.Metadata(permission, metadata, moduleid);
+        String key = permission.toLowerCase();
+        IPermissionService.Metadata previous;
         if (metadata.isPrefix()) {
-            this.prefixMetadataMap.put(permission.toLowerCase(), m);
+            previous = this.prefixMetadataMap.put(key, m);
+            this.prefixMetadataTrie.put(key, m);
         } else {
-            this.metadataMap.put(permission.toLowerCase(), m);
+            previous = this.metadataMap.put(key, m);
+        }
+
+        // A permission and a prefix may share a node, so keep them apart here.
+        String levelKey = metadata.isPrefix() ? key + "." : key;
+        if (previous != null) {
+            this.metadataByLevel.get(previous.getSuggestedLevel()).remove(levelKey);
         }
+
+        this.metadataByLevel.computeIfAbsent(m.getSuggestedLevel(), k -> new LinkedHashMap<>()).put(levelKey, m);
     }
 
     @Override public CommandElement createOtherUserPermissionElement(String permission) {
@@ -223,17 +288,24 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     }
 
     @Override public Optional<String> getOptionFromSubject(Subject player, String... options) {
+        Set<Context> contexts = player.getActiveContexts();
+        CachedResults results = getCachedResults(player, contexts);
         for (String option : options) {
             String o = option.toLowerCase();
-
-            // Option for context.
-            Optional<String> os = player.getOption(player.getActiveContexts(), o);
-            if (os.isPresent()) {
-                return os.map(r -> r.isEmpty() ? null : r);
+            Optional<String> os;
+            if (results == null) {
+                os = getOptionFromSubject(player, contexts, o);
+            } else {
+                os = results.options.get(o);
+                if (os == null) {
+                    this.cacheMisses.increment();
+                    os = getOptionFromSubject(player, contexts, o);
+                    results.options.put(o, os);
+                } else {
+                    this.cacheHits.increment();
+                }
             }
 
-            // General option
-            os = player.getOption(o);
             if (os.isPresent()) {
                 return os.map(r -> r.isEmpty() ? null : r);
             }
@@ -242,6 +314,17 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         return Optional.empty();
     }
 
+    private Optional<String> getOptionFromSubject(Subject player, Set<Context> contexts, String option) {
+        // Option for context.
+        Optional<String> os = player.getOption(contexts, option);
+        if (os.isPresent()) {
+            return os;
+        }
+
+        // General option
+        return player.getOption(option);
+    }
+
     @Override public PermissionMessageChannel permissionMessageChannel(String permission) {
         return new PermissionMessageChannel(this, permission);
     }
@@ -250,37 +333,72 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         return ImmutableList.copyOf(this.metadataMap.values());
     }
 
-    private boolean hasPermission(Subject subject, String permission, boolean checkRole) {
-        Tristate tristate = hasPermissionTristate(subject, permission, checkRole);
+    @Override public void invalidateCache() {
+        this.cache.invalidateAll();
+        this.serviceCollection.textTemplateFactory().invalidateRenderCache();
+    }
+
+    @Override public void invalidateCache(UUID uuid) {
+        this.cache.invalidate(uuid);
+        this.serviceCollection.textTemplateFactory().invalidateRenderCache(uuid);
+        this.serviceCollection.playerDisplayNameService().invalidateDisplayName(uuid);
+    }
+
+    @Override public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    @Override public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
+    @Nullable
+    private CachedResults getCachedResults(Subject subject, Set<Context> contexts) {
+        if (!(subject instanceof Identifiable)) {
+            return null;
+        }
+
+        Cache<Set<Context>, CachedResults> byContext = this.cache.get(((Identifiable) subject).getUniqueId(),
+                k -> Caffeine.newBuilder().maximumSize(CONTEXT_SETS_PER_SUBJECT).build());
+        CachedResults results = byContext.getIfPresent(contexts);
+        if (results == null) {
+            // The permission plugin may hand us a mutable set.
+            results = byContext.get(ImmutableSet.copyOf(contexts), k -> new CachedResults());
+        }
+
+        return results;
+    }
+
+    private boolean hasPermission(Subject subject, Set<Context> contexts, String permission, boolean checkRole) {
+        Tristate tristate = hasPermissionTristate(subject, contexts, permission, checkRole);
         if (tristate == Tristate.UNDEFINED) {
-            return subject.hasPermission(permission); // guarantees the correct response.
+            return subject.hasPermission(contexts, permission); // guarantees the correct response.
         }
 
         return tristate.asBoolean();
     }
 
-    private Tristate hasPermissionTristate(Subject subject, String permission, boolean checkRole) {
+    private Tristate hasPermissionTristate(Subject subject, Set<Context> contexts, String permission, boolean checkRole) {
         if (checkRole && permission.startsWith("nucleus.")) {
-            Tristate tristate = subject.getPermissionValue(subject.getActiveContexts(), permission);
+            Tristate tristate = subject.getPermissionValue(contexts, permission);
             if (tristate == Tristate.UNDEFINED) {
                 @Nullable IPermissionService.Metadata result = this.metadataMap.get(permission);
                 if (result != null) { // check the "parent" perm
                     String perm = result.getSuggestedLevel().getPermission();
                     if (perm == null) {
-                        return subject.getPermissionValue(subject.getActiveContexts(), permission);
+                        return subject.getPermissionValue(contexts, permission);
                     } else {
-                        return subject.getPermissionValue(subject.getActiveContexts(), perm);
+                        return subject.getPermissionValue(contexts, perm);
                     }
                 }
 
-                for (Map.Entry<String, IPermissionService.Metadata> entry : this.prefixMetadataMap.entrySet()) {
-                    if (permission.startsWith(entry.getKey())) {
-                        String perm = entry.getValue().getSuggestedLevel().getPermission();
-                        if (perm == null) {
-                            return subject.getPermissionValue(subject.getActiveContexts(), permission);
-                        } else {
-                            return subject.getPermissionValue(subject.getActiveContexts(), perm);
-                        }
+                result = this.prefixMetadataTrie.getLongestPrefix(permission);
+                if (result != null) {
+                    String perm = result.getSuggestedLevel().getPermission();
+                    if (perm == null) {
+                        return subject.getPermissionValue(contexts, permission);
+                    } else {
+                        return subject.getPermissionValue(contexts, perm);
                     }
                 }
 
@@ -330,6 +448,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     }
 
     private void setContext(UUID uuid, Context context) {
+        invalidateCache(uuid);
         this.standardContexts.computeIfAbsent(uuid, k -> new HashMap<>()).put(context.getKey().toLowerCase(), context);
     }
 
@@ -337,6 +456,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     public NoExceptionAutoClosable setContextTemporarily(Subject subject, Context context) {
         if (subject instanceof Identifiable) {
             UUID uuid = ((Identifiable) subject).getUniqueId();
+            invalidateCache(uuid);
             Context old = this.standardContexts.computeIfAbsent(uuid, k -> new HashMap<>()).put(context.getKey().toLowerCase(), context);
             return () -> {
                 removeContext(uuid, context.getKey().toLowerCase());
@@ -354,11 +474,14 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         if (contexts != null && !contexts.isEmpty()) {
             contexts.remove(key.toLowerCase());
         }
+
+        invalidateCache(subject);
     }
 
     @Override
     public void removePlayerContexts(UUID uuid) {
         this.standardContexts.remove(uuid);
+        invalidateCache(uuid);
     }
 
     @Override
@@ -391,6 +514,14 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         return 1;
     }
 
+    private static final class CachedResults {
+
+        private final Map<String, Boolean> permissions = new ConcurrentHashMap<>();
+        private final Map<String, Tristate> tristates = new ConcurrentHashMap<>();
+        private final Map<String, Optional<String>> options = new ConcurrentHashMap<>();
+
+    }
+
     public static class Metadata implements IPermissionService.Metadata {
 
         private final String description;
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.permission;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Maps permission prefixes to values, keyed on the dot separated segments of the permission, so
+ * that finding the prefix of a permission only walks as many nodes as the permission has segments.
+ *
+ * <p>A prefix matches a permission if the permission is the prefix, or starts with the prefix
+ * followed by a dot. This class is not thread safe for writes.</p>
+ *
+ * @param <T> The type of value
+ */
+public final class PermissionTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Associates the value with the supplied prefix.
+     *
+     * @param prefix The prefix
+     * @param value The value
+     */
+    public void put(String prefix, T value) {
+        Node<T> node = this.root;
+        int start = 0;
+        int end;
+        do {
+            end = prefix.indexOf('.', start);
+            String segment = end == -1 ? prefix.substring(start) : prefix.substring(start, end);
+            node = node.children.computeIfAbsent(segment, k -> new Node<>());
+            start = end + 1;
+        } while (end != -1);
+
+        node.value = value;
+    }
+
+    /**
+     * Gets the value for the longest registered prefix of the supplied permission.
+     *
+     * @param permission The permission
+     * @return The value, or null if no prefix matches
+     */
+    @Nullable
+    public T getLongestPrefix(String permission) {
+        Node<T> node = this.root;
+        T result = null;
+        int start = 0;
+        int end;
+        do {
+            end = permission.indexOf('.', start);
+            node = node.children.get(end == -1 ? permission.substring(start) : permission.substring(start, end));
+            if (node == null) {
+                return result;
+            }
+
+            if (node.value != null) {
+                result = node.value;
+            }
+
+            start = end + 1;
+        } while (end != -1);
+
+        return result;
+    }
+
+    private static final class Node<T> {
+
+        private final Map<String, Node<T>> children = new HashMap<>();
+        @Nullable private T value;
+
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.placeholder;
+
+import com.google.common.collect.ImmutableList;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.TextRepresentable;
+import org.spongepowered.api.text.placeholder.PlaceholderContext;
+import org.spongepowered.api.text.placeholder.PlaceholderParser;
+
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+/**
+ * A placeholder token that has been resolved to its parser, argument and modifiers, so that
+ * only the subject needs to be supplied when it is displayed.
+ */
+public final class CompiledPlaceholder {
+
+    private final PlaceholderParser parser;
+    @Nullable private final String argument;
+    private final List<Function<Text, Text>> modifiers;
+    private final boolean requiresSource;
+    private final boolean sourceOnly;
+    private final boolean cacheable;
+
+    CompiledPlaceholder(
+            PlaceholderParser parser,
+            @Nullable String argument,
+            List<Function<Text, Text>> modifiers,
+            boolean requiresSource,
+            boolean sourceOnly,
+            boolean cacheable) {
+        this.parser = parser;
+        this.argument = argument;
+        this.modifiers = ImmutableList.copyOf(modifiers);
+        this.requiresSource = requiresSource;
+        this.sourceOnly = sourceOnly;
+        this.cacheable = cacheable;
+    }
+
+    public PlaceholderParser getParser() {
+        return this.parser;
+    }
+
+    /**
+     * Gets whether the text of this placeholder only depends on the source it is displayed
+     * for, such as names and options, so may be reused for the same source for a short time.
+     *
+     * @return true if so
+     */
+    public boolean isSourceOnly() {
+        return this.sourceOnly;
+    }
+
+    /**
+     * Creates the placeholder text for the supplied source.
+     *
+     * @param commandSource The source, if any
+     * @return The {@link TextRepresentable}
+     */
+    public TextRepresentable bind(@Nullable CommandSource commandSource) {
+        if (this.requiresSource && commandSource == null) {
+            return Text.EMPTY;
+        }
+
+        PlaceholderContext context = PlaceholderContext.builder()
+                .setAssociatedObject(commandSource)
+                .setArgumentString(this.argument)
+                .build();
+        return new NucleusPlaceholderText(context, this.parser, this.modifiers);
+    }
+
+    boolean isCacheable() {
+        return this.cacheable;
+    }
+
+}
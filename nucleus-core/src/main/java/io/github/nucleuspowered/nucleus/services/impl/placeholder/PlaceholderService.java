@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.placeholder;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.github.nucleuspowered.nucleus.Util;
@@ -32,6 +34,7 @@ import org.spongepowered.api.world.World;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -52,8 +55,14 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
     private final PlaceholderParser optionParser;
     private final PlaceholderParser emptyParser;
     private final Map<String, PlaceholderMetadata> parsers = new HashMap<>();
+    private final Set<PlaceholderParser> sourceOnlyParsers = new HashSet<>();
     private final PluginContainer pluginContainer;
 
+    // Tokens are compiled once, then only bound to a source when they are displayed.
+    private final Cache<String, CompiledPlaceholder> compiled = Caffeine.newBuilder()
+            .maximumSize(2000)
+            .build();
+
     static {
         SEPARATOR = buildModifiers();
     }
@@ -85,12 +94,13 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
                 "Nucleus Name placeholder");
         registerToken("name", normalName);
         registerToken("playername", normalName);
-        registerToken("subject", new NamePlaceholder(
+        NamePlaceholder subject = new NamePlaceholder(
                 serviceCollection.playerDisplayNameService(),
                 IPlayerDisplayNameService::addCommandToName,
                 "nucleus:subject",
                 "Nucleus subject (including console) placeholder",
-                true));
+                true);
+        registerToken("subject", subject);
 
         NamePlaceholder displayName = new NamePlaceholder(
                 serviceCollection.playerDisplayNameService(),
@@ -103,8 +113,19 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
 
         IPermissionService permissionService = serviceCollection.permissionService();
         registerToken("option", this.optionParser);
-        registerToken("prefix", new NamedOptionPlaceholder(permissionService, "prefix"));
-        registerToken("suffix", new NamedOptionPlaceholder(permissionService, "suffix"));
+        PlaceholderParser prefix = new NamedOptionPlaceholder(permissionService, "prefix");
+        PlaceholderParser suffix = new NamedOptionPlaceholder(permissionService, "suffix");
+        registerToken("prefix", prefix);
+        registerToken("suffix", suffix);
+
+        // These only depend on who they are displayed for, other parsers may change at any time.
+        this.sourceOnlyParsers.add(normalName);
+        this.sourceOnlyParsers.add(subject);
+        this.sourceOnlyParsers.add(displayName);
+        this.sourceOnlyParsers.add(this.optionParser);
+        this.sourceOnlyParsers.add(prefix);
+        this.sourceOnlyParsers.add(suffix);
+        this.sourceOnlyParsers.add(this.emptyParser);
 
         registerToken("maxplayers", PlaceholderParser.builder()
                 .plugin(this.pluginContainer)
@@ -158,6 +179,23 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
 
     @Override
     public TextRepresentable parse(@Nullable CommandSource commandSource, String input) {
+        return compile(input).bind(commandSource);
+    }
+
+    @Override
+    public CompiledPlaceholder compile(String input) {
+        CompiledPlaceholder placeholder = this.compiled.getIfPresent(input);
+        if (placeholder == null) {
+            placeholder = compileToken(input);
+            if (placeholder.isCacheable()) {
+                this.compiled.put(input, placeholder);
+            }
+        }
+
+        return placeholder;
+    }
+
+    private CompiledPlaceholder compileToken(String input) {
         String token = input.toLowerCase().trim().replace("{{", "").replace("}}", "");
         final Matcher m = SUFFIX_PATTERN.matcher(token);
         final List<Function<Text, Text>> modifiersCollection;
@@ -175,27 +213,20 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
             modifiersCollection = ImmutableList.of();
         }
 
-        final PlaceholderParser parser;
-        final PlaceholderContext context;
         if (token.startsWith("o:")) {
-            if (commandSource == null) {
-                return Text.EMPTY;
-            }
             // option
-            parser = this.optionParser;
-            context = contextForSubjectAndOption(commandSource, token.substring(2));
-        } else {
-            final String[] s = token.split("\\|", 2);
-            final String tokenIn = s[0].toLowerCase();
-            final String arg = s.length == 2 ? s[1] : null;
-            context = PlaceholderContext.builder()
-                    .setAssociatedObject(commandSource)
-                    .setArgumentString(arg)
-                    .build();
-            parser = getParser(tokenIn).orElse(this.emptyParser);
+            return new CompiledPlaceholder(this.optionParser, token.substring(2), modifiersCollection, true, true, true);
         }
 
-        return new NucleusPlaceholderText(context, parser, modifiersCollection);
+        final String[] s = token.split("\\|", 2);
+        final String tokenIn = s[0].toLowerCase();
+        final String arg = s.length == 2 ? s[1] : null;
+        final Optional<PlaceholderParser> parser = getParser(tokenIn);
+
+        // Parsers from the registry may not have been registered yet, so don't remember that they are missing.
+        final PlaceholderParser resolved = parser.orElse(this.emptyParser);
+        return new CompiledPlaceholder(resolved, arg, modifiersCollection, false, this.sourceOnlyParsers.contains(resolved),
+                parser.isPresent() || !tokenIn.contains(":"));
     }
 
     @Override
@@ -212,6 +243,7 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
         String token = tokenName.toLowerCase();
         if (!this.parsers.containsKey(token)) {
             this.parsers.put(token, new PlaceholderMetadata(token, parser, document));
+            this.compiled.invalidateAll();
         } else {
             throw new IllegalStateException("Token " + tokenName.toLowerCase() + " has already been registered.");
         }
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.playername;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Indexes a name for each player, such as their real name or nickname, by the lower case name,
+ * so that the players whose name starts with some text can be found without checking every name.
+ *
+ * <p>Names are held in a sorted map, so a prefix query is a seek to the first name that could
+ * match followed by a walk over the names that do. Reads may happen on any thread and see the
+ * index as it is at that moment. Updates for the same player are serialised.</p>
+ */
+public final class NamePrefixIndex {
+
+    // Sorts before any other character, so that all the entries for a name are together and
+    // are found by a prefix query for that name.
+    private static final char SEPARATOR = '\u0000';
+
+    // lower case name, separator, UUID to the entry
+    private final NavigableMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+
+    // player to the key of their entry in the name map
+    private final Map<UUID, String> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the name for the player, replacing any previous name.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param name The name
+     */
+    public void put(UUID uuid, String name) {
+        String key = name.toLowerCase() + SEPARATOR + uuid.toString();
+        this.keys.compute(uuid, (k, previous) -> {
+            if (previous != null) {
+                this.byName.remove(previous);
+            }
+
+            this.byName.put(key, new Entry(uuid, name));
+            return key;
+        });
+    }
+
+    /**
+     * Removes the name for the player.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void remove(UUID uuid) {
+        this.keys.computeIfPresent(uuid, (k, previous) -> {
+            this.byName.remove(previous);
+            return null;
+        });
+    }
+
+    public boolean contains(UUID uuid) {
+        return this.keys.containsKey(uuid);
+    }
+
+    /**
+     * Gets a player with the supplied name, ignoring case.
+     *
+     * @param name The name
+     * @return The {@link UUID} of the player, if any
+     */
+    public Optional<UUID> get(String name) {
+        Map.Entry<String, Entry> entry = this.byName.ceilingEntry(name.toLowerCase() + SEPARATOR);
+        if (entry != null && entry.getKey().startsWith(name.toLowerCase() + SEPARATOR)) {
+            return Optional.of(entry.getValue().uuid);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the players whose name starts with the supplied text, ignoring case, in name order.
+     *
+     * @param prefix The start of the name
+     * @return The {@link UUID}s of the players, mapped to their names
+     */
+    public Map<UUID, String> startsWith(String prefix) {
+        String lowerCase = prefix.toLowerCase();
+        Map<UUID, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : this.byName.tailMap(lowerCase).entrySet()) {
+            if (!entry.getKey().startsWith(lowerCase)) {
+                break;
+            }
+
+            result.put(entry.getValue().uuid, entry.getValue().name);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets all the names in the index.
+     *
+     * @return The {@link UUID}s of the players, mapped to their names
+     */
+    public Map<UUID, String> getAll() {
+        return startsWith("");
+    }
+
+    private static final class Entry {
+
+        private final UUID uuid;
+        private final String name;
+
+        private Entry(UUID uuid, String name) {
+            this.uuid = uuid;
+            this.name = name;
+        }
+    }
+}
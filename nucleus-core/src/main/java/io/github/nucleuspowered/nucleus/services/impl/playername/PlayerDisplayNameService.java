@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.playername;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Constants;
 import io.github.nucleuspowered.nucleus.Util;
@@ -34,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.inject.Inject;
@@ -52,6 +55,16 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
 
     private String commandNameOnClick = null;
 
+    // Fully styled display names. Name colours and styles may depend on contexts, such as the
+    // world the player is in, so entries are also only kept for a short time.
+    private final Cache<UUID, Text> displayNames = Caffeine.newBuilder()
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .maximumSize(5000)
+            .build();
+
+    // Real names of the online players.
+    private final NamePrefixIndex onlineNames = new NamePrefixIndex();
+
     @Inject
     public PlayerDisplayNameService(INucleusServiceCollection serviceCollection) {
         this.messageProviderService = serviceCollection.messageProvider();
@@ -63,6 +76,7 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
     @Override
     public void provideDisplayNameResolver(DisplayNameResolver resolver) {
         this.resolvers.add(resolver);
+        invalidateDisplayNames();
     }
 
     @Override
@@ -89,9 +103,7 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
 
     @Override public Map<UUID, List<String>> startsWith(String displayName) {
         Map<UUID, List<String>> uuids = new HashMap<>();
-        Sponge.getServer().getOnlinePlayers().stream()
-            .filter(x -> x.getName().toLowerCase().startsWith(displayName.toLowerCase()))
-            .forEach(x -> uuids.put(x.getUniqueId(), Lists.newArrayList(x.getName())));
+        this.onlineNames.startsWith(displayName).forEach((uuid, name) -> uuids.put(uuid, Lists.newArrayList(name)));
 
         for (DisplayNameQuery query : this.queries) {
             query.startsWith(displayName).forEach(
@@ -102,6 +114,10 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
         return uuids;
     }
 
+    @Override public Map<UUID, String> startsWithRealName(String name) {
+        return this.onlineNames.startsWith(name);
+    }
+
     @Override
     public Optional<User> getUser(Text displayName) {
         return this.getUser(displayName.toPlain());
@@ -109,10 +125,36 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
 
     @Override
     public Text getDisplayName(final UUID playerUUID) {
-        final Text.Builder builder;
         if (playerUUID == Util.CONSOLE_FAKE_UUID) {
             return this.getName(Sponge.getServer().getConsole());
         }
+
+        // Computed in the cache, so an invalidation while it is created is not lost.
+        return this.displayNames.get(playerUUID, this::createDisplayName);
+    }
+
+    @Override
+    public void invalidateDisplayName(UUID playerUUID) {
+        this.displayNames.invalidate(playerUUID);
+    }
+
+    @Override
+    public void invalidateDisplayNames() {
+        this.displayNames.invalidateAll();
+    }
+
+    @Override
+    public void addOnlinePlayer(UUID playerUUID, String name) {
+        this.onlineNames.put(playerUUID, name);
+    }
+
+    @Override
+    public void removeOnlinePlayer(UUID playerUUID) {
+        this.onlineNames.remove(playerUUID);
+    }
+
+    private Text createDisplayName(final UUID playerUUID) {
+        final Text.Builder builder;
         User user = Sponge.getServiceManager()
                     .provideUnchecked(UserStorageService.class)
                     .get(playerUUID)
@@ -200,6 +242,7 @@ public class PlayerDisplayNameService implements IPlayerDisplayNameService, IRel
 
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
+        invalidateDisplayNames();
         this.commandNameOnClick = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getCommandOnNameClick();
         if (this.commandNameOnClick == null || this.commandNameOnClick.isEmpty()) {
             return;
@@ -4,8 +4,10 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage;
 
-import com.google.gson.JsonObject;
 import io.github.nucleuspowered.nucleus.guice.DataDirectory;
+import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
+import io.github.nucleuspowered.nucleus.modules.core.config.StorageConfig;
+import io.github.nucleuspowered.nucleus.modules.core.config.WriteBehindConfig;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.IConfigurateBackedDataTranslator;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.GeneralDataObject;
@@ -17,6 +19,7 @@ import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modula
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.standard.IKitDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.standard.KitDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.FlatFileStorageRepositoryFactory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.H2StorageRepositoryFactory;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.registry.IStorageRepositoryFactoryRegistryModule;
@@ -28,16 +31,20 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
 import io.github.nucleuspowered.storage.services.IStorageService;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.SimpleConfigurationNode;
 import org.slf4j.Logger;
 import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
 
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
@@ -48,20 +55,28 @@ import javax.inject.Singleton;
 public final class StorageManager implements IStorageManager, IReloadableService.Reloadable {
 
     private final FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory;
+    private final H2StorageRepositoryFactory h2StorageRepositoryFactory;
+    private final Logger logger;
     private final IConfigurateHelper configurateHelper;
     private final IStorageService.SingleCached<IGeneralDataObject> generalService;
     private final UserService userService;
     private final WorldService worldService;
     private final IStorageService.SingleCached<IKitDataObject> kitsService;
+    private final PluginContainer pluginContainer;
+    @Nullable private Task writeBehindTask = null;
+    @Nullable private IStorageRepositoryFactory<ConfigurationNode> repositoryFactory = null;
 
     @Inject
     public StorageManager(@DataDirectory Supplier<Path> dataDirectory,
             Logger logger,
             IConfigurateHelper configurateHelper,
             PluginContainer pluginContainer) {
-        this.flatFileStorageRepositoryFactory = new FlatFileStorageRepositoryFactory(dataDirectory, logger);
-        new IStorageRepositoryFactoryRegistryModule(this.flatFileStorageRepositoryFactory);
+        this.flatFileStorageRepositoryFactory = new FlatFileStorageRepositoryFactory(dataDirectory, configurateHelper, logger);
+        this.h2StorageRepositoryFactory = new H2StorageRepositoryFactory(dataDirectory, configurateHelper, logger, pluginContainer);
+        new IStorageRepositoryFactoryRegistryModule(this.flatFileStorageRepositoryFactory, this.h2StorageRepositoryFactory);
+        this.logger = logger;
         this.configurateHelper = configurateHelper;
+        this.pluginContainer = pluginContainer;
         this.userService = new UserService(this, pluginContainer);
         this.worldService = new WorldService(this, pluginContainer);
         this.generalService = new SingleCachedService<>(
@@ -75,16 +90,16 @@ public final class StorageManager implements IStorageManager, IReloadableService
     }
 
     @Nullable
-    private IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> userRepository;
+    private IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> userRepository;
 
     @Nullable
-    private IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> worldRepository;
+    private IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> worldRepository;
 
     @Nullable
-    private IStorageRepository.Single<JsonObject> generalRepository;
+    private IStorageRepository.Single<ConfigurationNode> generalRepository;
 
     @Nullable
-    private IStorageRepository.Single<JsonObject> kitsRepository;
+    private IStorageRepository.Single<ConfigurationNode> kitsRepository;
 
     private final IConfigurateBackedDataTranslator<IUserDataObject> userDataAccess = new IConfigurateBackedDataTranslator<IUserDataObject>() {
         @Override public ConfigurationNode createNewNode() {
@@ -151,57 +166,99 @@ public final class StorageManager implements IStorageManager, IReloadableService
         return this.worldService;
     }
 
-    @Override public IDataTranslator<IUserDataObject, JsonObject> getUserDataAccess() {
+    @Override public IDataTranslator<IUserDataObject, ConfigurationNode> getUserDataAccess() {
         return this.userDataAccess;
     }
 
-    @Override public IDataTranslator<IWorldDataObject, JsonObject> getWorldDataAccess() {
+    @Override public IDataTranslator<IWorldDataObject, ConfigurationNode> getWorldDataAccess() {
         return this.worldDataAccess;
     }
 
-    @Override public IDataTranslator<IGeneralDataObject, JsonObject> getGeneralDataAccess() {
+    @Override public IDataTranslator<IGeneralDataObject, ConfigurationNode> getGeneralDataAccess() {
         return this.generalDataAccess;
     }
 
-    @Override public IDataTranslator<IKitDataObject, JsonObject> getKitsDataAccess() {
+    @Override public IDataTranslator<IKitDataObject, ConfigurationNode> getKitsDataAccess() {
         return this.kitsDataAccess;
     }
 
     @Override
-    public IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> getUserRepository() {
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> getUserRepository() {
         if (this.userRepository == null) {
-            // fallback to flat file
-            this.userRepository = this.flatFileStorageRepositoryFactory.userRepository();
+            this.userRepository = getRepositoryFactory().userRepository();
+            if (this.userRepository == null) {
+                // fallback to flat file
+                this.userRepository = this.flatFileStorageRepositoryFactory.userRepository();
+            }
         }
         return this.userRepository;
     }
 
     @Override
-    public IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> getWorldRepository() {
-        if (this.worldRepository== null) {
-            // fallback to flat file
-            this.worldRepository = this.flatFileStorageRepositoryFactory.worldRepository();
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> getWorldRepository() {
+        if (this.worldRepository == null) {
+            this.worldRepository = getRepositoryFactory().worldRepository();
+            if (this.worldRepository == null) {
+                // fallback to flat file
+                this.worldRepository = this.flatFileStorageRepositoryFactory.worldRepository();
+            }
         }
         return this.worldRepository;
     }
 
     @Override
-    public IStorageRepository.Single<JsonObject> getGeneralRepository() {
+    public IStorageRepository.Single<ConfigurationNode> getGeneralRepository() {
         if (this.generalRepository == null) {
-            // fallback to flat file
-            this.generalRepository = this.flatFileStorageRepositoryFactory.generalRepository();
+            this.generalRepository = getRepositoryFactory().generalRepository();
+            if (this.generalRepository == null) {
+                // fallback to flat file
+                this.generalRepository = this.flatFileStorageRepositoryFactory.generalRepository();
+            }
         }
         return this.generalRepository;
     }
 
-    @Override public IStorageRepository.Single<JsonObject> getKitsRepository() {
+    @Override public IStorageRepository.Single<ConfigurationNode> getKitsRepository() {
         if (this.kitsRepository == null) {
-            // fallback to flat file
-            this.kitsRepository = this.flatFileStorageRepositoryFactory.kitsRepository();
+            this.kitsRepository = getRepositoryFactory().kitsRepository();
+            if (this.kitsRepository == null) {
+                // fallback to flat file
+                this.kitsRepository = this.flatFileStorageRepositoryFactory.kitsRepository();
+            }
         }
         return this.kitsRepository;
     }
 
+    private IStorageRepositoryFactory<ConfigurationNode> getRepositoryFactory() {
+        if (this.repositoryFactory == null) {
+            return this.flatFileStorageRepositoryFactory;
+        }
+
+        return this.repositoryFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void selectRepositoryFactory(String id) {
+        Optional<IStorageRepositoryFactory> factory = IStorageRepositoryFactoryRegistryModule.getInstance().getById(id);
+        if (!factory.isPresent()) {
+            this.logger.warn("The data store " + id + " does not exist, using flat files.");
+            this.repositoryFactory = this.flatFileStorageRepositoryFactory;
+            return;
+        }
+
+        IStorageRepositoryFactory<ConfigurationNode> selected = (IStorageRepositoryFactory<ConfigurationNode>) factory.get();
+        if (selected == this.h2StorageRepositoryFactory) {
+            try {
+                this.h2StorageRepositoryFactory.migrateFromFlatFileIfRequired(this.flatFileStorageRepositoryFactory);
+            } catch (Exception e) {
+                this.logger.error("Could not migrate flat file data to the H2 database, using flat files.", e);
+                selected = this.flatFileStorageRepositoryFactory;
+            }
+        }
+
+        this.repositoryFactory = selected;
+    }
+
     @Override
     public CompletableFuture<Void> saveAndInvalidateAllCaches() {
         CompletableFuture<Void> a = this.generalService.ensureSaved().whenComplete((cv, t) -> this.generalService.clearCache());
@@ -219,32 +276,67 @@ public final class StorageManager implements IStorageManager, IReloadableService
         return CompletableFuture.allOf(a, b, c, d);
     }
 
+    @Override public void flushPendingWrites() {
+        this.userService.flushPendingWrites();
+        this.worldService.flushPendingWrites();
+    }
+
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
-        // TODO: Data registry
+        // Anything queued must go to the repositories we are about to shut down.
+        if (this.writeBehindTask != null) {
+            this.writeBehindTask.cancel();
+            this.writeBehindTask = null;
+        }
+        this.flushPendingWrites();
+
         if (this.generalRepository != null) {
             this.generalRepository.shutdown();
         }
 
-        this.generalRepository = null; // TODO: config
+        this.generalRepository = null;
 
         if (this.worldRepository != null) {
             this.worldRepository.shutdown();
         }
 
-        this.worldRepository = null; // TODO: config
+        this.worldRepository = null;
 
         if (this.userRepository != null) {
             this.userRepository.shutdown();
         }
 
-        this.userRepository = null; // TODO: config
+        this.userRepository = null;
 
         if (this.kitsRepository != null) {
             this.kitsRepository.shutdown();
         }
 
-        this.kitsRepository = null; // TODO: config
+        this.kitsRepository = null;
+
+        StorageConfig storageConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getStorageConfig();
+        this.flatFileStorageRepositoryFactory.setConfig(storageConfig.getFlatFileConfig());
+        if (this.repositoryFactory == null) {
+            // The data store can only be changed on restart.
+            selectRepositoryFactory(storageConfig.getDataStore());
+        }
+
+        WriteBehindConfig writeBehindConfig = storageConfig.getWriteBehindConfig();
+        if (writeBehindConfig.isEnabled()) {
+            this.userService.enableWriteBehind(writeBehindConfig.getBatchSize());
+            this.worldService.enableWriteBehind(writeBehindConfig.getBatchSize());
+            long interval = writeBehindConfig.getFlushInterval().toMillis();
+            this.writeBehindTask = Task.builder()
+                    .async()
+                    .name("Nucleus write behind flush task")
+                    .delay(interval, TimeUnit.MILLISECONDS)
+                    .interval(interval, TimeUnit.MILLISECONDS)
+                    .execute(this::flushPendingWrites)
+                    .submit(this.pluginContainer);
+        } else {
+            this.userService.disableWriteBehind();
+            this.worldService.disableWriteBehind();
+        }
     }
 
 }
@@ -4,129 +4,190 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ValueType;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Map;
 
+/**
+ * Reads and writes JSON documents directly to and from {@link ConfigurationNode}s, without
+ * building an intermediate string or JSON tree.
+ */
 public class ConfigurationNodeJsonTranslator {
 
     public static ConfigurationNodeJsonTranslator INSTANCE = new ConfigurationNodeJsonTranslator();
 
     private ConfigurationNodeJsonTranslator() {}
 
-    public ConfigurationNode from(ConfigurationNode nodeToPopulate, JsonObject object) {
-        parseObject(object, nodeToPopulate);
+    /**
+     * Reads a JSON object from the supplied {@link Reader} into the supplied node. The reader
+     * is not closed.
+     *
+     * @param nodeToPopulate The node to populate
+     * @param reader The reader
+     * @return The populated node
+     * @throws IOException if the JSON could not be read, or the document is not an object
+     */
+    public ConfigurationNode from(ConfigurationNode nodeToPopulate, Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        parseObject(jsonReader, nodeToPopulate);
         return nodeToPopulate;
     }
 
-    // The node has map
-    public JsonObject jsonFrom(ConfigurationNode node) {
-        JsonObject object = new JsonObject();
-        if (!node.hasMapChildren()) {
-            // nope.
-            return object;
-        }
+    /**
+     * Writes the supplied node as a compact JSON object to the supplied {@link Writer}. The
+     * writer is flushed but not closed.
+     *
+     * <p>If the node does not have map children, an empty object is written.</p>
+     *
+     * @param node The node to write
+     * @param writer The writer
+     * @throws IOException if the JSON could not be written
+     */
+    public void write(ConfigurationNode node, Writer writer) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        writeObject(jsonWriter, node);
+        jsonWriter.flush();
+    }
 
-        for (Map.Entry<Object, ? extends ConfigurationNode> entry : node.getChildrenMap().entrySet()) {
-            ConfigurationNode value = entry.getValue();
-            if (value.isVirtual()) {
-                continue;
-            }
+    /**
+     * Writes the supplied node as a compact JSON string.
+     *
+     * @param node The node to write
+     * @return The JSON
+     * @throws IOException if the JSON could not be written
+     */
+    public String toJson(ConfigurationNode node) throws IOException {
+        StringWriter writer = new StringWriter();
+        write(node, writer);
+        return writer.toString();
+    }
 
-            String key = String.valueOf(entry.getKey());
-            JsonElement element = fromNode(value);
+    private void writeObject(JsonWriter writer, ConfigurationNode node) throws IOException {
+        writer.beginObject();
+        if (node.hasMapChildren()) {
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : node.getChildrenMap().entrySet()) {
+                ConfigurationNode value = entry.getValue();
+                if (value.isVirtual() || !isWritable(value)) {
+                    continue;
+                }
 
-            if (element != null) {
-                object.add(key, element);
+                writer.name(String.valueOf(entry.getKey()));
+                writeNode(writer, value);
             }
         }
 
-        return object;
+        writer.endObject();
     }
 
-    private JsonElement fromNode(ConfigurationNode value) {
-        JsonElement element = null;
+    private boolean isWritable(ConfigurationNode value) {
+        ValueType type = value.getValueType();
+        return type == ValueType.MAP || type == ValueType.LIST || type == ValueType.SCALAR;
+    }
+
+    private void writeNode(JsonWriter writer, ConfigurationNode value) throws IOException {
         if (value.getValueType() == ValueType.MAP) {
-            element = jsonFrom(value);
+            writeObject(writer, value);
         } else if (value.getValueType() == ValueType.LIST) {
-            element = jsonFromList(value.getChildrenList());
+            writer.beginArray();
+            for (ConfigurationNode child : value.getChildrenList()) {
+                writeNode(writer, child);
+            }
+
+            writer.endArray();
         } else if (value.getValueType() == ValueType.SCALAR) {
-            element = jsonFromScalar(value.getValue());
+            writeScalar(writer, value.getValue());
+        } else {
+            writer.nullValue();
         }
-
-        return element;
     }
 
-    private JsonPrimitive jsonFromScalar(Object value) {
-        JsonPrimitive primitive;
+    private void writeScalar(JsonWriter writer, Object value) throws IOException {
         if (value instanceof Number) {
-            primitive = new JsonPrimitive((Number) value);
+            writer.value((Number) value);
         } else if (value instanceof Boolean) {
-            primitive = new JsonPrimitive((Boolean) value);
+            writer.value((Boolean) value);
         } else {
-            primitive = new JsonPrimitive(value.toString());
+            writer.value(value.toString());
         }
-
-        return primitive;
     }
 
-    private JsonArray jsonFromList(List<? extends ConfigurationNode> listNode) {
-        return listNode.stream().map(this::fromNode).collect(
-                JsonArray::new,
-                JsonArray::add,
-                JsonArray::addAll
-        );
+    private void parseObject(JsonReader reader, ConfigurationNode node) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            parseElement(reader, node.getNode(reader.nextName()));
+        }
+
+        reader.endObject();
     }
 
-    private void parseArray(JsonArray array, ConfigurationNode node) {
-        for (JsonElement element : array) {
-            if (!element.isJsonNull()) {
-                parseElement(element, node.getAppendedNode());
+    private void parseArray(JsonReader reader, ConfigurationNode node) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else {
+                parseElement(reader, node.getAppendedNode());
             }
         }
+
+        reader.endArray();
     }
 
-    private void parseObject(JsonObject object, ConfigurationNode node) {
-        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
-            JsonElement element = entry.getValue();
-            parseElement(element, node.getNode(entry.getKey()));
+    private void parseNumber(String number, ConfigurationNode node) {
+        try {
+            long l = Long.parseLong(number);
+            if (l == (int) l) {
+                node.setValue((int) l);
+            } else {
+                node.setValue(l);
+            }
+
+            return;
+        } catch (NumberFormatException e) {
+            // not a long, fall through.
         }
-    }
 
-    private void parsePrimitive(JsonPrimitive primitive, ConfigurationNode node) {
-        if (primitive.isBoolean()) {
-            node.setValue(primitive.getAsBoolean());
-        } else if (primitive.isString()) {
-            node.setValue(primitive.getAsString());
-        } else if (primitive.isNumber()) {
-            double d = primitive.getAsDouble();
-            long l = primitive.getAsLong();
-            if (d == l) {
-                int i = primitive.getAsInt();
-                if (i == l) {
-                    node.setValue(i);
-                } else {
-                    node.setValue(l);
-                }
+        double d = Double.parseDouble(number);
+        long l = (long) d;
+        if (d == l) {
+            if (l == (int) l) {
+                node.setValue((int) l);
             } else {
-                node.setValue(d);
+                node.setValue(l);
             }
+        } else {
+            node.setValue(d);
         }
     }
 
-    private void parseElement(JsonElement element, ConfigurationNode node) {
-        if (element.isJsonObject()) {
-            from(node, element.getAsJsonObject());
-        } else if (element.isJsonArray()) {
-            parseArray(element.getAsJsonArray(), node);
-        } else if (element.isJsonPrimitive()) {
-            parsePrimitive(element.getAsJsonPrimitive(), node);
+    private void parseElement(JsonReader reader, ConfigurationNode node) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                parseObject(reader, node);
+                break;
+            case BEGIN_ARRAY:
+                parseArray(reader, node);
+                break;
+            case BOOLEAN:
+                node.setValue(reader.nextBoolean());
+                break;
+            case NUMBER:
+                parseNumber(reader.nextString(), node);
+                break;
+            case STRING:
+                node.setValue(reader.nextString());
+                break;
+            default:
+                reader.skipValue();
+                break;
         }
     }
 
@@ -4,26 +4,23 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess;
 
-import com.google.gson.JsonObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.configurate.IConfigurateBackedDataObject;
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import ninja.leaping.configurate.ConfigurationNode;
 
-public interface IConfigurateBackedDataTranslator<R extends IConfigurateBackedDataObject> extends IDataTranslator<R, JsonObject> {
+public interface IConfigurateBackedDataTranslator<R extends IConfigurateBackedDataObject> extends IDataTranslator<R, ConfigurationNode> {
 
     @Override
-    default R fromDataAccessObject(JsonObject object) {
-        // Get the ConfigNode from the JsonObject
-        ConfigurationNode node = ConfigurationNodeJsonTranslator.INSTANCE.from(createNewNode(), object);
+    default R fromDataAccessObject(ConfigurationNode node) {
+        // Repositories create their nodes with the Nucleus options, so the node can be used directly.
         R obj = createNew();
         obj.setBackingNode(node);
         return obj;
     }
 
     @Override
-    default JsonObject toDataAccessObject(R object) {
-        ConfigurationNode node = object.getBackingNode();
-        return ConfigurationNodeJsonTranslator.INSTANCE.jsonFrom(node);
+    default ConfigurationNode toDataAccessObject(R object) {
+        return object.getBackingNode();
     }
 
     ConfigurationNode createNewNode();
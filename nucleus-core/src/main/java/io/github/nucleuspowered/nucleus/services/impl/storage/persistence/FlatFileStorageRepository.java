@@ -6,10 +6,8 @@ package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import io.github.nucleuspowered.nucleus.modules.core.config.FlatFileConfig;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeJsonTranslator;
 import io.github.nucleuspowered.nucleus.util.ThrownFunction;
 import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
 import io.github.nucleuspowered.storage.exceptions.DataLoadException;
@@ -18,11 +16,14 @@ import io.github.nucleuspowered.storage.exceptions.DataSaveException;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
+import ninja.leaping.configurate.ConfigurationNode;
 import org.slf4j.Logger;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,37 +33,37 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
 abstract class FlatFileStorageRepository implements IStorageRepository {
 
     private final Logger logger;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    private final Supplier<FlatFileConfig> configSupplier;
 
-    private static Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
-    protected FlatFileStorageRepository(Logger logger) {
+    protected FlatFileStorageRepository(Logger logger, Supplier<ConfigurationNode> nodeSupplier, Supplier<FlatFileConfig> configSupplier) {
         this.logger = logger;
+        this.nodeSupplier = nodeSupplier;
+        this.configSupplier = configSupplier;
     }
 
-    Optional<JsonObject> get(@Nullable Path path) throws DataLoadException {
+    Optional<ConfigurationNode> get(@Nullable Path path) throws DataLoadException {
         if (path != null) {
             try {
                 if (Files.size(path) == 0) {
                     return Optional.empty(); // nothing in the file, don't do anything with it.
                 }
-                // Read the file.
+                // Read the file straight into the node.
                 try (BufferedReader reader = Files.newBufferedReader(path)) {
-                    return Optional.of(new JsonParser()
-                            .parse(reader.lines().collect(Collectors.joining()))
-                            .getAsJsonObject());
+                    return Optional.of(ConfigurationNodeJsonTranslator.INSTANCE.from(this.nodeSupplier.get(), reader));
                 }
             } catch (Exception e) {
                 throw new DataLoadException("Could not load file at " + path.toAbsolutePath().toString(), e);
@@ -72,7 +73,15 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         return Optional.empty();
     }
 
-    void save(Path file, JsonObject object) throws DataSaveException {
+    void save(Path file, ConfigurationNode node) throws DataSaveException {
+        FlatFileConfig config = getConfig();
+        if (config.isAtomicWrites()) {
+            Map<Path, ConfigurationNode> files = new LinkedHashMap<>();
+            files.put(file, node);
+            saveAtomically(files, config);
+            return;
+        }
+
         try {
             // Backup the file
             if (Files.exists(file)) {
@@ -82,7 +91,7 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
             // Write the new file
             Files.createDirectories(file.getParent());
             try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                writer.write(gson.toJson(object));
+                ConfigurationNodeJsonTranslator.INSTANCE.write(node, writer);
             }
         } catch (Exception ex) {
             this.logger.error("Could not save " + file.toString());
@@ -91,6 +100,106 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
     }
 
+    /**
+     * Saves all the supplied files by writing each to a new temporary sibling first, and then
+     * moving the temporary files over the originals. If syncing is enabled, all the temporary
+     * files are synced together before any of them are moved, so that the disk is not waited on
+     * once per file.
+     *
+     * @param files The files to write, and the nodes to write to them
+     * @param config The {@link FlatFileConfig} to use
+     * @throws DataSaveException if any file could not be saved
+     */
+    void saveAtomically(Map<Path, ConfigurationNode> files, FlatFileConfig config) throws DataSaveException {
+        Map<Path, Path> temporaryFiles = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, ConfigurationNode> entry : files.entrySet()) {
+                Path file = entry.getKey();
+                Files.createDirectories(file.getParent());
+
+                // A new file each time, so that two saves of the same file cannot write to the same
+                // temporary file.
+                Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+                temporaryFiles.put(file, temporaryFile);
+                try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    ConfigurationNodeJsonTranslator.INSTANCE.write(entry.getValue(), writer);
+                }
+            }
+
+            if (config.isSyncWrites()) {
+                for (Path temporaryFile : temporaryFiles.values()) {
+                    try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+            }
+
+            Set<Path> directories = new HashSet<>();
+            for (Map.Entry<Path, Path> entry : temporaryFiles.entrySet()) {
+                Path file = entry.getKey();
+                if (config.isKeepBackups()) {
+                    backup(file);
+                }
+
+                move(entry.getValue(), file);
+                directories.add(file.getParent());
+            }
+
+            if (config.isSyncWrites()) {
+                // Makes sure the renames survive a crash too.
+                directories.forEach(this::syncDirectory);
+            }
+        } catch (Exception ex) {
+            for (Path temporaryFile : temporaryFiles.values()) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException e) {
+                    // ignored, we'll overwrite it next time.
+                }
+            }
+
+            this.logger.error("Could not save " + files.size() + " file(s), starting with " + files.keySet().iterator().next());
+            ex.printStackTrace();
+            throw new DataSaveException("Could not save " + files.keySet().iterator().next(), ex);
+        }
+    }
+
+    private void backup(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        Path backup = file.resolveSibling(file.getFileName() + ".bak");
+        Files.deleteIfExists(backup);
+        try {
+            // The original is about to be replaced rather than rewritten, so a link to it is enough.
+            Files.createLink(backup, file);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory.
+        }
+    }
+
+    FlatFileConfig getConfig() {
+        return this.configSupplier.get();
+    }
+
     @Override
     public void shutdown() {
         // nothing to do
@@ -104,17 +213,18 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         return false;
     }
 
-    static class Single extends FlatFileStorageRepository implements IStorageRepository.Single<JsonObject> {
+    static class Single extends FlatFileStorageRepository implements IStorageRepository.Single<ConfigurationNode> {
 
         private final Supplier<Path> FILENAME_RESOLVER;
 
-        Single(Logger logger, Supplier<Path> filename_resolver) {
-            super(logger);
+        Single(Logger logger, Supplier<ConfigurationNode> nodeSupplier, Supplier<FlatFileConfig> configSupplier,
+                Supplier<Path> filename_resolver) {
+            super(logger, nodeSupplier, configSupplier);
             this.FILENAME_RESOLVER = filename_resolver;
         }
 
         @Override
-        public Optional<JsonObject> get() throws DataLoadException {
+        public Optional<ConfigurationNode> get() throws DataLoadException {
             if (Files.exists(FILENAME_RESOLVER.get())) {
                 return get(FILENAME_RESOLVER.get());
             }
@@ -123,15 +233,15 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         @Override
-        public void save(JsonObject object) throws DataSaveException {
-            save(FILENAME_RESOLVER.get(), object);
+        public void save(ConfigurationNode node) throws DataSaveException {
+            save(FILENAME_RESOLVER.get(), node);
         }
 
     }
 
     static class UUIDKeyed<Q extends IQueryObject<UUID, Q>>
             extends FlatFileStorageRepository
-            implements Keyed<UUID, Q, JsonObject> {
+            implements Keyed<UUID, Q, ConfigurationNode> {
 
         private final ThrownFunction<Q, Path, DataQueryException> FILENAME_RESOLVER;
         private final Supplier<Path> BASE_PATH;
@@ -139,10 +249,12 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
 
         UUIDKeyed(
                 Logger logger,
+                Supplier<ConfigurationNode> nodeSupplier,
+                Supplier<FlatFileConfig> configSupplier,
                 ThrownFunction<Q, Path, DataQueryException> filename_resolver,
                 Function<UUID, Path> uuid_filename_resolver,
                 Supplier<Path> basePath) {
-            super(logger);
+            super(logger, nodeSupplier, configSupplier);
             this.FILENAME_RESOLVER = filename_resolver;
             this.UUID_FILENAME_RESOLVER = uuid_filename_resolver;
             this.BASE_PATH = basePath;
@@ -159,7 +271,7 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         @Override
-        public Optional<KeyedObject<UUID, JsonObject>> get(Q query) throws DataLoadException {
+        public Optional<KeyedObject<UUID, ConfigurationNode>> get(Q query) throws DataLoadException {
             Path path;
             try {
                 path = existsInternal(query);
@@ -176,7 +288,7 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         @Override
-        public Optional<JsonObject> get(UUID uuid) throws DataLoadException {
+        public Optional<ConfigurationNode> get(UUID uuid) throws DataLoadException {
             return get(existsInternal(uuid));
         }
 
@@ -186,8 +298,8 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         @Override
-        public Map<UUID, JsonObject> getAll(Q query) throws DataLoadException, DataQueryException {
-            ImmutableMap.Builder<UUID, JsonObject> j = ImmutableMap.builder();
+        public Map<UUID, ConfigurationNode> getAll(Q query) throws DataLoadException, DataQueryException {
+            ImmutableMap.Builder<UUID, ConfigurationNode> j = ImmutableMap.builder();
             for (UUID key : getAllKeys(query)) {
                 j.put(key, get(key).get()); // should be there
             }
@@ -197,17 +309,24 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
 
         @Override
         public Collection<UUID> getAllKeys(Q query) throws DataLoadException, DataQueryException {
-            if (query.restrictedToKeys()) {
-                getAllKeysInternal().retainAll(query.keys());
+            if (query.restrictedToKeys() && query.queries().isEmpty()) {
+                Set<UUID> keys = getAllKeysInternal();
+                keys.retainAll(query.keys());
+                return ImmutableSet.copyOf(keys);
             }
 
             throw new DataQueryException("There must only a key", query);
         }
 
         private Set<UUID> getAllKeysInternal() throws DataLoadException {
-            UUIDFileWalker u = new UUIDFileWalker();
+            Path basePath = BASE_PATH.get();
+            if (!Files.isDirectory(basePath)) {
+                return new HashSet<>();
+            }
+
+            UUIDFileWalker u = new UUIDFileWalker(basePath);
             try {
-                Files.walkFileTree(BASE_PATH.get(), u);
+                Files.walkFileTree(basePath, u);
                 return u.uuidSet;
             } catch (IOException e) {
                 throw new DataLoadException("Could not walk the file tree", e);
@@ -231,9 +350,27 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         @Override
-        public void save(UUID key, JsonObject object) throws DataSaveException {
+        public void save(UUID key, ConfigurationNode node) throws DataSaveException {
             Path file = UUID_FILENAME_RESOLVER.apply(key);
-            save(file, object);
+            save(file, node);
+        }
+
+        @Override
+        public void saveAll(Map<UUID, ConfigurationNode> objects) throws DataSaveException {
+            FlatFileConfig config = getConfig();
+            if (!config.isAtomicWrites()) {
+                for (Map.Entry<UUID, ConfigurationNode> entry : objects.entrySet()) {
+                    save(entry.getKey(), entry.getValue());
+                }
+
+                return;
+            }
+
+            if (!objects.isEmpty()) {
+                Map<Path, ConfigurationNode> files = new LinkedHashMap<>();
+                objects.forEach((key, node) -> files.put(UUID_FILENAME_RESOLVER.apply(key), node));
+                saveAtomically(files, config);
+            }
         }
 
         @Override
@@ -260,10 +397,15 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         private static class UUIDFileWalker extends SimpleFileVisitor<Path> {
 
             private final Set<UUID> uuidSet = new HashSet<>();
+            private final Path basePath;
+
+            private UUIDFileWalker(Path basePath) {
+                this.basePath = basePath;
+            }
 
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (dir.getFileName().toString().length() == 2) {
+                if (dir.equals(this.basePath) || dir.getFileName().toString().length() == 2) {
                     return super.preVisitDirectory(dir, attrs);
                 }
 
@@ -275,9 +417,9 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
                 if (attr.isRegularFile()) {
-                    if (file.endsWith(".json")) {
-                        String f = file.getFileName().toString();
-                        if (f.length() == 41 && f.startsWith(file.getParent().toString().toLowerCase())) {
+                    String f = file.getFileName().toString();
+                    if (f.endsWith(".json")) {
+                        if (f.length() == 41 && f.startsWith(file.getParent().getFileName().toString().toLowerCase())) {
                             try {
                                 this.uuidSet.add(UUID.fromString(f.substring(0, 36)));
                             } catch (Exception e) {
@@ -4,14 +4,18 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
 
-import com.google.gson.JsonObject;
 import io.github.nucleuspowered.nucleus.guice.DataDirectory;
+import io.github.nucleuspowered.nucleus.modules.core.config.FlatFileConfig;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
 import io.github.nucleuspowered.storage.exceptions.DataQueryException;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.SimpleConfigurationNode;
 import org.slf4j.Logger;
 
 import java.nio.file.Path;
@@ -23,7 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
-public final class FlatFileStorageRepositoryFactory implements IStorageRepositoryFactory<JsonObject> {
+public final class FlatFileStorageRepositoryFactory implements IStorageRepositoryFactory<ConfigurationNode> {
 
     private static final String WORLD_DATA_DIRECTORY = "worlddata";
     private static final String USER_DATA_DIRECTORY = "userdata";
@@ -31,25 +35,42 @@ public final class FlatFileStorageRepositoryFactory implements IStorageRepositor
     private static final String KITS_FILE = "kits.json";
     private final Supplier<Path> dataPath;
     private final Logger logger;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    private volatile FlatFileConfig config = new FlatFileConfig();
 
     @Inject
-    public FlatFileStorageRepositoryFactory(@DataDirectory Supplier<Path> path, Logger logger) {
+    public FlatFileStorageRepositoryFactory(@DataDirectory Supplier<Path> path, IConfigurateHelper configurateHelper, Logger logger) {
         this.dataPath = path;
         this.logger = logger;
+        this.nodeSupplier = () -> SimpleConfigurationNode.root(configurateHelper.setOptions(ConfigurationOptions.defaults()));
+    }
+
+    /**
+     * Sets how files are written by the repositories created by this factory, including
+     * those that have already been created.
+     *
+     * @param config The {@link FlatFileConfig}
+     */
+    public void setConfig(FlatFileConfig config) {
+        this.config = config;
+    }
+
+    private FlatFileConfig getConfig() {
+        return this.config;
     }
 
     @Override
-    public IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> userRepository() {
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> userRepository() {
         return repository(USER_DATA_DIRECTORY);
     }
 
     @Override
-    public IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> worldRepository() {
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> worldRepository() {
         return repository(WORLD_DATA_DIRECTORY);
     }
 
-    private <R extends IQueryObject<UUID, R>> IStorageRepository.Keyed<UUID, R, JsonObject> repository(final String p) {
-        return new FlatFileStorageRepository.UUIDKeyed<>(this.logger, query -> {
+    private <R extends IQueryObject<UUID, R>> IStorageRepository.Keyed<UUID, R, ConfigurationNode> repository(final String p) {
+        return new FlatFileStorageRepository.UUIDKeyed<>(this.logger, this.nodeSupplier, this::getConfig, query -> {
             if (query.keys().size() == 1) {
                 Collection<UUID> uuids = query.keys();
                 String uuid = uuids.iterator().next().toString();
@@ -63,13 +84,13 @@ public final class FlatFileStorageRepositoryFactory implements IStorageRepositor
     }
 
     @Override
-    public IStorageRepository.Single<JsonObject> generalRepository() {
-        return new FlatFileStorageRepository.Single(this.logger, () -> this.dataPath.get().resolve(GENERAL_FILE));
+    public IStorageRepository.Single<ConfigurationNode> generalRepository() {
+        return new FlatFileStorageRepository.Single(this.logger, this.nodeSupplier, this::getConfig, () -> this.dataPath.get().resolve(GENERAL_FILE));
     }
 
     @Override
-    public IStorageRepository.Single<JsonObject> kitsRepository() {
-        return new FlatFileStorageRepository.Single(this.logger, () -> this.dataPath.get().resolve(KITS_FILE));
+    public IStorageRepository.Single<ConfigurationNode> kitsRepository() {
+        return new FlatFileStorageRepository.Single(this.logger, this.nodeSupplier, this::getConfig, () -> this.dataPath.get().resolve(KITS_FILE));
     }
 
     @Override public String getId() {
@@ -0,0 +1,483 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeJsonTranslator;
+import io.github.nucleuspowered.nucleus.util.ThrownSupplier;
+import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
+import io.github.nucleuspowered.storage.exceptions.DataLoadException;
+import io.github.nucleuspowered.storage.exceptions.DataQueryException;
+import io.github.nucleuspowered.storage.exceptions.DataSaveException;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import io.github.nucleuspowered.storage.queryobjects.QueryKey;
+import io.github.nucleuspowered.storage.util.KeyedObject;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ValueType;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+/**
+ * Stores data in an embedded H2 database, one row per document.
+ *
+ * <p>The JSON document is stored as is, the only other columns are the primary key and
+ * any values that have been marked as queryable, which are indexed.</p>
+ */
+public abstract class H2StorageRepository implements IStorageRepository {
+
+    static final String DOCUMENTS_TABLE = "nucleus_documents";
+
+    private final ThrownSupplier<DataSource, SQLException> dataSourceSupplier;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    final Logger logger;
+    private volatile boolean initialised = false;
+
+    H2StorageRepository(Logger logger, Supplier<ConfigurationNode> nodeSupplier, ThrownSupplier<DataSource, SQLException> dataSourceSupplier) {
+        this.logger = logger;
+        this.nodeSupplier = nodeSupplier;
+        this.dataSourceSupplier = dataSourceSupplier;
+    }
+
+    Connection getConnection() throws SQLException {
+        Connection connection = this.dataSourceSupplier.get().getConnection();
+        if (!this.initialised) {
+            synchronized (this) {
+                if (!this.initialised) {
+                    try (Statement statement = connection.createStatement()) {
+                        for (String s : createStatements()) {
+                            statement.execute(s);
+                        }
+                    } catch (SQLException e) {
+                        connection.close();
+                        throw e;
+                    }
+
+                    this.initialised = true;
+                }
+            }
+        }
+
+        return connection;
+    }
+
+    abstract List<String> createStatements();
+
+    static String toJson(ConfigurationNode node) throws SQLException {
+        try {
+            return ConfigurationNodeJsonTranslator.INSTANCE.toJson(node);
+        } catch (IOException e) {
+            throw new SQLException("Could not write the document", e);
+        }
+    }
+
+    Optional<ConfigurationNode> fromJson(@Nullable Reader reader) throws IOException {
+        if (reader == null) {
+            return Optional.empty();
+        }
+
+        try (Reader r = reader) {
+            return Optional.of(ConfigurationNodeJsonTranslator.INSTANCE.from(this.nodeSupplier.get(), r));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // The data source is owned by the SqlService.
+    }
+
+    @Override
+    public void clearCache() {
+        // noop
+    }
+
+    @Override
+    public boolean hasCache() {
+        return false;
+    }
+
+    static class Single extends H2StorageRepository implements IStorageRepository.Single<ConfigurationNode> {
+
+        private final String name;
+
+        Single(Logger logger, Supplier<ConfigurationNode> nodeSupplier, ThrownSupplier<DataSource, SQLException> dataSourceSupplier,
+                String name) {
+            super(logger, nodeSupplier, dataSourceSupplier);
+            this.name = name;
+        }
+
+        @Override
+        List<String> createStatements() {
+            return ImmutableList.of(
+                    "CREATE TABLE IF NOT EXISTS " + DOCUMENTS_TABLE + " (name VARCHAR(64) PRIMARY KEY, data CLOB NOT NULL)"
+            );
+        }
+
+        @Override
+        public Optional<ConfigurationNode> get() throws DataLoadException {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT data FROM " + DOCUMENTS_TABLE + " WHERE name = ?")) {
+                statement.setString(1, this.name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return fromJson(resultSet.getCharacterStream(1));
+                    }
+                }
+            } catch (Exception e) {
+                throw new DataLoadException("Could not load " + this.name, e);
+            }
+
+            return Optional.empty();
+        }
+
+        @Override
+        public void save(ConfigurationNode node) throws DataSaveException {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement =
+                            connection.prepareStatement("MERGE INTO " + DOCUMENTS_TABLE + " (name, data) KEY (name) VALUES (?, ?)")) {
+                statement.setString(1, this.name);
+                statement.setString(2, toJson(node));
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                this.logger.error("Could not save " + this.name);
+                throw new DataSaveException("Could not save " + this.name, e);
+            }
+        }
+    }
+
+    public static class UUIDKeyed<Q extends IQueryObject<UUID, Q>> extends H2StorageRepository implements Keyed<UUID, Q, ConfigurationNode> {
+
+        private final String table;
+        private final Map<QueryKey<?, Q>, String> indexedColumns;
+        private final String mergeStatement;
+
+        /**
+         * Creates a keyed repository.
+         *
+         * @param logger The logger
+         * @param nodeSupplier Supplies empty nodes to read documents into
+         * @param dataSourceSupplier Supplies the data source
+         * @param table The name of the table to store data in
+         * @param indexedColumns The {@link QueryKey}s that can be queried on, mapped to the column that
+         *                       stores them. The {@link QueryKey#key()} must be a top level entry in the
+         *                       document.
+         */
+        public UUIDKeyed(Logger logger,
+                Supplier<ConfigurationNode> nodeSupplier,
+                ThrownSupplier<DataSource, SQLException> dataSourceSupplier,
+                String table,
+                Map<QueryKey<?, Q>, String> indexedColumns) {
+            super(logger, nodeSupplier, dataSourceSupplier);
+            this.table = table;
+            this.indexedColumns = ImmutableMap.copyOf(indexedColumns);
+            StringBuilder columns = new StringBuilder("uuid, data");
+            StringBuilder values = new StringBuilder("?, ?");
+            for (String column : this.indexedColumns.values()) {
+                columns.append(", ").append(column);
+                values.append(", ?");
+            }
+
+            this.mergeStatement = "MERGE INTO " + table + " (" + columns + ") KEY (uuid) VALUES (" + values + ")";
+        }
+
+        @Override
+        List<String> createStatements() {
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            StringBuilder create = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+                    .append(this.table)
+                    .append(" (uuid VARCHAR(36) PRIMARY KEY, data CLOB NOT NULL");
+            for (String column : this.indexedColumns.values()) {
+                create.append(", ").append(column).append(" VARCHAR(255)");
+            }
+
+            builder.add(create.append(")").toString());
+            for (String column : this.indexedColumns.values()) {
+                builder.add("CREATE INDEX IF NOT EXISTS " + this.table + "_" + column + " ON " + this.table + " (" + column + ")");
+            }
+
+            return builder.build();
+        }
+
+        @Override
+        public boolean supportsNonKeyQueries() {
+            return !this.indexedColumns.isEmpty();
+        }
+
+        @Override
+        public boolean exists(Q query) {
+            try {
+                return count(query) > 0;
+            } catch (DataQueryException e) {
+                this.logger.error("Could not query " + this.table, e);
+                return false;
+            }
+        }
+
+        @Override
+        public Optional<KeyedObject<UUID, ConfigurationNode>> get(Q query) throws DataLoadException, DataQueryException {
+            Map<UUID, ConfigurationNode> result = getAll(query);
+            if (result.isEmpty()) {
+                return Optional.empty();
+            }
+
+            Map.Entry<UUID, ConfigurationNode> entry = result.entrySet().iterator().next();
+            return Optional.of(new KeyedObject<>(entry.getKey(), entry.getValue()));
+        }
+
+        @Override
+        public int count(Q query) throws DataQueryException {
+            Where where = where(query);
+            if (where.matchesNothing) {
+                return 0;
+            }
+
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + this.table + where.clause)) {
+                where.bind(statement, 1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                throw new DataQueryException("Could not query " + this.table, query, e);
+            }
+        }
+
+        @Override
+        public void save(UUID key, ConfigurationNode node) throws DataSaveException {
+            saveAll(Collections.singletonMap(key, node));
+        }
+
+        @Override
+        public void saveAll(Map<UUID, ConfigurationNode> objects) throws DataSaveException {
+            if (objects.isEmpty()) {
+                return;
+            }
+
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(this.mergeStatement)) {
+                    for (Map.Entry<UUID, ConfigurationNode> entry : objects.entrySet()) {
+                        statement.setString(1, entry.getKey().toString());
+                        statement.setString(2, toJson(entry.getValue()));
+                        int idx = 3;
+                        for (QueryKey<?, Q> queryKey : this.indexedColumns.keySet()) {
+                            ConfigurationNode node = entry.getValue().getNode(queryKey.key());
+                            if (node.getValueType() == ValueType.SCALAR) {
+                                statement.setString(idx++, node.getString());
+                            } else {
+                                statement.setString(idx++, null);
+                            }
+                        }
+
+                        statement.addBatch();
+                    }
+
+                    statement.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                this.logger.error("Could not save " + objects.size() + " entries to " + this.table);
+                throw new DataSaveException("Could not save to " + this.table, e);
+            }
+        }
+
+        @Override
+        public void delete(UUID key) throws DataDeleteException {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("DELETE FROM " + this.table + " WHERE uuid = ?")) {
+                statement.setString(1, key.toString());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new DataDeleteException("Could not delete " + key.toString() + " from " + this.table, e);
+            }
+        }
+
+        @Override
+        public boolean exists(UUID key) {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + this.table + " WHERE uuid = ?")) {
+                statement.setString(1, key.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            } catch (SQLException e) {
+                this.logger.error("Could not query " + this.table, e);
+                return false;
+            }
+        }
+
+        @Override
+        public Optional<ConfigurationNode> get(UUID key) throws DataLoadException {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT data FROM " + this.table + " WHERE uuid = ?")) {
+                statement.setString(1, key.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return fromJson(resultSet.getCharacterStream(1));
+                    }
+                }
+            } catch (Exception e) {
+                throw new DataLoadException("Could not load " + key.toString() + " from " + this.table, e);
+            }
+
+            return Optional.empty();
+        }
+
+        @Override
+        public Collection<UUID> getAllKeys() throws DataLoadException {
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT uuid FROM " + this.table)) {
+                return readKeys(statement);
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not get the keys from " + this.table, e);
+            }
+        }
+
+        @Override
+        public Map<UUID, ConfigurationNode> getAll(Q query) throws DataLoadException, DataQueryException {
+            Where where = where(query);
+            if (where.matchesNothing) {
+                return ImmutableMap.of();
+            }
+
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT uuid, data FROM " + this.table + where.clause)) {
+                where.bind(statement, 1);
+                ImmutableMap.Builder<UUID, ConfigurationNode> builder = ImmutableMap.builder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        UUID uuid = UUID.fromString(resultSet.getString(1));
+                        fromJson(resultSet.getCharacterStream(2)).ifPresent(x -> builder.put(uuid, x));
+                    }
+                }
+
+                return builder.build();
+            } catch (Exception e) {
+                throw new DataLoadException("Could not load entries from " + this.table, e);
+            }
+        }
+
+        @Override
+        public Collection<UUID> getAllKeys(Q query) throws DataLoadException, DataQueryException {
+            Where where = where(query);
+            if (where.matchesNothing) {
+                return ImmutableSet.of();
+            }
+
+            try (Connection connection = getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT uuid FROM " + this.table + where.clause)) {
+                where.bind(statement, 1);
+                return readKeys(statement);
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not get the keys from " + this.table, e);
+            }
+        }
+
+        private Collection<UUID> readKeys(PreparedStatement statement) throws SQLException {
+            ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    builder.add(UUID.fromString(resultSet.getString(1)));
+                }
+            }
+
+            return builder.build();
+        }
+
+        private Where where(Q query) throws DataQueryException {
+            // "IN ()" is not valid SQL, so a restriction to no values matches nothing instead.
+            // Every query key is still checked, so that an unsupported query fails either way.
+            boolean matchesNothing = query.restrictedToKeys() && query.keys().isEmpty();
+            List<String> clauses = new ArrayList<>();
+            List<String> parameters = new ArrayList<>();
+            if (!matchesNothing && query.restrictedToKeys()) {
+                clauses.add(in("uuid", query.keys().size()));
+                query.keys().forEach(x -> parameters.add(x.toString()));
+            }
+
+            for (Map.Entry<QueryKey<?, Q>, List<?>> entry : query.queries().entrySet()) {
+                String column = this.indexedColumns.get(entry.getKey());
+                if (column == null) {
+                    throw new DataQueryException("The query key " + entry.getKey().key() + " is not supported", query);
+                }
+
+                if (entry.getValue().isEmpty()) {
+                    matchesNothing = true;
+                } else {
+                    clauses.add(in(column, entry.getValue().size()));
+                    entry.getValue().forEach(x -> parameters.add(String.valueOf(x)));
+                }
+            }
+
+            if (matchesNothing) {
+                return Where.NOTHING;
+            }
+
+            if (clauses.isEmpty()) {
+                return new Where("", parameters);
+            }
+
+            return new Where(" WHERE " + String.join(" AND ", clauses), parameters);
+        }
+
+        private static String in(String column, int count) {
+            return column + " IN (" + Collections.nCopies(count, "?").stream().collect(Collectors.joining(", ")) + ")";
+        }
+
+    }
+
+    private static final class Where {
+
+        private static final Where NOTHING = new Where("", Collections.emptyList(), true);
+
+        private final String clause;
+        private final List<String> parameters;
+        private final boolean matchesNothing;
+
+        private Where(String clause, List<String> parameters) {
+            this(clause, parameters, false);
+        }
+
+        private Where(String clause, List<String> parameters, boolean matchesNothing) {
+            this.clause = clause;
+            this.parameters = parameters;
+            this.matchesNothing = matchesNothing;
+        }
+
+        private void bind(PreparedStatement statement, int startIndex) throws SQLException {
+            int idx = startIndex;
+            for (String parameter : this.parameters) {
+                statement.setString(idx++, parameter);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.common.collect.ImmutableMap;
+import io.github.nucleuspowered.nucleus.guice.DataDirectory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
+import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.slf4j.Logger;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.service.sql.SqlService;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+/**
+ * Stores all Nucleus data in a single, embedded H2 database file, using the data source provided
+ * by the Sponge {@link SqlService}.
+ */
+@Singleton
+public final class H2StorageRepositoryFactory implements IStorageRepositoryFactory<ConfigurationNode> {
+
+    private static final String DATABASE_FILE = "nucleus-data";
+    private static final String USER_TABLE = "userdata";
+    private static final String WORLD_TABLE = "worlddata";
+    private static final String GENERAL_DOCUMENT = "general";
+    private static final String KITS_DOCUMENT = "kits";
+    private static final String MIGRATION_DOCUMENT = "flatfile-migration";
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    private final Supplier<Path> dataPath;
+    private final Logger logger;
+    private final PluginContainer pluginContainer;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    @Nullable private DataSource dataSource;
+
+    @Inject
+    public H2StorageRepositoryFactory(@DataDirectory Supplier<Path> path,
+            IConfigurateHelper configurateHelper,
+            Logger logger,
+            PluginContainer pluginContainer) {
+        this.dataPath = path;
+        this.logger = logger;
+        this.pluginContainer = pluginContainer;
+        this.nodeSupplier = () -> SimpleConfigurationNode.root(configurateHelper.setOptions(ConfigurationOptions.defaults()));
+    }
+
+    private synchronized DataSource getDataSource() throws SQLException {
+        if (this.dataSource == null) {
+            String file = this.dataPath.get().resolve(DATABASE_FILE).toAbsolutePath().toString();
+            this.dataSource = Sponge.getServiceManager()
+                    .provideUnchecked(SqlService.class)
+                    .getDataSource(this.pluginContainer, "jdbc:h2:" + file);
+        }
+
+        return this.dataSource;
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> userRepository() {
+        return new H2StorageRepository.UUIDKeyed<>(this.logger, this.nodeSupplier, this::getDataSource, USER_TABLE, ImmutableMap.of());
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> worldRepository() {
+        return new H2StorageRepository.UUIDKeyed<>(this.logger, this.nodeSupplier, this::getDataSource, WORLD_TABLE, ImmutableMap.of());
+    }
+
+    @Override
+    public IStorageRepository.Single<ConfigurationNode> generalRepository() {
+        return new H2StorageRepository.Single(this.logger, this.nodeSupplier, this::getDataSource, GENERAL_DOCUMENT);
+    }
+
+    @Override
+    public IStorageRepository.Single<ConfigurationNode> kitsRepository() {
+        return new H2StorageRepository.Single(this.logger, this.nodeSupplier, this::getDataSource, KITS_DOCUMENT);
+    }
+
+    /**
+     * Copies all data from the flat file store into this store, if this has not
+     * been done before. The flat files are left in place.
+     *
+     * @param flatFile The flat file factory to migrate from
+     * @throws Exception if the migration failed
+     */
+    public void migrateFromFlatFileIfRequired(FlatFileStorageRepositoryFactory flatFile) throws Exception {
+        IStorageRepository.Single<ConfigurationNode> marker = new H2StorageRepository.Single(this.logger, this.nodeSupplier, this::getDataSource, MIGRATION_DOCUMENT);
+        if (marker.get().isPresent()) {
+            return;
+        }
+
+        this.logger.info("Migrating Nucleus data from flat files to the H2 database. This will only happen once.");
+        int users = migrateKeyed(flatFile.userRepository(), userRepository());
+        int worlds = migrateKeyed(flatFile.worldRepository(), worldRepository());
+        migrateSingle(flatFile.generalRepository(), generalRepository());
+        migrateSingle(flatFile.kitsRepository(), kitsRepository());
+
+        ConfigurationNode node = this.nodeSupplier.get();
+        node.getNode("migrated").setValue(Instant.now().toString());
+        marker.save(node);
+        this.logger.info("Migrated " + users + " user and " + worlds + " world data files to the H2 database.");
+    }
+
+    private <Q extends IQueryObject<UUID, Q>> int migrateKeyed(
+            IStorageRepository.Keyed<UUID, Q, ConfigurationNode> from,
+            IStorageRepository.Keyed<UUID, Q, ConfigurationNode> to) throws Exception {
+        Collection<UUID> keys = from.getAllKeys();
+        List<UUID> failed = new ArrayList<>();
+        Map<UUID, ConfigurationNode> batch = new HashMap<>();
+        int count = 0;
+        for (UUID key : keys) {
+            try {
+                Optional<ConfigurationNode> object = from.get(key);
+                if (object.isPresent()) {
+                    batch.put(key, object.get());
+                }
+            } catch (Exception e) {
+                failed.add(key);
+            }
+
+            if (batch.size() >= MIGRATION_BATCH_SIZE) {
+                to.saveAll(batch);
+                count += batch.size();
+                batch.clear();
+                this.logger.info("Migrated " + count + " of " + keys.size() + " entries.");
+            }
+        }
+
+        to.saveAll(batch);
+        count += batch.size();
+        if (!failed.isEmpty()) {
+            this.logger.warn("Could not migrate the data for the following keys as they could not be read: "
+                    + failed.stream().map(UUID::toString).collect(Collectors.joining(", ")));
+        }
+
+        return count;
+    }
+
+    private void migrateSingle(IStorageRepository.Single<ConfigurationNode> from, IStorageRepository.Single<ConfigurationNode> to) throws Exception {
+        Optional<ConfigurationNode> object = from.get();
+        if (object.isPresent()) {
+            to.save(object.get());
+        }
+    }
+
+    @Override public String getId() {
+        return "nucleus:h2";
+    }
+
+    @Override public String getName() {
+        return "H2 Database";
+    }
+}
@@ -4,12 +4,12 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.services;
 
-import com.google.gson.JsonObject;
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import io.github.nucleuspowered.storage.dataobjects.IDataObject;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.services.IStorageService;
 import io.github.nucleuspowered.storage.services.ServicesUtil;
+import ninja.leaping.configurate.ConfigurationNode;
 import org.spongepowered.api.plugin.PluginContainer;
 
 import java.util.Optional;
@@ -21,14 +21,14 @@ import javax.annotation.Nonnull;
 public class SingleCachedService<O extends IDataObject> implements IStorageService.SingleCached<O> {
 
     private final Supplier<O> createNew;
-    private final Supplier<IStorageRepository.Single<JsonObject>> repositorySupplier;
-    private final Supplier<IDataTranslator<O, JsonObject>> dataAccessSupplier;
+    private final Supplier<IStorageRepository.Single<ConfigurationNode>> repositorySupplier;
+    private final Supplier<IDataTranslator<O, ConfigurationNode>> dataAccessSupplier;
     private final PluginContainer pluginContainer;
     private O cached = null;
 
     public SingleCachedService(
-            final Supplier<IStorageRepository.Single<JsonObject>> repositorySupplier,
-            final Supplier<IDataTranslator<O, JsonObject>> dataAccessSupplier,
+            final Supplier<IStorageRepository.Single<ConfigurationNode>> repositorySupplier,
+            final Supplier<IDataTranslator<O, ConfigurationNode>> dataAccessSupplier,
             final PluginContainer pluginContainer) {
         this.pluginContainer = pluginContainer;
         this.repositorySupplier = repositorySupplier;
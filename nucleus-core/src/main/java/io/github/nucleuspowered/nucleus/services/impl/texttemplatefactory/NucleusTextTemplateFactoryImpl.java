@@ -4,11 +4,18 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.texttemplatefactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.INucleusTextTemplateFactory;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import org.spongepowered.api.text.Text;
 
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -18,6 +25,14 @@ public class NucleusTextTemplateFactoryImpl implements INucleusTextTemplateFacto
     private final INucleusServiceCollection serviceCollection;
     private final NucleusTextTemplateImpl.Empty emptyInstance;
 
+    // Rendered text is only reused if it was rendered after the last invalidation that applies to it.
+    private final AtomicLong stamp = new AtomicLong();
+    private volatile long invalidatedAll = 0;
+    // Rendered text is only kept for a short time, so older invalidations no longer apply to anything.
+    private final Cache<UUID, Long> invalidated = Caffeine.newBuilder()
+            .expireAfterWrite(NucleusTextTemplateImpl.RENDER_LIFETIME_SECONDS, TimeUnit.SECONDS)
+            .build();
+
     @Inject
     public NucleusTextTemplateFactoryImpl(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
@@ -60,6 +75,34 @@ public class NucleusTextTemplateFactoryImpl implements INucleusTextTemplateFacto
         }
     }
 
+    @Override
+    public void invalidateRenderCache(UUID uuid) {
+        this.invalidated.put(uuid, this.stamp.incrementAndGet());
+    }
+
+    @Override
+    public void invalidateRenderCache() {
+        long all = this.stamp.incrementAndGet();
+        this.invalidatedAll = all;
+        this.invalidated.asMap().values().removeIf(x -> x <= all);
+    }
+
+    @Override
+    public long getInvalidationStamp(@Nullable UUID uuid) {
+        long all = this.invalidatedAll;
+        if (uuid == null) {
+            return all;
+        }
+
+        Long stamp = this.invalidated.getIfPresent(uuid);
+        return stamp == null ? all : Math.max(all, stamp);
+    }
+
+    @Override
+    public long getRenderStamp() {
+        return this.stamp.get();
+    }
+
     private NucleusTextTemplateImpl createFromAmpersand(String string) {
         return new NucleusTextTemplateImpl.Ampersand(string, this.serviceCollection);
     }
@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.texttemplatefactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -12,6 +14,8 @@ import com.google.common.reflect.TypeToken;
 import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
+import io.github.nucleuspowered.nucleus.services.interfaces.INucleusTextTemplateFactory;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPlaceholderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.ITextStyleService;
 import io.github.nucleuspowered.nucleus.util.JsonConfigurateStringHelper;
 import io.github.nucleuspowered.nucleus.util.Tuples;
@@ -29,6 +33,7 @@ import org.spongepowered.api.text.action.TextActions;
 import org.spongepowered.api.text.format.TextStyle;
 import org.spongepowered.api.text.format.TextStyles;
 import org.spongepowered.api.text.serializer.TextSerializers;
+import org.spongepowered.api.util.Identifiable;
 import org.spongepowered.api.util.Tuple;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 
@@ -39,6 +44,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +54,8 @@ import javax.annotation.Nullable;
 @NonnullByDefault
 public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
 
+    static final long RENDER_LIFETIME_SECONDS = 5;
+
     @Nullable private final Text prefix;
     @Nullable private final Text suffix;
     private final String representation;
@@ -55,6 +63,15 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
     private final Map<String, Function<CommandSource, Text>> tokenMap = Maps.newHashMap();
     final INucleusServiceCollection serviceCollection;
 
+    // Templates without tokens are rendered once. Templates whose tokens only depend on the source
+    // are kept for a short time for each source, the rest are rendered every time. The text between
+    // the tokens is parsed into Text when the template is created, so rendering a template with
+    // tokens only resolves the tokens and joins them with the text that is already built.
+    @Nullable private volatile Text staticText;
+    @Nullable private volatile Boolean sourceOnly;
+    @Nullable private volatile Cache<Object, Rendered> rendered;
+    @Nullable private volatile ITextStyleService.TextFormat prefixFormat;
+
     private final Pattern enhancedUrlParser =
             Pattern.compile("(?<first>(^|\\s))(?<reset>&r)?(?<colour>(&[0-9a-flmnrok])+)?"
                             + "((?<options>\\{[a-z]+?})?(?<url>(http(s)?://)?([A-Za-z0-9]+\\.)+[A-Za-z0-9-]{2,}\\S*)|"
@@ -125,7 +142,63 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
     @Override @SuppressWarnings("SameParameterValue")
     public Text getForCommandSource(CommandSource source,
             @Nullable Map<String, Function<CommandSource, Optional<Text>>> tokensArray) {
+        if (!containsTokens()) {
+            Text text = this.staticText;
+            if (text == null) {
+                text = render(source, null);
+                this.staticText = text;
+            }
+
+            return text;
+        }
+
+        if ((tokensArray == null || tokensArray.isEmpty()) && isSourceOnly()) {
+            Cache<Object, Rendered> cache = getRenderedCache();
+            INucleusTextTemplateFactory factory = this.serviceCollection.textTemplateFactory();
+            UUID uuid = source instanceof Identifiable ? ((Identifiable) source).getUniqueId() : null;
+            Object key = uuid == null ? source.getName() : uuid;
+            Rendered result = cache.getIfPresent(key);
+            if (result != null && result.stamp >= factory.getInvalidationStamp(uuid)) {
+                return result.text;
+            }
+
+            // Take the stamp first, so that an invalidation while rendering is not missed.
+            long stamp = factory.getRenderStamp();
+            Text text = render(source, null);
+            cache.put(key, new Rendered(stamp, text));
+            return text;
+        }
+
+        return render(source, tokensArray);
+    }
+
+    private boolean isSourceOnly() {
+        Boolean result = this.sourceOnly;
+        if (result == null) {
+            IPlaceholderService placeholderService = this.serviceCollection.placeholderService();
+            result = this.textTemplate.getArguments().keySet().stream()
+                    .map(String::toLowerCase)
+                    .allMatch(x -> this.tokenMap.containsKey(x) || placeholderService.compile(x).isSourceOnly());
+            this.sourceOnly = result;
+        }
 
+        return result;
+    }
+
+    private Cache<Object, Rendered> getRenderedCache() {
+        Cache<Object, Rendered> cache = this.rendered;
+        if (cache == null) {
+            cache = Caffeine.newBuilder()
+                    .expireAfterWrite(RENDER_LIFETIME_SECONDS, TimeUnit.SECONDS)
+                    .maximumSize(1000)
+                    .build();
+            this.rendered = cache;
+        }
+
+        return cache;
+    }
+
+    private Text render(CommandSource source, @Nullable Map<String, Function<CommandSource, Optional<Text>>> tokensArray) {
         Map<String, TextTemplate.Arg> tokens = this.textTemplate.getArguments();
         Map<String, TextRepresentable> finalArgs = Maps.newHashMap();
 
@@ -150,7 +223,11 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
         ITextStyleService.TextFormat st = null;
         if (this.prefix != null) {
             builder.append(this.prefix);
-            st = this.serviceCollection.textStyleService().getLastColourAndStyle(this.prefix, null);
+            st = this.prefixFormat;
+            if (st == null) {
+                st = this.serviceCollection.textStyleService().getLastColourAndStyle(this.prefix, null);
+                this.prefixFormat = st;
+            }
         }
 
         Text finalText = this.textTemplate.apply(finalArgs).build();
@@ -464,6 +541,17 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
         }
     }
 
+    private static final class Rendered {
+
+        private final long stamp;
+        private final Text text;
+
+        private Rendered(long stamp, Text text) {
+            this.stamp = stamp;
+            this.text = text;
+        }
+    }
+
     public static class Empty extends NucleusTextTemplateImpl {
 
         public static NucleusTextTemplateImpl INSTANCE;
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.usercache;
+
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheVersionNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the user cache and its index, along with the cache being built by a file walk.
+ *
+ * <p>A walk builds a new cache and index alongside the live ones, which keep serving lookups
+ * until the walk completes and they are swapped for the new ones. The entries the walk has
+ * found so far are held with the live cache, along with the checkpoint, so that they are saved
+ * with it and an interrupted walk can be resumed from them.</p>
+ *
+ * <p>Saves and deletions are applied to both caches, so that nothing that happens during a
+ * walk is lost when they are swapped.</p>
+ */
+public final class UserCacheData {
+
+    private UserCacheVersionNode data;
+    private UserCacheIndex index;
+
+    // Only set while a walk is running. The cache being built is the walk node of the data.
+    @Nullable private UserCacheIndex buildingIndex;
+
+    public UserCacheData(UserCacheVersionNode data) {
+        set(data);
+    }
+
+    /**
+     * Replaces the live cache. A walk that is running is abandoned, but can be resumed from the
+     * new cache if it holds one.
+     *
+     * @param data The cache
+     */
+    public synchronized void set(UserCacheVersionNode data) {
+        this.data = data;
+        this.index = new UserCacheIndex();
+        this.index.rebuild(data.getNode());
+        this.buildingIndex = null;
+    }
+
+    public synchronized UserCacheVersionNode copy() {
+        return this.data.copy();
+    }
+
+    public synchronized int getVersion() {
+        return this.data.getVersion();
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.data.getNode().isEmpty();
+    }
+
+    public synchronized boolean isWalkInProgress() {
+        return this.data.isWalkInProgress();
+    }
+
+    public synchronized Optional<UUID> getWalkCheckpoint() {
+        return this.data.getWalkCheckpoint();
+    }
+
+    public synchronized List<UUID> getForIp(String ip) {
+        return this.index.getForIp(ip);
+    }
+
+    public synchronized List<UUID> getJailed() {
+        return this.index.getJailed();
+    }
+
+    public synchronized List<UUID> getJailedIn(String name) {
+        return this.index.getJailedIn(name);
+    }
+
+    public synchronized List<UUID> getMuted() {
+        return this.index.getMuted();
+    }
+
+    public synchronized void update(UUID uuid, UserCacheDataNode node) {
+        put(this.data.getNode(), this.index, uuid, node);
+        Map<UUID, UserCacheDataNode> walked = this.data.getWalkNode();
+        if (walked != null) {
+            put(walked, this.buildingIndex, uuid, node);
+        }
+    }
+
+    public synchronized void remove(UUID uuid) {
+        remove(this.data.getNode(), this.index, uuid);
+        Map<UUID, UserCacheDataNode> walked = this.data.getWalkNode();
+        if (walked != null) {
+            remove(walked, this.buildingIndex, uuid);
+        }
+    }
+
+    /**
+     * Starts building a new cache for a walk.
+     *
+     * <p>A walk is only resumed if the entries it found before its checkpoint were saved with
+     * the cache. Otherwise, it starts again from the beginning.</p>
+     *
+     * @param resume Whether to resume the walk in progress
+     * @return The checkpoint the walk resumes from, or null if it starts from the beginning
+     */
+    @Nullable
+    public synchronized UUID startWalk(boolean resume) {
+        Map<UUID, UserCacheDataNode> walked = resume ? this.data.getWalkNode() : null;
+        UUID resumeFrom = walked == null ? null : this.data.getWalkCheckpoint().orElse(null);
+        walked = resumeFrom == null ? new HashMap<>() : new HashMap<>(walked);
+
+        this.buildingIndex = new UserCacheIndex();
+        this.buildingIndex.rebuild(walked);
+        this.data.setWalkInProgress(true);
+        this.data.setWalkCheckpoint(resumeFrom);
+        this.data.setWalkNode(walked);
+        return resumeFrom;
+    }
+
+    /**
+     * Adds an entry found by a walk to the cache being built, unless a save has already put a
+     * newer one there.
+     *
+     * @param uuid The {@link UUID}
+     * @param node The entry
+     */
+    public synchronized void addIfAbsent(UUID uuid, UserCacheDataNode node) {
+        Map<UUID, UserCacheDataNode> walked = this.data.getWalkNode();
+        if (this.buildingIndex != null && walked != null && walked.putIfAbsent(uuid, node) == null) {
+            this.buildingIndex.add(uuid, node);
+        }
+    }
+
+    public synchronized void setWalkCheckpoint(UUID uuid) {
+        this.data.setWalkCheckpoint(uuid);
+    }
+
+    /**
+     * Swaps the live cache for the one built by the walk.
+     */
+    public synchronized void completeWalk() {
+        Map<UUID, UserCacheDataNode> walked = this.data.getWalkNode();
+        if (this.buildingIndex != null && walked != null) {
+            UserCacheVersionNode built = new UserCacheVersionNode();
+            built.getNode().putAll(walked);
+            this.data = built;
+            this.index = this.buildingIndex;
+            this.buildingIndex = null;
+        }
+    }
+
+    /**
+     * Stops building the cache, leaving what the walk has found and its checkpoint so that the
+     * walk can be resumed.
+     */
+    public synchronized void abandonWalk() {
+        this.buildingIndex = null;
+    }
+
+    private static void put(Map<UUID, UserCacheDataNode> map, @Nullable UserCacheIndex index, UUID uuid, UserCacheDataNode node) {
+        UserCacheDataNode previous = map.put(uuid, node);
+        if (index != null) {
+            if (previous != null) {
+                index.remove(uuid, previous);
+            }
+
+            index.add(uuid, node);
+        }
+    }
+
+    private static void remove(Map<UUID, UserCacheDataNode> map, @Nullable UserCacheIndex index, UUID uuid) {
+        UserCacheDataNode previous = map.remove(uuid);
+        if (previous != null && index != null) {
+            index.remove(uuid, previous);
+        }
+    }
+}
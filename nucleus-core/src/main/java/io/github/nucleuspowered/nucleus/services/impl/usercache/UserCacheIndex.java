@@ -0,0 +1,87 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.usercache;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Secondary indexes over the user cache, so that lookups only touch the users that match.
+ *
+ * <p>This class is not thread safe, callers must synchronise on it.</p>
+ */
+public final class UserCacheIndex {
+
+    private final Map<String, Set<UUID>> ipAddresses = new HashMap<>();
+    private final Map<String, Set<UUID>> jails = new HashMap<>();
+    private final Set<UUID> muted = new HashSet<>();
+
+    public void add(UUID uuid, UserCacheDataNode node) {
+        node.getIpAddress().ifPresent(x -> this.ipAddresses.computeIfAbsent(x, k -> new HashSet<>()).add(uuid));
+        node.getJailName().ifPresent(x -> this.jails.computeIfAbsent(x.toLowerCase(Locale.ROOT), k -> new HashSet<>()).add(uuid));
+        if (node.isMuted()) {
+            this.muted.add(uuid);
+        }
+    }
+
+    public void remove(UUID uuid, UserCacheDataNode node) {
+        node.getIpAddress().ifPresent(x -> removeFrom(this.ipAddresses, x, uuid));
+        node.getJailName().ifPresent(x -> removeFrom(this.jails, x.toLowerCase(Locale.ROOT), uuid));
+        this.muted.remove(uuid);
+    }
+
+    public void rebuild(Map<UUID, UserCacheDataNode> data) {
+        this.ipAddresses.clear();
+        this.jails.clear();
+        this.muted.clear();
+        data.forEach(this::add);
+    }
+
+    public List<UUID> getForIp(String ip) {
+        return copy(this.ipAddresses.get(ip));
+    }
+
+    public List<UUID> getJailed() {
+        ImmutableList.Builder<UUID> builder = ImmutableList.builder();
+        this.jails.values().forEach(builder::addAll);
+        return builder.build();
+    }
+
+    public List<UUID> getJailedIn(String name) {
+        return copy(this.jails.get(name.toLowerCase(Locale.ROOT)));
+    }
+
+    public List<UUID> getMuted() {
+        return ImmutableList.copyOf(this.muted);
+    }
+
+    private static List<UUID> copy(@Nullable Set<UUID> uuids) {
+        if (uuids == null) {
+            return ImmutableList.of();
+        }
+
+        return ImmutableList.copyOf(uuids);
+    }
+
+    private static void removeFrom(Map<String, Set<UUID>> index, String key, UUID uuid) {
+        Set<UUID> uuids = index.get(key);
+        if (uuids != null) {
+            uuids.remove(uuid);
+            if (uuids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
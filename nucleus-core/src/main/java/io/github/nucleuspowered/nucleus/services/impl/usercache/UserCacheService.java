@@ -4,30 +4,38 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.usercache;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
 import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheVersionNode;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.UserQueryObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import io.github.nucleuspowered.nucleus.services.interfaces.IUserCacheService;
-import io.github.nucleuspowered.storage.services.IStorageService;
+import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.gson.GsonConfigurationLoader;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.slf4j.Logger;
 import org.spongepowered.api.Sponge;
-import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.util.Identifiable;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -38,38 +46,54 @@ import javax.inject.Singleton;
 public class UserCacheService implements IUserCacheService, IReloadableService.DataLocationReloadable {
 
     private static final int expectedVersion = new UserCacheVersionNode().getVersion();
-    private boolean isWalking = false;
+    private static final int WALK_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int WALK_BATCH_SIZE = 250;
+    private static final long WALK_REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+    private volatile boolean isWalking = false;
 
     private final Supplier<Path> dataDirectory;
     private final Object lockingObject = new Object();
     private final IStorageManager storageManager;
+    private final Logger logger;
+    private final IMessageProviderService messageProvider;
 
-    private UserCacheVersionNode data;
+    private final UserCacheData data = new UserCacheData(new UserCacheVersionNode());
 
     @Inject
     public UserCacheService(INucleusServiceCollection serviceCollection) {
         this.dataDirectory = serviceCollection.dataDir();
         this.storageManager = serviceCollection.storageManager();
+        this.logger = serviceCollection.logger();
+        this.messageProvider = serviceCollection.messageProvider();
         serviceCollection.reloadableService().registerDataFileReloadable(this);
         load();
+
+        // Keeps the cache up to date as mutes, jails and so on are saved, rather than
+        // refreshing it on every lookup.
+        this.storageManager.getUserService().addSaveListener(this::updateCacheForPlayer);
+        this.storageManager.getUserService().addDeleteListener(this::removeFromCache);
     }
 
     @Override public void load() {
+        UserCacheVersionNode loaded;
         try {
-            this.data = configurationLoader()
+            loaded = configurationLoader()
                     .load()
                     .getValue(TypeToken.of(UserCacheVersionNode.class), (Supplier<UserCacheVersionNode>) UserCacheVersionNode::new);
         } catch (IOException | ObjectMappingException e) {
             e.printStackTrace();
-            this.data = new UserCacheVersionNode();
+            loaded = new UserCacheVersionNode();
         }
+
+        this.data.set(loaded);
     }
 
     @Override public void save() {
         try {
+            UserCacheVersionNode toSave = this.data.copy();
             GsonConfigurationLoader gsonConfigurationLoader = configurationLoader();
             ConfigurationNode node = gsonConfigurationLoader.createEmptyNode();
-            node.setValue(TypeToken.of(UserCacheVersionNode.class), this.data);
+            node.setValue(TypeToken.of(UserCacheVersionNode.class), toSave);
             gsonConfigurationLoader.save(node);
         } catch (ObjectMappingException | IOException e) {
             e.printStackTrace();
@@ -78,41 +102,33 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
     }
 
     @Override public List<UUID> getForIp(String ip) {
-        updateCacheForOnlinePlayers();
-        String ipToCheck = ip.replace("/", "");
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue()
-                .getIpAddress().map(y -> y.equals(ipToCheck)).orElse(false))
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return this.data.getForIp(ip.replace("/", ""));
     }
 
     @Override public List<UUID> getJailed() {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue().isJailed())
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return this.data.getJailed();
     }
 
     @Override public List<UUID> getJailedIn(String name) {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream()
-                .filter(x -> x.getValue().getJailName().map(y -> y.equalsIgnoreCase(name)).orElse(false))
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return this.data.getJailedIn(name);
     }
 
     @Override public List<UUID> getMuted() {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue().isMuted())
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return this.data.getMuted();
     }
 
     @Override public void updateCacheForOnlinePlayers() {
         IUserQueryObject iuq = new UserQueryObject();
         iuq.addAllKeys(Sponge.getServer().getOnlinePlayers().stream().map(Identifiable::getUniqueId).collect(Collectors.toList()));
-        this.storageManager.getUserService().getAll(iuq).thenAccept(result ->
-                result.forEach((uuid, obj) -> this.data.getNode().computeIfAbsent(uuid, x -> new UserCacheDataNode()).set(obj)));
+        this.storageManager.getUserService().getAll(iuq).thenAccept(result -> result.forEach(this::updateCacheForPlayer));
     }
 
     @Override public void updateCacheForPlayer(UUID uuid, IUserDataObject u) {
-        this.data.getNode().computeIfAbsent(uuid, x -> new UserCacheDataNode()).set(u);
+        this.data.update(uuid, new UserCacheDataNode(u));
+    }
+
+    private void removeFromCache(UUID uuid) {
+        this.data.remove(uuid);
     }
 
     @Override public void updateCacheForPlayer(UUID uuid) {
@@ -120,8 +136,12 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
     }
 
     @Override public void startFilewalkIfNeeded() {
-        if (!this.isWalking && (!isCorrectVersion() || this.data.getNode().isEmpty())) {
-            fileWalk();
+        if (!this.isWalking) {
+            if (this.data.isWalkInProgress() && isCorrectVersion()) {
+                walk(true);
+            } else if (!isCorrectVersion() || this.data.isEmpty()) {
+                walk(false);
+            }
         }
     }
 
@@ -130,6 +150,10 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
     }
 
     @Override public boolean fileWalk() {
+        return walk(false);
+    }
+
+    private boolean walk(boolean resume) {
         synchronized (this.lockingObject) {
             if (this.isWalking) {
                 return false;
@@ -138,33 +162,104 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
             this.isWalking = true;
         }
 
+        ExecutorService executorService = null;
         try {
-            Map<UUID, UserCacheDataNode> data = Maps.newHashMap();
-            List<UUID> knownUsers = Sponge.getServiceManager().provideUnchecked(UserStorageService.class).getAll().stream()
-                    .map(Identifiable::getUniqueId).collect(Collectors.toList());
-
-            int count = 0;
-            IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> manager = this.storageManager.getUserService();
-            for (UUID user : knownUsers) {
-                if (manager.exists(user).join()) {
-                    manager.get(user).join().ifPresent(x -> data.put(user, new UserCacheDataNode(x)));
-                    if (++count >= 10) {
-                        manager.clearCache();
-                        count = 0;
-                    }
+            // Anything waiting to be written would otherwise be missed by the walk.
+            this.storageManager.flushPendingWrites();
+
+            // The live cache keeps serving lookups until the walk completes.
+            Optional<UUID> checkpoint = Optional.ofNullable(this.data.startWalk(resume));
+            save();
+
+            List<UUID> keys = this.storageManager.getUserRepository().getAllKeys().stream()
+                    .sorted()
+                    .collect(Collectors.toList());
+            int total = keys.size();
+            if (checkpoint.isPresent()) {
+                UUID from = checkpoint.get();
+                keys = keys.stream().filter(x -> x.compareTo(from) > 0).collect(Collectors.toList());
+                this.logger.info(this.messageProvider.getMessageString("usercache.walk.resume", total - keys.size(), total));
+            } else {
+                this.logger.info(this.messageProvider.getMessageString("usercache.walk.start", total));
+            }
+
+            executorService = Executors.newFixedThreadPool(WALK_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("Nucleus User Cache Walker - %d").setDaemon(true).build());
+            List<List<UUID>> batches = Lists.partition(keys, WALK_BATCH_SIZE);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (List<UUID> batch : batches) {
+                results.add(executorService.submit(() -> walkBatch(batch)));
+            }
+
+            // Batches are waited on in order, so everything before the checkpoint has always been walked.
+            long start = System.nanoTime();
+            long lastReport = start;
+            int done = total - keys.size();
+            int walked = 0;
+            int failed = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                List<UUID> batch = batches.get(i);
+                int loaded = results.get(i).get();
+                walked += batch.size();
+                done += batch.size();
+                failed += batch.size() - loaded;
+                UUID last = batch.get(batch.size() - 1);
+                this.data.setWalkCheckpoint(last);
+
+                long now = System.nanoTime();
+                if (now - lastReport >= WALK_REPORT_INTERVAL) {
+                    lastReport = now;
+                    save();
+                    this.logger.info(this.messageProvider.getMessageString("usercache.walk.progress",
+                            done, total, perSecond(walked, now - start)));
                 }
             }
 
-            this.data = new UserCacheVersionNode();
-            this.data.getNode().putAll(data);
+            this.data.completeWalk();
+            save();
+            this.logger.info(this.messageProvider.getMessageString("usercache.walk.complete",
+                    walked, perSecond(walked, System.nanoTime() - start), failed));
+        } catch (Exception e) {
+            // What the walk found and its checkpoint are saved, it will pick up from there next time.
+            this.logger.error(this.messageProvider.getMessageString("usercache.walk.failed"), e);
+            this.data.abandonWalk();
             save();
+            return false;
         } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+
             this.isWalking = false;
         }
 
         return true;
     }
 
+    private int walkBatch(List<UUID> batch) {
+        IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> repository = this.storageManager.getUserRepository();
+        IDataTranslator<IUserDataObject, ConfigurationNode> translator = this.storageManager.getUserDataAccess();
+        int loaded = 0;
+        for (UUID uuid : batch) {
+            try {
+                Optional<ConfigurationNode> node = repository.get(uuid);
+                if (node.isPresent()) {
+                    this.data.addIfAbsent(uuid, new UserCacheDataNode(translator.fromDataAccessObject(node.get())));
+                }
+
+                loaded++;
+            } catch (Exception e) {
+                this.logger.warn(this.messageProvider.getMessageString("usercache.walk.userfailed", uuid.toString()));
+            }
+        }
+
+        return loaded;
+    }
+
+    private static long perSecond(int count, long nanos) {
+        return nanos <= 0 ? count : (long) (count / (nanos / 1e9));
+    }
+
     private GsonConfigurationLoader configurationLoader() {
         return GsonConfigurationLoader.builder()
                 .setPath(this.dataDirectory.get().resolve("usercache.json"))
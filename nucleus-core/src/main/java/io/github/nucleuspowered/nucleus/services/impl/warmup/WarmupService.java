@@ -4,8 +4,6 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.warmup;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
@@ -17,32 +15,68 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IWarmupService;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.SpongeExecutorService;
 import org.spongepowered.api.scheduler.Task;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all warmups from a single task that ticks a hashed wheel, rather than submitting a
+ * scheduler task for each warmup.
+ *
+ * <p>Each player has at most one warmup, held in a concurrent map. Starting, cancelling and
+ * completing a warmup are decided by a compare and set on the warmup itself, so no locks are
+ * taken. New warmups are queued and placed on the wheel by the ticking task, which is the only
+ * thread that touches the wheel. Cancelled warmups are left on the wheel and dropped when their
+ * slot next comes round.</p>
+ */
 @Singleton
 public class WarmupService implements IWarmupService, IReloadableService.Reloadable {
 
-    private final Object lockingObject = new Object();
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    // 1024 ticks is a little over 51 seconds, longer warmups go round the wheel more than once.
+    private static final int WHEEL_SIZE = 1024;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
 
     private final PluginContainer pluginContainer;
     private final IMessageProviderService messageProviderService;
     private WarmupConfig warmupConfig = new WarmupConfig();
 
-    // player to task
-    private final BiMap<UUID, UUID> tasks = HashBiMap.create();
+    // player to their pending warmup
+    private final Map<UUID, Warmup> warmups = new ConcurrentHashMap<>();
+
+    // warmups that have not yet been placed on the wheel
+    private final Queue<Warmup> incoming = new ConcurrentLinkedQueue<>();
 
-    // task to warmup
-    private final BiMap<UUID, WarmupTask> uuidToWarmup = HashBiMap.create();
+    // only touched by the ticking task
+    private final List<List<Warmup>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long processedTick;
+
+    // The wheel is keyed by ticks of wall clock time since this origin, so that warmups are not
+    // stretched out when the server is behind, the ticking task just catches up.
+    private final long origin = System.nanoTime();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private SpongeExecutorService asyncExecutor;
 
     @Inject
     public WarmupService(PluginContainer pluginContainer, IMessageProviderService messageProviderService, IReloadableService reloadableService) {
         this.pluginContainer = pluginContainer;
         this.messageProviderService = messageProviderService;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel.add(new ArrayList<>());
+        }
+
         reloadableService.registerReloadable(this);
     }
 
@@ -63,86 +97,149 @@ public class WarmupService implements IWarmupService, IReloadableService.Reloada
     }
 
     private void execute(Player target, Duration duration, WarmupTask runnable, boolean async, boolean sendMessage) {
-        synchronized (this.lockingObject) {
-            cancelInternal(target);
-
-            if (sendMessage) {
-                this.messageProviderService.sendMessageTo(target, "warmup.start",
-                        this.messageProviderService.getTimeString(target.getLocale(), duration));
-                if (this.warmupConfig.isOnCommand() && this.warmupConfig.isOnMove()) {
-                    this.messageProviderService.sendMessageTo(target, "warmup.both");
-                } else if (this.warmupConfig.isOnCommand()) {
-                    this.messageProviderService.sendMessageTo(target, "warmup.onCommand");
-                } else if (this.warmupConfig.isOnMove()) {
-                    this.messageProviderService.sendMessageTo(target, "warmup.onMove");
-                }
+        start();
+        cancel(target);
+
+        if (sendMessage) {
+            this.messageProviderService.sendMessageTo(target, "warmup.start",
+                    this.messageProviderService.getTimeString(target.getLocale(), duration));
+            if (this.warmupConfig.isOnCommand() && this.warmupConfig.isOnMove()) {
+                this.messageProviderService.sendMessageTo(target, "warmup.both");
+            } else if (this.warmupConfig.isOnCommand()) {
+                this.messageProviderService.sendMessageTo(target, "warmup.onCommand");
+            } else if (this.warmupConfig.isOnMove()) {
+                this.messageProviderService.sendMessageTo(target, "warmup.onMove");
             }
+        }
 
-            // build the task
-            final UUID playerTarget = target.getUniqueId();
-            Consumer<Task> taskToSubmit = task -> {
-                this.tasks.remove(playerTarget);
-                this.uuidToWarmup.remove(task.getUniqueId());
-
-                if (Sponge.getServer().getPlayer(playerTarget).isPresent()) {
-                    // Only run if the player is still on the server.
-                    runnable.run();
-                }
-            };
-
-            Task.Builder builder = Task.builder()
-                    .execute(taskToSubmit)
-                    .delay(duration.toMillis(), TimeUnit.MILLISECONDS)
-                    .name("Nucleus Warmup task: " + playerTarget.toString());
-            if (async) {
-                builder.async();
-            }
-            Task t = builder.submit(this.pluginContainer);
-            this.tasks.put(playerTarget, t.getUniqueId());
-            this.uuidToWarmup.put(t.getUniqueId(), runnable);
+        long deadline = System.nanoTime() - this.origin + duration.toNanos();
+        Warmup warmup = new Warmup(target.getUniqueId(), runnable, async, (deadline + TICK_NANOS - 1) / TICK_NANOS);
+        Warmup previous = this.warmups.put(warmup.player, warmup);
+        if (previous != null) {
+            // Another warmup was started for this player at the same time.
+            previous.cancel();
         }
+
+        this.incoming.add(warmup);
     }
 
     @Override public boolean cancel(Player player) {
-        synchronized (this.lockingObject) {
-            return cancelInternal(player);
-        }
+        Warmup warmup = this.warmups.remove(player.getUniqueId());
+        return warmup != null && warmup.cancel();
     }
 
-    private boolean cancelInternal(Player player) {
-        UUID taskUUID = this.tasks.get(player.getUniqueId());
-        if (taskUUID != null) {
-            Sponge.getScheduler().getTaskById(taskUUID).ifPresent(Task::cancel);
-            WarmupTask task = this.uuidToWarmup.get(taskUUID);
-            if (task != null) {
-                // if we get here, it was never cancelled.
-                task.onCancel();
-            }
+    @Override public boolean awaitingExecution(Player player) {
+        Warmup warmup = this.warmups.get(player.getUniqueId());
+        return warmup != null && warmup.isPending();
+    }
+
+    @Override
+    public void onReload(INucleusServiceCollection serviceCollection) {
+        this.warmupConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getWarmupConfig();
+    }
 
-            this.uuidToWarmup.remove(taskUUID);
+    private void start() {
+        if (this.started.compareAndSet(false, true)) {
+            this.asyncExecutor = Sponge.getScheduler().createAsyncExecutor(this.pluginContainer);
+            this.processedTick = currentTick();
+            Task.builder()
+                    .execute(this::tick)
+                    .intervalTicks(1)
+                    .name("Nucleus Warmup task")
+                    .submit(this.pluginContainer);
         }
-        this.tasks.remove(player.getUniqueId());
-        return taskUUID != null;
     }
 
-    @Override public boolean awaitingExecution(Player player) {
-        synchronized (this.lockingObject) {
-            UUID taskUUID = this.tasks.get(player.getUniqueId());
-            if (taskUUID != null) {
-                if (Sponge.getScheduler().getTaskById(taskUUID).isPresent()) {
-                    // remove entries
+    private long currentTick() {
+        return (System.nanoTime() - this.origin) / TICK_NANOS;
+    }
+
+    private void tick() {
+        Warmup warmup;
+        while ((warmup = this.incoming.poll()) != null) {
+            if (warmup.isPending()) {
+                // Anything that is already due goes in the next slot to be processed.
+                this.wheel.get((int) (Math.max(warmup.deadlineTick, this.processedTick + 1) & WHEEL_MASK)).add(warmup);
+            }
+        }
+
+        long target = currentTick();
+        while (this.processedTick < target) {
+            long tick = ++this.processedTick;
+            this.wheel.get((int) (tick & WHEEL_MASK)).removeIf(x -> {
+                if (!x.isPending()) {
                     return true;
-                } else {
-                    this.uuidToWarmup.remove(taskUUID);
                 }
+
+                if (x.deadlineTick <= tick) {
+                    fire(x);
+                    return true;
+                }
+
+                return false;
+            });
+        }
+    }
+
+    private void fire(Warmup warmup) {
+        if (!warmup.complete()) {
+            return;
+        }
+
+        this.warmups.remove(warmup.player, warmup);
+        if (warmup.async) {
+            this.asyncExecutor.execute(() -> run(warmup));
+        } else {
+            run(warmup);
+        }
+    }
+
+    private void run(Warmup warmup) {
+        try {
+            if (Sponge.getServer().getPlayer(warmup.player).isPresent()) {
+                // Only run if the player is still on the server.
+                warmup.task.run();
             }
-            this.tasks.remove(player.getUniqueId());
-            return false;
+        } catch (Exception e) {
+            this.pluginContainer.getLogger().error("Error running the warmup for " + warmup.player.toString(), e);
         }
     }
 
-    @Override
-    public void onReload(INucleusServiceCollection serviceCollection) {
-        this.warmupConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getWarmupConfig();
+    private static final class Warmup {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int COMPLETED = 2;
+
+        private final UUID player;
+        private final WarmupTask task;
+        private final boolean async;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Warmup(UUID player, WarmupTask task, boolean async, long deadlineTick) {
+            this.player = player;
+            this.task = task;
+            this.async = async;
+            this.deadlineTick = deadlineTick;
+        }
+
+        private boolean isPending() {
+            return this.state.get() == PENDING;
+        }
+
+        private boolean cancel() {
+            if (this.state.compareAndSet(PENDING, CANCELLED)) {
+                // if we get here, it was never run.
+                this.task.onCancel();
+                return true;
+            }
+
+            return false;
+        }
+
+        private boolean complete() {
+            return this.state.compareAndSet(PENDING, COMPLETED);
+        }
     }
 }
@@ -10,6 +10,7 @@ import org.spongepowered.api.util.Identifiable;
 
 import java.time.Duration;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * A service that contains information about cooldowns.
@@ -53,4 +54,25 @@ public interface ICooldownService {
      */
     void clearCooldown(String key, Identifiable identifiable);
 
+    /**
+     * Restores the saved cooldowns of the player, if they have not been restored already, so
+     * that their first cooldown check does not have to.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    void preload(UUID uuid);
+
+    /**
+     * Loads the cooldowns that were saved by {@link #save()}. Each player's cooldowns are
+     * restored the first time they are needed.
+     */
+    void load();
+
+    /**
+     * Saves all cooldowns that have not yet expired, so that they survive a restart.
+     *
+     * <p>This performs file IO, so should not be called on the main thread.</p>
+     */
+    void save();
+
 }
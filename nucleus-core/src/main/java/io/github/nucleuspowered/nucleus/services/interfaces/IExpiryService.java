@@ -0,0 +1,60 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.interfaces;
+
+import com.google.inject.ImplementedBy;
+import io.github.nucleuspowered.nucleus.services.impl.expiry.ExpiryService;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A service that tracks when timed punishments of online players, such as mutes and jailings,
+ * end, so that they can be lifted when they do.
+ */
+@ImplementedBy(ExpiryService.class)
+public interface IExpiryService {
+
+    /**
+     * Registers the action to take when a deadline of the supplied kind passes. The action is
+     * not called on the main thread.
+     *
+     * @param kind The kind of deadline, such as the ID of the module that sets them
+     * @param handler The action, which accepts the {@link UUID} of the player
+     */
+    void registerExpiryHandler(String kind, Consumer<UUID> handler);
+
+    /**
+     * Sets the deadline of the supplied kind for a player, replacing any previous deadline of
+     * that kind. Deadlines are dropped when the player disconnects.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param kind The kind of deadline
+     * @param deadline The deadline
+     */
+    void schedule(UUID uuid, String kind, Instant deadline);
+
+    /**
+     * Removes the deadline of the supplied kind for a player, if there is one.
+     *
+     * @param uuid The {@link UUID} of the player
+     * @param kind The kind of deadline
+     */
+    void cancel(UUID uuid, String kind);
+
+    /**
+     * Removes all deadlines for a player.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    void cancelAll(UUID uuid);
+
+    /**
+     * Removes the deadlines that have passed, and calls the handler for each of them.
+     */
+    void expire();
+
+}
@@ -10,6 +10,10 @@ import io.github.nucleuspowered.nucleus.services.impl.texttemplatefactory.Nucleu
 import io.github.nucleuspowered.nucleus.services.impl.texttemplatefactory.NucleusTextTemplateImpl;
 import org.spongepowered.api.text.Text;
 
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
 @ImplementedBy(NucleusTextTemplateFactoryImpl.class)
 public interface INucleusTextTemplateFactory extends NucleusTextTemplateFactory {
 
@@ -18,4 +22,35 @@ public interface INucleusTextTemplateFactory extends NucleusTextTemplateFactory
     NucleusTextTemplateImpl createFromAmpersandString(String string);
 
     NucleusTextTemplateImpl createFromAmpersandString(String string, Text prefix, Text suffix);
+
+    /**
+     * Discards the text that templates have rendered for the specified player, such as after
+     * their nickname changes.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    void invalidateRenderCache(UUID uuid);
+
+    /**
+     * Discards all text that templates have rendered, such as after permissions change.
+     */
+    void invalidateRenderCache();
+
+    /**
+     * Gets the point after which text rendered for the specified source may be reused.
+     *
+     * <p>Rendered text may be reused if it was rendered at or after this stamp, as returned
+     * by {@link #getRenderStamp()} before it was rendered.</p>
+     *
+     * @param uuid The {@link UUID} of the source, if it has one
+     * @return The stamp
+     */
+    long getInvalidationStamp(@Nullable UUID uuid);
+
+    /**
+     * Gets the stamp to associate with text that is about to be rendered.
+     *
+     * @return The stamp
+     */
+    long getRenderStamp();
 }
@@ -82,6 +82,33 @@ public interface IPermissionService {
 
     void removePlayerContexts(UUID uuid);
 
+    /**
+     * Discards all cached permission and option results, so that the next checks go to the
+     * permission plugin.
+     */
+    void invalidateCache();
+
+    /**
+     * Discards the cached permission and option results for the specified subject.
+     *
+     * @param uuid The {@link UUID} of the subject
+     */
+    void invalidateCache(UUID uuid);
+
+    /**
+     * Gets the number of permission and option checks that were answered from the cache.
+     *
+     * @return The number of cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Gets the number of permission and option checks that had to go to the permission plugin.
+     *
+     * @return The number of cache misses
+     */
+    long getCacheMisses();
+
     interface Metadata {
 
         boolean isPrefix();
@@ -6,6 +6,7 @@ package io.github.nucleuspowered.nucleus.services.interfaces;
 
 import com.google.inject.ImplementedBy;
 import io.github.nucleuspowered.nucleus.api.placeholder.NucleusPlaceholderService;
+import io.github.nucleuspowered.nucleus.services.impl.placeholder.CompiledPlaceholder;
 import io.github.nucleuspowered.nucleus.services.impl.placeholder.PlaceholderMetadata;
 import io.github.nucleuspowered.nucleus.services.impl.placeholder.PlaceholderService;
 import org.spongepowered.api.text.placeholder.PlaceholderParser;
@@ -23,4 +24,13 @@ public interface IPlaceholderService extends NucleusPlaceholderService {
     void registerToken(String tokenName, PlaceholderParser parser, boolean document);
 
     Map<String, PlaceholderMetadata> getNucleusParsers();
+
+    /**
+     * Resolves the parser, argument and modifiers for the supplied token, which may be
+     * wrapped in braces. Compiled tokens are cached.
+     *
+     * @param input The token
+     * @return The {@link CompiledPlaceholder}
+     */
+    CompiledPlaceholder compile(String input);
 }
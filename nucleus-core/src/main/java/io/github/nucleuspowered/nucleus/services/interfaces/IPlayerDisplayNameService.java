@@ -36,6 +36,15 @@ public interface IPlayerDisplayNameService {
      */
     Map<UUID, List<String>> startsWith(String displayName);
 
+    /**
+     * Gets the {@link UUID} of the online players that have a real name
+     * that starts with the given parameter, ignoring case.
+     *
+     * @param name The start of the name
+     * @return The {@link UUID}s, mapped to the real names
+     */
+    Map<UUID, String> startsWithRealName(String name);
+
     Text getDisplayName(UUID playerUUID);
 
     default Text getDisplayName(Player player) {
@@ -48,6 +57,35 @@ public interface IPlayerDisplayNameService {
 
     Text getDisplayName(CommandSource source);
 
+    /**
+     * Discards the cached display name for the specified player, so that it is
+     * recreated the next time it is requested.
+     *
+     * @param playerUUID The {@link UUID} of the player
+     */
+    void invalidateDisplayName(UUID playerUUID);
+
+    /**
+     * Discards all cached display names.
+     */
+    void invalidateDisplayNames();
+
+    /**
+     * Adds the real name of a player that has joined to those that
+     * {@link #startsWithRealName(String)} searches.
+     *
+     * @param playerUUID The {@link UUID} of the player
+     * @param name The real name of the player
+     */
+    void addOnlinePlayer(UUID playerUUID, String name);
+
+    /**
+     * Removes the real name of a player that has left.
+     *
+     * @param playerUUID The {@link UUID} of the player
+     */
+    void removeOnlinePlayer(UUID playerUUID);
+
     Text getName(CommandSource user);
 
     Text addCommandToName(CommandSource p);
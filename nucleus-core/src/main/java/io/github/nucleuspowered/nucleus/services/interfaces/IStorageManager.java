@@ -4,7 +4,6 @@
  */
 package io.github.nucleuspowered.nucleus.services.interfaces;
 
-import com.google.gson.JsonObject;
 import com.google.inject.ImplementedBy;
 import io.github.nucleuspowered.nucleus.services.impl.storage.StorageManager;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IGeneralDataObject;
@@ -16,6 +15,7 @@ import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorl
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.services.IStorageService;
+import ninja.leaping.configurate.ConfigurationNode;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -32,21 +32,21 @@ public interface IStorageManager {
 
     IStorageService.Keyed.KeyedData<UUID, IWorldQueryObject, IWorldDataObject> getWorldService();
 
-    IDataTranslator<IUserDataObject, JsonObject> getUserDataAccess();
+    IDataTranslator<IUserDataObject, ConfigurationNode> getUserDataAccess();
 
-    IDataTranslator<IWorldDataObject, JsonObject> getWorldDataAccess();
+    IDataTranslator<IWorldDataObject, ConfigurationNode> getWorldDataAccess();
 
-    IDataTranslator<IGeneralDataObject, JsonObject> getGeneralDataAccess();
+    IDataTranslator<IGeneralDataObject, ConfigurationNode> getGeneralDataAccess();
 
-    IDataTranslator<IKitDataObject, JsonObject> getKitsDataAccess();
+    IDataTranslator<IKitDataObject, ConfigurationNode> getKitsDataAccess();
 
-    IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> getUserRepository();
+    IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> getUserRepository();
 
-    IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> getWorldRepository();
+    IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> getWorldRepository();
 
-    IStorageRepository.Single<JsonObject> getGeneralRepository();
+    IStorageRepository.Single<ConfigurationNode> getGeneralRepository();
 
-    IStorageRepository.Single<JsonObject> getKitsRepository();
+    IStorageRepository.Single<ConfigurationNode> getKitsRepository();
 
     CompletableFuture<Void> saveAndInvalidateAllCaches();
 
@@ -89,4 +89,10 @@ public interface IStorageManager {
     }
 
     CompletableFuture<Void> saveAll();
+
+    /**
+     * Writes any user or world data that is waiting in a write behind queue,
+     * blocking the calling thread until complete.
+     */
+    void flushPendingWrites();
 }
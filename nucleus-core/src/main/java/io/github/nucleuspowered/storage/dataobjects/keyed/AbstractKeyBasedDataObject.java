@@ -8,12 +8,55 @@ import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.config
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
 public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends AbstractConfigurateBackedDataObject implements IKeyedDataObject<T> {
 
+    // Marks a key that has been read and has no value.
+    private static final Object ABSENT = new Object();
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile long savedVersion = 0;
+
+    // Values that have been read, so that the object mapper only runs on the first read of a
+    // key after it is set. Collections are copied on the way out, so that changing a returned
+    // list or map does not change what the next read returns. Objects held in them are not
+    // copied, they must be set again once changed, as before.
+    private final Map<DataKey<?, ?>, Object> values = new ConcurrentHashMap<>();
+
+    @Override
+    public void setBackingNode(ConfigurationNode node) {
+        super.setBackingNode(node);
+        this.values.clear();
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    @Override
+    public void markSaved(long version) {
+        if (version > this.savedVersion) {
+            this.savedVersion = version;
+        }
+    }
+
+    @Override
+    public boolean isDirty() {
+        return this.version.get() != this.savedVersion;
+    }
+
     @Override
     public boolean has(DataKey<?, ? extends T> dataKey) {
         return !getNode(dataKey.getKey()).isVirtual();
@@ -24,13 +67,28 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
     }
 
     @Nullable
+    @SuppressWarnings("unchecked")
     public <V> V getNullable(DataKey<V, ? extends T> dataKey) {
-        try {
-            return getNode(dataKey.getKey()).getValue(dataKey.getType());
-        } catch (ObjectMappingException e) {
-            e.printStackTrace();
-            return null;
+        Object value = this.values.get(dataKey);
+        if (value == null) {
+            long version = this.version.get();
+            try {
+                value = getNode(dataKey.getKey()).getValue(dataKey.getType());
+            } catch (ObjectMappingException e) {
+                e.printStackTrace();
+                return null;
+            }
+
+            if (value == null) {
+                value = ABSENT;
+            }
+
+            // Not kept if the object changed while it was read, the value may be out of date.
+            Object read = value;
+            this.values.compute(dataKey, (k, existing) -> this.version.get() == version ? read : existing);
         }
+
+        return value == ABSENT ? null : (V) copy(value);
     }
 
     @Nullable
@@ -50,6 +108,8 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
     public <V> boolean set(DataKey<V, ? extends T> dataKey, V data) {
         try {
             getNode(dataKey.getKey()).setValue(dataKey.getType(), data);
+            this.version.incrementAndGet();
+            this.values.remove(dataKey);
             return true;
         } catch (ObjectMappingException e) {
             e.printStackTrace();
@@ -59,6 +119,24 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
 
     public void remove(DataKey<?, ? extends T> dataKey) {
         getNode(dataKey.getKey()).setValue(null);
+        this.version.incrementAndGet();
+        this.values.remove(dataKey);
+    }
+
+    // Copies the collections that the keys hold, and the lists in a map of lists. Elements are
+    // not checked, as this is on every read.
+    private static Object copy(Object value) {
+        if (value instanceof List) {
+            return new ArrayList<>((List<?>) value);
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>((Map<?, ?>) value);
+            map.replaceAll((k, v) -> v instanceof List ? new ArrayList<>((List<?>) v) : v);
+            return map;
+        } else if (value instanceof Set) {
+            return new LinkedHashSet<>((Set<?>) value);
+        }
+
+        return value;
     }
 
     private ConfigurationNode getNode(String[] key) {
@@ -28,6 +28,29 @@ public interface IKeyedDataObject<T extends IKeyedDataObject<T>> extends IDataOb
 
     void remove(DataKey<?, ? extends T> dataKey);
 
+    /**
+     * Gets a counter that is incremented every time this object is modified.
+     *
+     * @return The version
+     */
+    long getVersion();
+
+    /**
+     * Indicates that this object has been persisted as it was at the given
+     * {@link #getVersion() version}.
+     *
+     * @param version The version that was saved
+     */
+    void markSaved(long version);
+
+    /**
+     * Gets whether this object has been modified since it was last loaded
+     * or saved.
+     *
+     * @return true if there are unsaved changes
+     */
+    boolean isDirty();
+
     interface Value<T> extends AutoCloseable {
 
         Optional<T> getValue();
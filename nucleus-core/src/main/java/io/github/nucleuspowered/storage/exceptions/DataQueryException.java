@@ -11,4 +11,8 @@ public class DataQueryException extends Exception {
     public DataQueryException(String message, IQueryObject queryObject) {
         super(message + " - " + queryObject.toString());
     }
+
+    public DataQueryException(String message, IQueryObject queryObject, Exception innerException) {
+        super(message + " - " + queryObject.toString(), innerException);
+    }
 }
@@ -4,13 +4,13 @@
  */
 package io.github.nucleuspowered.storage.persistence;
 
-import com.google.gson.JsonObject;
 import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
 import io.github.nucleuspowered.storage.exceptions.DataLoadException;
 import io.github.nucleuspowered.storage.exceptions.DataQueryException;
 import io.github.nucleuspowered.storage.exceptions.DataSaveException;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
+import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 
 import java.util.Collection;
@@ -22,8 +22,8 @@ import java.util.UUID;
  * Base interface for interfacing with storage engines. Implementors should implement one of the
  * sub interfaces, {@link Single} or {@link Keyed}, depending on the store.
  *
- * <p>Note that all data will be provided as {@link JsonObject}s. It is expected that the json going
- * into storage is equivalent to that coming out. You may inspect the json as you wish (which you may
+ * <p>Note that all data will be provided as {@link ConfigurationNode}s. It is expected that the node going
+ * into storage is equivalent to that coming out. You may inspect the node as you wish (which you may
  * want to do to support queries more effectively)</p>
  */
 public interface IStorageRepository {
@@ -113,10 +113,11 @@ public interface IStorageRepository {
          * Gets the number of objects that satisfies the query.
          *
          * @param query The query
-         * @return The number of items that satisfy the query, or -1 if the {@link #supportsNonKeyQueries()} is {@code false} and the query is more than
-         *         just a key.
+         * @return The number of items that satisfy the query
+         * @throws DataQueryException if the query is not supported, such as if
+         *         {@link #supportsNonKeyQueries()} is {@code false} and the query is more than just a key
          */
-        int count(Q query);
+        int count(Q query) throws DataQueryException;
 
         /**
          * Saves the supplied {@code object} in the position suggested by the supplied {@code query}
@@ -126,6 +127,20 @@ public interface IStorageRepository {
          */
         void save(K key, O object) throws ObjectMappingException, DataSaveException;
 
+        /**
+         * Saves all of the supplied objects against their keys.
+         *
+         * <p>Repositories that can write multiple objects more efficiently than one at a time,
+         * or can do so in a single transaction, should override this.</p>
+         *
+         * @param objects The objects to save, mapped against their keys
+         */
+        default void saveAll(Map<K, O> objects) throws ObjectMappingException, DataSaveException {
+            for (Map.Entry<K, O> entry : objects.entrySet()) {
+                save(entry.getKey(), entry.getValue());
+            }
+        }
+
         /**
          * Deletes the object at the supplied {@code key}
          *
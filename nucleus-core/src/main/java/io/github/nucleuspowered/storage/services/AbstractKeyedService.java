@@ -7,9 +7,10 @@ package io.github.nucleuspowered.storage.services;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import io.github.nucleuspowered.storage.dataobjects.keyed.DataKey;
 import io.github.nucleuspowered.storage.dataobjects.keyed.IKeyedDataObject;
@@ -17,21 +18,30 @@ import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
 import io.github.nucleuspowered.storage.util.ThrownBiConsumer;
+import io.github.nucleuspowered.storage.util.ThrownConsumer;
 import io.github.nucleuspowered.storage.util.ThrownFunction;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.plugin.PluginContainer;
 
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D extends IKeyedDataObject<D>>
         implements IStorageService.Keyed.KeyedData<UUID, Q, D> {
@@ -44,14 +54,42 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
                     return new ReentrantReadWriteLock();
                 }
             });
+    private static final long EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    // Keys that are held in the cache until they are unpinned, such as the data of online players,
+    // with the number of pins on each. A player who reconnects is pinned again before the unpin
+    // from their previous connection, so a single unpin must not release both.
+    private final Map<UUID, Integer> pinned = new ConcurrentHashMap<>();
+    private final LongAdder mainThreadMisses = new LongAdder();
+
+    // Unpinned objects expire five minutes after they were last accessed.
     private final Cache<UUID, D> cache = Caffeine.newBuilder()
-            .expireAfterAccess(5, TimeUnit.MINUTES)
+            .expireAfter(new Expiry<UUID, D>() {
+                @Override
+                public long expireAfterCreate(@NonNull UUID key, @NonNull D value, long currentTime) {
+                    return getExpiryNanos(key);
+                }
+
+                @Override
+                public long expireAfterUpdate(@NonNull UUID key, @NonNull D value, long currentTime, long currentDuration) {
+                    return getExpiryNanos(key);
+                }
+
+                @Override
+                public long expireAfterRead(@NonNull UUID key, @NonNull D value, long currentTime, long currentDuration) {
+                    return getExpiryNanos(key);
+                }
+            })
+            .removalListener(this::onRemoval)
             .build();
-    private final Set<UUID> dirty = new HashSet<>();
+    @Nullable private volatile WriteBehindQueue<UUID, D> writeBehindQueue = null;
+    private final List<BiConsumer<UUID, D>> saveListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<UUID>> deleteListeners = new CopyOnWriteArrayList<>();
 
     private final Supplier<IStorageRepository.Keyed<UUID, Q, ?>> storageRepositorySupplier;
     private final Supplier<D> createNew;
     private final ThrownBiConsumer<UUID, D, Exception> save;
+    private final ThrownConsumer<Map<UUID, D>, Exception> saveAll;
     private final ThrownFunction<Q, Map<UUID, D>, Exception> getAll;
     private final ThrownFunction<Q, Optional<KeyedObject<UUID, D>>, Exception> getQuery;
     private final ThrownFunction<UUID, Optional<D>, Exception> get;
@@ -68,6 +106,12 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
                         key,
                         dts.get().toDataAccessObject(udo)
                 ),
+                map -> {
+                    IDataTranslator<D, O> translator = dts.get();
+                    ImmutableMap.Builder<UUID, O> builder = ImmutableMap.builder();
+                    map.forEach((key, udo) -> builder.put(key, translator.toDataAccessObject(udo)));
+                    srs.get().saveAll(builder.build());
+                },
                 query -> srs.get()
                         .getAll(query)
                         .entrySet().stream()
@@ -87,6 +131,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
     private AbstractKeyedService(
             Supplier<D> createNew,
             ThrownBiConsumer<UUID, D, Exception> save,
+            ThrownConsumer<Map<UUID, D>, Exception> saveAll,
             ThrownFunction<Q, Map<UUID, D>, Exception> getAll,
             ThrownFunction<UUID, Optional<D>, Exception> get,
             ThrownFunction<Q, Optional<KeyedObject<UUID, D>>, Exception> getQuery,
@@ -96,6 +141,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         this.pluginContainer = pluginContainer;
         this.createNew = createNew;
         this.save = save;
+        this.saveAll = saveAll;
         this.getAll = getAll;
         this.get = get;
         this.getQuery = getQuery;
@@ -106,9 +152,171 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         return this.createNew.get();
     }
 
+    @Override
+    public void addSaveListener(BiConsumer<UUID, D> listener) {
+        this.saveListeners.add(listener);
+    }
+
+    @Override
+    public void addDeleteListener(Consumer<UUID> listener) {
+        this.deleteListeners.add(listener);
+    }
+
+    /**
+     * Enables write behind mode, where saves are queued and written in batches rather
+     * than being written immediately. If write behind is already enabled, the batch size
+     * is updated.
+     *
+     * @param maxBatchSize The number of pending saves that will trigger a flush
+     */
+    public void enableWriteBehind(int maxBatchSize) {
+        WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+        if (queue == null) {
+            this.writeBehindQueue = new WriteBehindQueue<>(this::writeAllToRepo, maxBatchSize, this::requestFlush);
+        } else {
+            queue.setMaxBatchSize(maxBatchSize);
+        }
+    }
+
+    /**
+     * Disables write behind mode, writing anything that is still queued on the calling thread.
+     */
+    public void disableWriteBehind() {
+        WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+        this.writeBehindQueue = null;
+        if (queue != null) {
+            queue.flush();
+        }
+    }
+
+    /**
+     * Gets the write behind queue, if write behind mode is enabled.
+     *
+     * @return The queue, if any
+     */
+    public Optional<WriteBehindQueue<UUID, D>> getWriteBehindQueue() {
+        return Optional.ofNullable(this.writeBehindQueue);
+    }
+
+    /**
+     * Writes anything in the write behind queue on the calling thread. Does nothing if
+     * write behind mode is not enabled.
+     */
+    public void flushPendingWrites() {
+        WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+        if (queue != null) {
+            for (Map.Entry<UUID, D> entry : ImmutableMap.copyOf(this.cache.asMap()).entrySet()) {
+                if (entry.getValue().isDirty()) {
+                    queue.enqueue(entry.getKey(), entry.getValue());
+                }
+            }
+
+            queue.flush();
+        }
+    }
+
+    @Override
+    public D pin(@Nonnull UUID key) {
+        this.pinned.merge(key, 1, Integer::sum);
+
+        // Reading an entry that is already cached recalculates its expiry, which pins it.
+        return getOrNewOnThread(key);
+    }
+
+    @Override
+    public CompletableFuture<Void> unpin(@Nonnull UUID key) {
+        this.pinned.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        if (!this.pinned.containsKey(key)) {
+            // As above, this unpins the entry.
+            D value = this.cache.getIfPresent(key);
+            if (value != null && value.isDirty()) {
+                return save(key, value);
+            }
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Gets the number of objects that are pinned in the cache.
+     *
+     * @return The number of pinned objects
+     */
+    public int getPinnedCount() {
+        return this.pinned.size();
+    }
+
+    /**
+     * Gets the number of times an object was requested on the main thread and had to be
+     * loaded from the repository, blocking the server.
+     *
+     * @return The number of misses
+     */
+    public long getMainThreadMisses() {
+        return this.mainThreadMisses.sum();
+    }
+
+    private long getExpiryNanos(UUID key) {
+        return this.pinned.containsKey(key) ? Long.MAX_VALUE : EXPIRY_NANOS;
+    }
+
+    private void writeToRepo(UUID key, D value) throws Exception {
+        // Anything that changes while we're serialising will still be dirty afterwards.
+        long version = value.getVersion();
+        this.save.apply(key, value);
+        value.markSaved(version);
+        this.saveListeners.forEach(x -> x.accept(key, value));
+    }
+
+    private void writeAllToRepo(Map<UUID, D> values) throws Exception {
+        Map<D, Long> versions = new IdentityHashMap<>();
+        values.values().forEach(x -> versions.put(x, x.getVersion()));
+        this.saveAll.save(values);
+        versions.forEach(IKeyedDataObject::markSaved);
+        values.forEach((key, value) -> this.saveListeners.forEach(x -> x.accept(key, value)));
+    }
+
+    private void onRemoval(@Nullable UUID key, @Nullable D value, RemovalCause cause) {
+        // If an object with unsaved changes leaves the cache for any reason other than being
+        // replaced, write it out so the changes aren't lost.
+        if (key != null && value != null && cause != RemovalCause.REPLACED && value.isDirty()) {
+            WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+            if (queue != null) {
+                queue.enqueue(key, value);
+            } else {
+                try {
+                    writeToRepo(key, value);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void cacheIfClean(UUID key, D value) {
+        // Don't replace an object that has unsaved changes with what is in the repository.
+        D current = this.cache.getIfPresent(key);
+        if (current == null || !current.isDirty()) {
+            this.cache.put(key, value);
+        }
+    }
+
+    private void requestFlush() {
+        ServicesUtil.run(() -> {
+            WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+            if (queue != null) {
+                queue.flush();
+            }
+            return null;
+        }, this.pluginContainer);
+    }
+
     @Override
     public CompletableFuture<Void> clearCache() {
-        this.cache.invalidateAll();
+        // Pinned objects are in use, so stay.
+        this.cache.invalidateAll(this.cache.asMap().keySet().stream()
+                .filter(x -> !this.pinned.containsKey(x))
+                .collect(Collectors.toList()));
         return ServicesUtil.run(() -> {
             this.storageRepositorySupplier.get().clearCache();
             return null;
@@ -121,7 +329,6 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         try {
             lock.lock();
             D result = this.cache.getIfPresent(key);
-            this.dirty.add(key);
             if (result != null) {
                 return CompletableFuture.completedFuture(Optional.of(result));
             }
@@ -139,7 +346,6 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         try {
             lock.lock();
             D result = this.cache.getIfPresent(key);
-            this.dirty.add(key);
             if (result != null) {
                 return Optional.of(result);
             }
@@ -147,6 +353,10 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             lock.unlock();
         }
 
+        if (Sponge.getServer().isMainThread()) {
+            this.mainThreadMisses.increment();
+        }
+
         try {
             return getFromRepo(key);
         } catch (Exception e) {
@@ -159,6 +369,16 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         ReentrantReadWriteLock.WriteLock lock = this.dataLocks.get(key).writeLock();
         try {
             lock.lock();
+            WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+            if (queue != null) {
+                // The repository is behind if we have a pending save.
+                Optional<D> pending = queue.getPending(key);
+                if (pending.isPresent()) {
+                    this.cache.put(key, pending.get());
+                    return pending;
+                }
+            }
+
             Optional<D> r = this.get.apply(key);
             r.ifPresent(d -> this.cache.put(key, d));
             return r;
@@ -173,8 +393,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             Optional<KeyedObject<UUID, D>> r = this.getQuery.apply(query);
             r.ifPresent(d -> {
                 if (d.getValue().isPresent()) {
-                    this.cache.put(d.getKey(), d.getValue().get());
-                    this.dirty.add(d.getKey());
+                    cacheIfClean(d.getKey(), d.getValue().get());
                 } else {
                     this.cache.invalidate(d.getKey());
                 }
@@ -190,10 +409,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             /* Map<UUID, D> res = r.entrySet().stream()
                     .filter(x -> x.getValue() != null)
                     .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, v -> dataAccess.fromDataAccessObject(v.getValue()))); */
-            res.forEach((k, v) -> {
-                this.cache.put(k, v);
-                this.dirty.add(k);
-            });
+            res.forEach(this::cacheIfClean);
             return res;
         }, this.pluginContainer);
     }
@@ -218,6 +434,22 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
 
     @Override
     public CompletableFuture<Void> save(@Nonnull final UUID key, @Nonnull final D value) {
+        WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+        if (queue != null) {
+            // Listeners are told again when the queue is written, but shouldn't wait until then.
+            this.saveListeners.forEach(x -> x.accept(key, value));
+            ReentrantReadWriteLock.WriteLock lock = this.dataLocks.get(key).writeLock();
+            try {
+                lock.lock();
+                this.cache.put(key, value);
+                // Queued under the lock, so that a delete cannot come between caching and queueing
+                // and have the deleted data written back by the queue.
+                return queue.enqueue(key, value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
         return ServicesUtil.run(() -> {
             ReentrantReadWriteLock reentrantReadWriteLock = this.dataLocks.get(key);
             ReentrantReadWriteLock.WriteLock lock = reentrantReadWriteLock.writeLock();
@@ -227,8 +459,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             } finally {
                 lock.unlock();
             }
-            this.save.apply(key, value);
-            this.dirty.remove(key);
+            writeToRepo(key, value);
             return null;
         }, this.pluginContainer);
     }
@@ -240,26 +471,40 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             ReentrantReadWriteLock.WriteLock lock = reentrantReadWriteLock.writeLock();
             try {
                 lock.lock();
+                WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+                if (queue != null) {
+                    queue.discard(key);
+                }
                 this.storageRepositorySupplier.get().delete(key);
+                D d = this.cache.getIfPresent(key);
+                if (d != null) {
+                    // nothing to save now.
+                    d.markSaved(d.getVersion());
+                }
                 this.cache.invalidate(key);
-                return null;
             } finally {
                 lock.unlock();
             }
+
+            this.deleteListeners.forEach(x -> x.accept(key));
+            return null;
         }, this.pluginContainer);
     }
 
     @Override
     public CompletableFuture<Void> ensureSaved() {
         return ServicesUtil.run(() -> {
-            for (UUID uuid : ImmutableSet.copyOf(this.dirty)) {
-                D d = this.cache.getIfPresent(uuid);
-                if (d != null) {
-                    save(uuid, d);
-                } else {
-                    this.dirty.remove(uuid);
+            // Only objects that have actually been changed need to be written.
+            for (Map.Entry<UUID, D> entry : ImmutableMap.copyOf(this.cache.asMap()).entrySet()) {
+                if (entry.getValue().isDirty()) {
+                    save(entry.getKey(), entry.getValue());
                 }
             }
+
+            WriteBehindQueue<UUID, D> queue = this.writeBehindQueue;
+            if (queue != null) {
+                queue.flush();
+            }
             return null;
         }, this.pluginContainer);
     }
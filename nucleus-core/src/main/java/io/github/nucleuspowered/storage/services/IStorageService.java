@@ -13,6 +13,8 @@ import io.github.nucleuspowered.storage.util.KeyedObject;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
@@ -193,6 +195,29 @@ public interface IStorageService<D extends IDataObject> {
             });
         }
 
+        /**
+         * Loads the object for the key on the calling thread, creating it if it does not
+         * exist, and keeps it cached until {@link #unpin(Object)} is called.
+         *
+         * <p>Pins are counted, so an object that has been pinned more than once stays cached
+         * until it has been unpinned as many times.</p>
+         *
+         * <p>This may perform IO, so should not be called on the main thread.</p>
+         *
+         * @param key The key
+         * @return The object
+         */
+        D pin(@Nonnull K key);
+
+        /**
+         * Releases a pin on the object for the key. Once the last pin is released, the object
+         * may leave the cache again, and is saved if it has changes that have not yet been saved.
+         *
+         * @param key The key
+         * @return A {@link CompletableFuture} that will contain an exception if there was a failure
+         */
+        CompletableFuture<Void> unpin(@Nonnull K key);
+
         /**
          * Gets an object based on the supplied query, if one can be uniquely identified.
          *
@@ -264,6 +289,27 @@ public interface IStorageService<D extends IDataObject> {
          */
         CompletableFuture<Void> delete(@Nonnull K key);
 
+        /**
+         * Registers a listener that is called whenever an object is written to the repository by
+         * this service, including writes that were not requested through {@link #save(Object, Object)},
+         * such as when an object with unsaved changes leaves the cache, or when queued saves are
+         * flushed. If saves are queued, the listener is also called when the save is requested.
+         *
+         * <p>The listener may be called on any thread, and may be called more than once for
+         * one save, so should be cheap and idempotent.</p>
+         *
+         * @param listener The listener
+         */
+        void addSaveListener(BiConsumer<K, D> listener);
+
+        /**
+         * Registers a listener that is called after the object associated with a key has been
+         * deleted through this service.
+         *
+         * @param listener The listener
+         */
+        void addDeleteListener(Consumer<K> listener);
+
         /**
          * Indicates the data is also keyed.
          *
@@ -0,0 +1,219 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.storage.services;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.storage.util.ThrownConsumer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Holds saves that have been requested but not yet written to the backing repository.
+ *
+ * <p>Repeated saves against the same key are coalesced, so that only the latest value
+ * is written when the queue is next flushed. Each flush is handed to the writer as a
+ * single batch. A flush is requested via the supplied
+ * callback when the number of pending keys reaches the batch size, otherwise it is
+ * expected that the owner flushes the queue periodically and on shutdown.</p>
+ *
+ * @param <K> The key type
+ * @param <D> The data type
+ */
+public final class WriteBehindQueue<K, D> {
+
+    private final Map<K, PendingWrite<D>> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final ThrownConsumer<Map<K, D>, Exception> writer;
+    private final Runnable onBatchSizeReached;
+    private volatile int maxBatchSize;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos = 0;
+
+    public WriteBehindQueue(ThrownConsumer<Map<K, D>, Exception> writer, int maxBatchSize, Runnable onBatchSizeReached) {
+        this.writer = writer;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.onBatchSizeReached = onBatchSizeReached;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Queues the supplied value to be written.
+     *
+     * @param key The key
+     * @param value The value
+     * @return A {@link CompletableFuture} that completes when the value (or a later value
+     *         for the same key) has been written.
+     */
+    public CompletableFuture<Void> enqueue(@Nonnull K key, @Nonnull D value) {
+        PendingWrite<D> write = this.pending.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return new PendingWrite<>(value);
+            }
+
+            this.coalescedCount.incrementAndGet();
+            existing.value = value;
+            return existing;
+        });
+
+        if (this.pending.size() >= this.maxBatchSize && this.flushRequested.compareAndSet(false, true)) {
+            this.onBatchSizeReached.run();
+        }
+
+        return write.future;
+    }
+
+    /**
+     * Gets the value that is waiting to be written for the given key, if any.
+     *
+     * @param key The key
+     * @return The value, if there is one
+     */
+    public Optional<D> getPending(@Nonnull K key) {
+        PendingWrite<D> write = this.pending.get(key);
+        if (write == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(write.value);
+    }
+
+    /**
+     * Removes any pending write for the given key without writing it.
+     *
+     * @param key The key
+     */
+    public void discard(@Nonnull K key) {
+        PendingWrite<D> write = this.pending.remove(key);
+        if (write != null) {
+            write.future.complete(null);
+        }
+    }
+
+    /**
+     * Writes everything that is currently pending on the calling thread.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            this.flushRequested.set(false);
+            if (this.pending.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            Map<K, D> batch = new LinkedHashMap<>();
+            Map<K, PendingWrite<D>> writes = new LinkedHashMap<>();
+            for (K key : ImmutableList.copyOf(this.pending.keySet())) {
+                PendingWrite<D> write = this.pending.remove(key);
+                if (write != null) {
+                    batch.put(key, write.value);
+                    writes.put(key, write);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                this.writer.save(batch);
+                writes.values().forEach(x -> x.future.complete(null));
+            } catch (Exception e) {
+                writes.values().forEach(x -> x.future.completeExceptionally(e));
+            }
+
+            long time = System.nanoTime() - start;
+            this.lastFlushNanos = time;
+            this.totalFlushNanos.addAndGet(time);
+            this.writtenCount.addAndGet(batch.size());
+            this.flushCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of keys that are waiting to be written.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return this.pending.size();
+    }
+
+    /**
+     * Gets the number of flushes that have written at least one entry.
+     *
+     * @return The number of flushes
+     */
+    public long getFlushCount() {
+        return this.flushCount.get();
+    }
+
+    /**
+     * Gets the number of entries that have been written by this queue.
+     *
+     * @return The number of writes
+     */
+    public long getWrittenCount() {
+        return this.writtenCount.get();
+    }
+
+    /**
+     * Gets the number of saves that were merged into a save that was already pending.
+     *
+     * @return The number of coalesced saves
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.get();
+    }
+
+    /**
+     * Gets how long the last flush took, in milliseconds.
+     *
+     * @return The latency
+     */
+    public long getLastFlushLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.lastFlushNanos);
+    }
+
+    /**
+     * Gets how long flushes have taken on average, in milliseconds.
+     *
+     * @return The latency
+     */
+    public long getAverageFlushLatencyMillis() {
+        long count = this.flushCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(this.totalFlushNanos.get() / count);
+    }
+
+    private static final class PendingWrite<D> {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile D value;
+
+        private PendingWrite(D value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.benchmark;
+
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.cooldown.CooldownService;
+import io.github.nucleuspowered.nucleus.services.interfaces.ICooldownService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import org.mockito.Mockito;
+import org.slf4j.helpers.NOPLogger;
+import org.spongepowered.api.util.Identifiable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the cooldown checks that the cooldown command modifier performs on every command,
+ * comparing the {@link CooldownService} against the previous map based implementation.
+ *
+ * <p>This is not run as part of the test suite. Run the main method with the number of
+ * players (default 500), cooldown keys (default 40) and command dispatches (default 100000)
+ * as the arguments.</p>
+ */
+public final class CooldownBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int dispatches = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        List<Identifiable> identifiables = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            UUID uuid = UUID.randomUUID();
+            identifiables.add(() -> uuid);
+        }
+
+        List<String> cooldownKeys = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            cooldownKeys.add("nucleus.command" + i);
+        }
+
+        Path directory = Files.createTempDirectory("nucleus-benchmark");
+        INucleusServiceCollection serviceCollection = Mockito.mock(INucleusServiceCollection.class);
+        Mockito.when(serviceCollection.dataDir()).thenReturn(() -> directory);
+        Mockito.when(serviceCollection.logger()).thenReturn(NOPLogger.NOP_LOGGER);
+        Mockito.when(serviceCollection.reloadableService()).thenReturn(Mockito.mock(IReloadableService.class));
+
+        // Warm up both, then measure.
+        for (int i = 0; i < 2; i++) {
+            boolean print = i == 1;
+            run("previous", new PreviousCooldownService(), identifiables, cooldownKeys, dispatches, print);
+            run("current", new CooldownService(serviceCollection), identifiables, cooldownKeys, dispatches, print);
+        }
+
+        Files.deleteIfExists(directory);
+    }
+
+    private static void run(String name, ICooldownService service, List<Identifiable> players, List<String> keys, int dispatches,
+            boolean print) {
+        Random random = new Random(1);
+        int blocked = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < dispatches; i++) {
+            Identifiable player = players.get(random.nextInt(players.size()));
+            String key = keys.get(random.nextInt(keys.size()));
+            // As the cooldown modifier does: test, then set the cooldown once the command completes.
+            if (service.getCooldown(key, player).isPresent()) {
+                blocked++;
+            } else {
+                service.setCooldown(key, player, Duration.ofMillis(random.nextInt(50)));
+            }
+        }
+
+        long time = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-9s %6dms (%.0f ns per dispatch, %d on cooldown)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(time),
+                    time / (double) dispatches,
+                    blocked));
+        }
+    }
+
+    /**
+     * The implementation that the {@link CooldownService} replaced, for comparison.
+     */
+    private static final class PreviousCooldownService implements ICooldownService {
+
+        private final Map<DualKey, Instant> cooldowns = new HashMap<>();
+
+        private Map<DualKey, Instant> cleanUp() {
+            Instant now = Instant.now();
+            List<DualKey> keys = this.cooldowns.entrySet()
+                    .stream()
+                    .filter(x -> x.getValue().isBefore(now))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            for (DualKey key : keys) {
+                this.cooldowns.remove(key);
+            }
+
+            return this.cooldowns;
+        }
+
+        @Override public boolean hasCooldown(String key, Identifiable identifiable) {
+            return cleanUp().containsKey(new DualKey(key, identifiable.getUniqueId()));
+        }
+
+        @Override public Optional<Duration> getCooldown(String key, Identifiable identifiable) {
+            return Optional.ofNullable(cleanUp()
+                    .get(new DualKey(key, identifiable.getUniqueId())))
+                    .map(x -> Duration.between(Instant.now(), x));
+        }
+
+        @Override public void setCooldown(String key, Identifiable identifiable, Duration cooldownLength) {
+            this.cooldowns.put(new DualKey(key, identifiable.getUniqueId()), Instant.now().plus(cooldownLength));
+        }
+
+        @Override public void clearCooldown(String key, Identifiable identifiable) {
+            this.cooldowns.remove(new DualKey(key, identifiable.getUniqueId()));
+        }
+
+        @Override public void preload(UUID uuid) {
+            // not persisted
+        }
+
+        @Override public void load() {
+            // not persisted
+        }
+
+        @Override public void save() {
+            // not persisted
+        }
+    }
+
+    private static final class DualKey {
+
+        private final String key;
+        private final UUID uuid;
+
+        private DualKey(String key, UUID uuid) {
+            this.key = key;
+            this.uuid = uuid;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DualKey dualKey = (DualKey) o;
+            return Objects.equals(this.key, dualKey.key) && Objects.equals(this.uuid, dualKey.uuid);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(this.key, this.uuid.getLeastSignificantBits(), this.uuid.getMostSignificantBits());
+        }
+    }
+
+    private CooldownBenchmark() {}
+}
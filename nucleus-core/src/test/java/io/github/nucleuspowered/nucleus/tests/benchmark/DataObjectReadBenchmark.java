@@ -0,0 +1,98 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.benchmark;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.reflect.TypeToken;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.LocationNode;
+import io.github.nucleuspowered.nucleus.modules.home.HomeKeys;
+import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.UserDataObject;
+import io.github.nucleuspowered.storage.dataobjects.keyed.DataKey;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the homes and the mail list of a player from their user data through the
+ * decoded value cache on the data object, against running the object mapper on the backing
+ * node for every read, as the data object used to.
+ *
+ * <p>These are the reads made by the home service when listing and teleporting to homes, and
+ * the mail list as it is held in the user data of earlier versions.</p>
+ *
+ * <p>This is not run as part of the test suite. Run the main method with the number of homes
+ * (default 20), mails (default 500) and reads (default 100000) as the arguments.</p>
+ */
+public final class DataObjectReadBenchmark {
+
+    private static final DataKey.ListKey<MailData, IUserDataObject> MAIL =
+            DataKey.ofList(TypeToken.of(MailData.class), IUserDataObject.class, "mailData");
+
+    public static void main(String[] args) throws Exception {
+        int homes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int mails = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int reads = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        UserDataObject dataObject = new UserDataObject();
+        dataObject.setBackingNode(SimpleConfigurationNode.root());
+        UUID world = UUID.randomUUID();
+        Map<String, LocationNode> homeMap = new HashMap<>();
+        for (int i = 0; i < homes; i++) {
+            homeMap.put("home" + i, new LocationNode(world, new Vector3d(i, 64, i), Vector3d.ZERO));
+        }
+
+        List<MailData> mailList = new ArrayList<>();
+        for (int i = 0; i < mails; i++) {
+            mailList.add(new MailData(UUID.randomUUID(), Instant.ofEpochMilli(i * 1000L), "Message number " + i));
+        }
+
+        dataObject.set(HomeKeys.HOMES, homeMap);
+        dataObject.set(MAIL, mailList);
+        ConfigurationNode node = dataObject.getBackingNode();
+
+        for (int i = 0; i < 2; i++) {
+            boolean print = i == 1;
+            time("homes, mapped", print, reads, () -> node.getNode(HomeKeys.HOMES.getKey()).getValue(HomeKeys.HOMES.getType()).size());
+            time("homes, cached", print, reads, () -> dataObject.getNullable(HomeKeys.HOMES).size());
+            time("mail, mapped", print, reads / 10, () -> node.getNode(MAIL.getKey()).getValue(MAIL.getType()).size());
+            time("mail, cached", print, reads / 10, () -> dataObject.getNullable(MAIL).size());
+        }
+    }
+
+    private static void time(String name, boolean print, int reads, Read read) throws Exception {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            found += read.read();
+        }
+
+        long time = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-14s %6dms (%.0f ns per read, %d entries)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(time),
+                    time / (double) reads,
+                    found / reads));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Read {
+
+        int read() throws Exception;
+
+    }
+
+    private DataObjectReadBenchmark() {}
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.benchmark;
+
+import io.github.nucleuspowered.nucleus.modules.core.config.FlatFileConfig;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.FlatFileStorageRepositoryFactory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the flat file save modes by saving a directory of user files.
+ *
+ * <p>This is not run as part of the test suite. Run the main method with the number of
+ * files (default 10000) and the batch size used for batched saves (default 50) as the
+ * arguments. The first pass of each mode creates the files, the second overwrites them.</p>
+ */
+public final class FlatFileSaveBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Map<UUID, ConfigurationNode> data = new LinkedHashMap<>();
+        for (int i = 0; i < files; i++) {
+            data.put(UUID.randomUUID(), createNode(i));
+        }
+
+        run("in place, with backups", data, 1, config(false, true, false));
+        run("atomic, with backups", data, 1, config(true, true, false));
+        run("atomic, no backups", data, 1, config(true, false, false));
+        run("atomic, synced", data, 1, config(true, false, true));
+        run("atomic, synced, batched", data, batchSize, config(true, false, true));
+    }
+
+    private static void run(String name, Map<UUID, ConfigurationNode> data, int batchSize, FlatFileConfig config) throws Exception {
+        Path directory = Files.createTempDirectory("nucleus-benchmark");
+        try {
+            FlatFileStorageRepositoryFactory factory = new FlatFileStorageRepositoryFactory(() -> directory, x -> x, NOPLogger.NOP_LOGGER);
+            factory.setConfig(config);
+            IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> repository = factory.userRepository();
+
+            long create = save(repository, data, batchSize);
+            long overwrite = save(repository, data, batchSize);
+            System.out.println(String.format("%-26s create: %6dms, overwrite: %6dms (%.0f files/s)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(create),
+                    TimeUnit.NANOSECONDS.toMillis(overwrite),
+                    data.size() / (overwrite / 1e9)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static long save(IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> repository,
+            Map<UUID, ConfigurationNode> data, int batchSize) throws Exception {
+        long start = System.nanoTime();
+        Map<UUID, ConfigurationNode> batch = new LinkedHashMap<>();
+        for (Map.Entry<UUID, ConfigurationNode> entry : data.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= batchSize) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+
+        repository.saveAll(batch);
+        return System.nanoTime() - start;
+    }
+
+    private static ConfigurationNode createNode(int i) {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("lastKnownName").setValue("player" + i);
+        node.getNode("lastIP").setValue("127.0." + (i / 256 % 256) + "." + (i % 256));
+        node.getNode("firstJoin").setValue(System.currentTimeMillis());
+        node.getNode("home", "home", "world").setValue(UUID.randomUUID().toString());
+        node.getNode("home", "home", "position", "x").setValue(i * 1.5);
+        node.getNode("home", "home", "position", "y").setValue(64);
+        node.getNode("home", "home", "position", "z").setValue(-i * 2.5);
+        for (int j = 0; j < 10; j++) {
+            node.getNode("mail").getAppendedNode().getNode("message").setValue("Message number " + j + " for player " + i);
+        }
+
+        return node;
+    }
+
+    private static FlatFileConfig config(boolean atomic, boolean backups, boolean sync) {
+        return new FlatFileConfig() {
+            @Override public boolean isAtomicWrites() {
+                return atomic;
+            }
+
+            @Override public boolean isKeepBackups() {
+                return backups;
+            }
+
+            @Override public boolean isSyncWrites() {
+                return sync;
+            }
+        };
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(x -> x.toFile().delete());
+        }
+    }
+
+    private FlatFileSaveBenchmark() {}
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.benchmark;
+
+import com.google.common.reflect.ClassPath;
+import io.github.nucleuspowered.nucleus.services.impl.permission.PermissionTrie;
+import io.github.nucleuspowered.nucleus.services.interfaces.annotation.PermissionMetadata;
+import io.github.nucleuspowered.nucleus.services.interfaces.data.SuggestedLevel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving permission prefixes and collecting the permissions for a role using the
+ * prefix trie and role index in the permission service, against the previous scans of the
+ * registered permission maps.
+ *
+ * <p>The permissions are those registered by every module, read from the permission classes
+ * on the classpath. This is not run as part of the test suite. Run the main method with the
+ * number of lookups (default 1000000) as the argument.</p>
+ */
+public final class PermissionPrefixBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        Map<String, SuggestedLevel> permissions = new HashMap<>();
+        Map<String, SuggestedLevel> prefixes = new HashMap<>();
+        loadPermissions(permissions, prefixes);
+
+        PermissionTrie<SuggestedLevel> trie = new PermissionTrie<>();
+        prefixes.forEach(trie::put);
+        Map<SuggestedLevel, Map<String, SuggestedLevel>> byLevel = new EnumMap<>(SuggestedLevel.class);
+        permissions.forEach((key, level) -> byLevel.computeIfAbsent(level, k -> new LinkedHashMap<>()).put(key, level));
+        prefixes.forEach((key, level) -> byLevel.computeIfAbsent(level, k -> new LinkedHashMap<>()).put(key + ".", level));
+
+        // Half are nodes under a registered prefix, such as a warp or kit, the rest are not registered.
+        List<String> prefixList = new ArrayList<>(prefixes.keySet());
+        List<String> queries = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            if (i % 2 == 0) {
+                queries.add(prefixList.get(random.nextInt(prefixList.size())) + ".entry" + i);
+            } else {
+                queries.add("nucleus.unregistered" + i + ".base");
+            }
+        }
+
+        System.out.println(String.format("%d permissions, %d prefixes", permissions.size(), prefixes.size()));
+        for (int i = 0; i < 2; i++) {
+            boolean print = i == 1;
+            time("previous prefix", print, lookups, () -> {
+                int found = 0;
+                for (int j = 0; j < lookups; j++) {
+                    String query = queries.get(j % queries.size());
+                    for (Map.Entry<String, SuggestedLevel> entry : prefixes.entrySet()) {
+                        if (query.startsWith(entry.getKey())) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+
+                return found;
+            });
+
+            time("trie prefix", print, lookups, () -> {
+                int found = 0;
+                for (int j = 0; j < lookups; j++) {
+                    if (trie.getLongestPrefix(queries.get(j % queries.size())) != null) {
+                        found++;
+                    }
+                }
+
+                return found;
+            });
+
+            int roles = lookups / 100;
+            time("previous role", print, roles, () -> {
+                int found = 0;
+                for (int j = 0; j < roles; j++) {
+                    SuggestedLevel level = SuggestedLevel.values()[j % SuggestedLevel.values().length];
+                    for (Map.Entry<String, SuggestedLevel> entry : permissions.entrySet()) {
+                        if (entry.getValue() == level) {
+                            found++;
+                        }
+                    }
+                    for (Map.Entry<String, SuggestedLevel> entry : prefixes.entrySet()) {
+                        if (entry.getValue() == level) {
+                            found++;
+                        }
+                    }
+                }
+
+                return found;
+            });
+
+            time("indexed role", print, roles, () -> {
+                int found = 0;
+                for (int j = 0; j < roles; j++) {
+                    Map<String, SuggestedLevel> forLevel = byLevel.get(SuggestedLevel.values()[j % SuggestedLevel.values().length]);
+                    if (forLevel != null) {
+                        for (SuggestedLevel ignored : forLevel.values()) {
+                            found++;
+                        }
+                    }
+                }
+
+                return found;
+            });
+        }
+    }
+
+    private static void loadPermissions(Map<String, SuggestedLevel> permissions, Map<String, SuggestedLevel> prefixes) throws Exception {
+        ClassLoader loader = PermissionPrefixBenchmark.class.getClassLoader();
+        for (ClassPath.ClassInfo info : ClassPath.from(loader).getTopLevelClassesRecursive("io.github.nucleuspowered.nucleus.modules")) {
+            if (!info.getSimpleName().endsWith("Permissions")) {
+                continue;
+            }
+
+            for (Field field : info.load().getDeclaredFields()) {
+                if (field.isAnnotationPresent(PermissionMetadata.class)
+                        && String.class.isAssignableFrom(field.getType())
+                        && (field.getModifiers() & Modifier.STATIC) == Modifier.STATIC) {
+                    field.setAccessible(true);
+                    PermissionMetadata metadata = field.getAnnotation(PermissionMetadata.class);
+                    (metadata.isPrefix() ? prefixes : permissions).put(field.get(null).toString().toLowerCase(), metadata.level());
+                }
+            }
+        }
+    }
+
+    private static void time(String name, boolean print, int operations, Run run) {
+        long start = System.nanoTime();
+        int found = run.run();
+        long time = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-16s %6dms (%.0f ns per operation, %d found)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(time),
+                    time / (double) operations,
+                    found));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Run {
+
+        int run();
+
+    }
+
+    private PermissionPrefixBenchmark() {}
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.benchmark;
+
+import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerListService;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
+import org.mockito.Mockito;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.data.key.Keys;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.api.text.Text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the grouped and sorted player list for /list, comparing the entries held
+ * by the {@link PlayerListService} against looking up the group of, and rendering the name of,
+ * every online player on each use, as the command used to.
+ *
+ * <p>One in fifty players is vanished, and the viewer cannot see them. Every hundredth list,
+ * a player goes AFK or returns, and every thousandth list, a player leaves and another joins.</p>
+ *
+ * <p>This is not run as part of the test suite. Run the main method with the number of
+ * players (default 500) and lists (default 5000) as the arguments.</p>
+ */
+public final class PlayerListBenchmark {
+
+    public static void main(String[] args) {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int lists = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        List<Player> online = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            online.add(createPlayer(i));
+        }
+
+        IPermissionService permissionService = Mockito.mock(IPermissionService.class);
+        Mockito.when(permissionService.getOptionFromSubject(Mockito.any(Subject.class), Mockito.<String>anyVararg()))
+                .thenAnswer(invocation -> Optional.of("group" + (((Player) invocation.getArguments()[0]).getName().hashCode() & 3)));
+        IPlayerDisplayNameService displayNameService = Mockito.mock(IPlayerDisplayNameService.class);
+        Mockito.when(displayNameService.getDisplayName(Mockito.any(UUID.class)))
+                .thenAnswer(invocation -> Text.builder("[Rank] ").append(Text.of(invocation.getArguments()[0].toString().substring(0, 8))).build());
+
+        // As the default list template, which renders the display name.
+        NucleusTextTemplate template = Mockito.mock(NucleusTextTemplate.class);
+        Mockito.when(template.getForCommandSource(Mockito.any(CommandSource.class)))
+                .thenAnswer(invocation -> Text.of(displayNameService.getDisplayName(((Player) invocation.getArguments()[0]).getUniqueId())));
+
+        INucleusServiceCollection serviceCollection = Mockito.mock(INucleusServiceCollection.class);
+        Mockito.when(serviceCollection.permissionService()).thenReturn(permissionService);
+        Mockito.when(serviceCollection.playerDisplayNameService()).thenReturn(displayNameService);
+
+        PlayerListService service = new PlayerListService(serviceCollection);
+        service.setTemplate(template);
+        online.forEach(service::add);
+
+        for (int i = 0; i < 2; i++) {
+            boolean print = i == 1;
+            run("rebuilt", print, lists, online, () -> rebuild(online, permissionService, template));
+            run("model", print, lists, online, new ListBuilder() {
+                @Override
+                public Map<String, List<Text>> build() {
+                    return fromModel(service);
+                }
+
+                @Override
+                public void changed(Player player, boolean afk) {
+                    service.setAFK(player.getUniqueId(), afk);
+                }
+
+                @Override
+                public void joined(Player player) {
+                    service.add(player);
+                }
+
+                @Override
+                public void left(Player player) {
+                    service.remove(player.getUniqueId());
+                }
+            });
+        }
+    }
+
+    private static void run(String name, boolean print, int lists, List<Player> online, ListBuilder builder) {
+        Random random = new Random(1);
+        int listed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lists; i++) {
+            if (i % 100 == 99) {
+                // Only the model is told, as the rebuilt list looks everything up each time.
+                builder.changed(online.get(random.nextInt(online.size())), random.nextBoolean());
+            }
+
+            if (i % 1000 == 999) {
+                int index = random.nextInt(online.size());
+                Player joining = createPlayer(online.size() + i);
+                builder.left(online.get(index));
+                online.set(index, joining);
+                builder.joined(joining);
+            }
+
+            listed += builder.build().size();
+        }
+
+        long time = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-8s %6dms (%.0f us per list, %d groups)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(time),
+                    TimeUnit.NANOSECONDS.toMicros(time) / (double) lists,
+                    listed / lists));
+        }
+    }
+
+    // As the command used to: a group lookup, a vanish check and a template render per player, then a sort.
+    private static Map<String, List<Text>> rebuild(List<Player> online, IPermissionService permissionService,
+            NucleusTextTemplate template) {
+        Map<String, List<Player>> groups = new HashMap<>();
+        for (Player player : online) {
+            if (!player.get(Keys.VANISH).orElse(false)) {
+                String group = permissionService.getOptionFromSubject(player, PlayerListService.LIST_OPTION).orElse("Default");
+                groups.computeIfAbsent(group, x -> new ArrayList<>()).add(player);
+            }
+        }
+
+        Map<String, List<Text>> result = new HashMap<>();
+        groups.forEach((group, list) -> {
+            list.sort((x, y) -> x.getName().compareToIgnoreCase(y.getName()));
+            List<Text> texts = new ArrayList<>();
+            for (Player player : list) {
+                texts.add(template.getForCommandSource(player));
+            }
+
+            result.put(group, texts);
+        });
+
+        return result;
+    }
+
+    private static Map<String, List<Text>> fromModel(PlayerListService service) {
+        Map<String, List<Text>> result = new HashMap<>();
+        for (PlayerListService.Entry entry : service.getEntries()) {
+            if (!entry.isVanished()) {
+                String group = entry.getGroup();
+                result.computeIfAbsent(group == null ? "Default" : group, x -> new ArrayList<>()).add(entry.getRendered());
+            }
+        }
+
+        return result;
+    }
+
+    private static Player createPlayer(int i) {
+        Player player = Mockito.mock(Player.class);
+        Mockito.when(player.getName()).thenReturn("player" + i);
+        Mockito.when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        Mockito.when(player.get(Keys.VANISH)).thenReturn(Optional.of(i % 50 == 0));
+        return player;
+    }
+
+    private interface ListBuilder {
+
+        Map<String, List<Text>> build();
+
+        default void changed(Player player, boolean afk) {}
+
+        default void joined(Player player) {}
+
+        default void left(Player player) {}
+
+    }
+
+    private PlayerListBenchmark() {}
+}
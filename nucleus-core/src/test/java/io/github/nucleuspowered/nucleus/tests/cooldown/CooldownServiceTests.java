@@ -0,0 +1,113 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.cooldown;
+
+import io.github.nucleuspowered.nucleus.services.impl.cooldown.CooldownService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.helpers.NOPLogger;
+import org.spongepowered.api.util.Identifiable;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+public class CooldownServiceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final UUID uuid = UUID.randomUUID();
+    private final Identifiable player = () -> this.uuid;
+
+    @Test
+    public void testUnexpiredCooldownsAreRestoredAfterSaving() throws Exception {
+        CooldownService service = createService();
+        service.setCooldown("home", this.player, Duration.ofMinutes(10));
+        service.save();
+
+        CooldownService restored = createService();
+        Duration remaining = restored.getCooldown("home", this.player).orElseThrow(AssertionError::new);
+        Assert.assertTrue(remaining.compareTo(Duration.ofMinutes(10)) <= 0);
+        Assert.assertTrue(remaining.compareTo(Duration.ofMinutes(9)) > 0);
+        Assert.assertFalse(restored.hasCooldown("warp", this.player));
+        Assert.assertFalse(restored.hasCooldown("home", () -> UUID.randomUUID()));
+    }
+
+    @Test
+    public void testExpiredAndClearedCooldownsAreNotSaved() throws Exception {
+        CooldownService service = createService();
+        service.setCooldown("home", this.player, Duration.ZERO);
+        service.setCooldown("warp", this.player, Duration.ofMinutes(10));
+        service.setCooldown("spawn", this.player, Duration.ofMinutes(10));
+        service.clearCooldown("spawn", this.player);
+        service.save();
+
+        CooldownService restored = createService();
+        Assert.assertFalse(restored.hasCooldown("home", this.player));
+        Assert.assertTrue(restored.hasCooldown("warp", this.player));
+        Assert.assertFalse(restored.hasCooldown("spawn", this.player));
+    }
+
+    @Test
+    public void testCooldownsThatHaveNotBeenRestoredAreSavedAgain() throws Exception {
+        CooldownService service = createService();
+        service.setCooldown("home", this.player, Duration.ofMinutes(10));
+        service.save();
+
+        // The player is never looked at, so their cooldowns are never restored before saving.
+        createService().save();
+        Assert.assertTrue(createService().hasCooldown("home", this.player));
+    }
+
+    @Test
+    public void testPreloadRestoresCooldowns() throws Exception {
+        CooldownService service = createService();
+        service.setCooldown("home", this.player, Duration.ofMinutes(10));
+        service.save();
+
+        CooldownService restored = createService();
+        restored.preload(this.player.getUniqueId());
+        restored.preload(this.player.getUniqueId());
+        Assert.assertTrue(restored.hasCooldown("home", this.player));
+    }
+
+    @Test
+    public void testSettingACooldownKeepsTheOthersThatWereSaved() throws Exception {
+        CooldownService service = createService();
+        service.setCooldown("home", this.player, Duration.ofMinutes(10));
+        service.save();
+
+        CooldownService restored = createService();
+        restored.setCooldown("warp", this.player, Duration.ofMinutes(10));
+        Assert.assertTrue(restored.hasCooldown("home", this.player));
+        Assert.assertTrue(restored.hasCooldown("warp", this.player));
+    }
+
+    @Test
+    public void testMissingOrUnknownFileLoadsNothing() throws Exception {
+        Assert.assertFalse(createService().hasCooldown("home", this.player));
+
+        try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(getDataDirectory().resolve("cooldowns.dat")))) {
+            outputStream.writeInt(-1);
+            outputStream.writeInt(1);
+        }
+
+        Assert.assertFalse(createService().hasCooldown("home", this.player));
+    }
+
+    private CooldownService createService() {
+        return new CooldownService(this::getDataDirectory, NOPLogger.NOP_LOGGER);
+    }
+
+    private Path getDataDirectory() {
+        return this.folder.getRoot().toPath();
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.core;
+
+import io.github.nucleuspowered.nucleus.modules.core.services.UniqueUserSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+public class UniqueUserSetTests {
+
+    @Test
+    public void testEmptySetContainsNothing() {
+        UniqueUserSet set = new UniqueUserSet();
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains(UUID.randomUUID()));
+        set.forEach(x -> Assert.fail("The set should be empty"));
+    }
+
+    @Test
+    public void testAddingTheSameUUIDTwiceOnlyCountsOnce() {
+        UniqueUserSet set = new UniqueUserSet();
+        UUID uuid = UUID.randomUUID();
+        Assert.assertTrue(set.add(uuid));
+        Assert.assertFalse(set.add(uuid));
+        Assert.assertFalse(set.add(new UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits())));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(set.contains(uuid));
+    }
+
+    @Test
+    public void testMatchesHashSetWithRandomUUIDsThroughResizes() {
+        Random random = new Random(1L);
+        UniqueUserSet set = new UniqueUserSet();
+        Set<UUID> expected = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            // Revisits some earlier UUIDs, as players that have been seen before will.
+            UUID uuid = new UUID(random.nextInt(5000), random.nextLong());
+            if (i % 4 == 0 && !expected.isEmpty()) {
+                uuid = expected.iterator().next();
+            }
+
+            Assert.assertEquals(expected.add(uuid), set.add(uuid));
+        }
+
+        assertSameContents(expected, set);
+    }
+
+    @Test
+    public void testMatchesHashSetWithNameBasedUUIDs() {
+        // Offline mode UUIDs are derived from names, so differ little from each other.
+        UniqueUserSet set = new UniqueUserSet(10);
+        Set<UUID> expected = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:player" + i).getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(expected.add(uuid), set.add(uuid));
+        }
+
+        assertSameContents(expected, set);
+    }
+
+    @Test
+    public void testPresizedSetHoldsExpectedNumberOfUUIDs() {
+        UniqueUserSet set = new UniqueUserSet(1000);
+        Set<UUID> expected = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            expected.add(uuid);
+            set.add(uuid);
+        }
+
+        assertSameContents(expected, set);
+    }
+
+    private static void assertSameContents(Set<UUID> expected, UniqueUserSet set) {
+        Assert.assertEquals(expected.size(), set.size());
+        for (UUID uuid : expected) {
+            Assert.assertTrue(set.contains(uuid));
+        }
+
+        Set<UUID> actual = new HashSet<>();
+        set.forEach(x -> Assert.assertTrue("Duplicate " + x, actual.add(x)));
+        Assert.assertEquals(expected, actual);
+        Assert.assertFalse(set.contains(UUID.randomUUID()));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.expiry;
+
+import com.google.common.collect.Lists;
+import io.github.nucleuspowered.nucleus.services.impl.expiry.ExpiryService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class ExpiryServiceTests {
+
+    private static final String MUTE = "mute";
+    private static final String JAIL = "jail";
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final List<UUID> muteExpired = new ArrayList<>();
+    private final List<UUID> jailExpired = new ArrayList<>();
+    private ExpiryService service;
+
+    @Before
+    public void setup() {
+        this.service = new ExpiryService(NOPLogger.NOP_LOGGER);
+        this.service.registerExpiryHandler(MUTE, this.muteExpired::add);
+        this.service.registerExpiryHandler(JAIL, this.jailExpired::add);
+    }
+
+    @Test
+    public void testOnlyDeadlinesThatHavePassedExpireInDeadlineOrder() {
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(200));
+        this.service.schedule(this.second, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(UUID.randomUUID(), MUTE, Instant.ofEpochMilli(300));
+
+        this.service.expire(50);
+        Assert.assertTrue(this.muteExpired.isEmpty());
+
+        this.service.expire(200);
+        Assert.assertEquals(Lists.newArrayList(this.second, this.first), this.muteExpired);
+
+        // Each deadline only expires once.
+        this.service.expire(200);
+        Assert.assertEquals(2, this.muteExpired.size());
+    }
+
+    @Test
+    public void testDeadlinesAtTheSameTimeAllExpire() {
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.second, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.first, JAIL, Instant.ofEpochMilli(100));
+
+        this.service.expire(100);
+        Assert.assertEquals(Lists.newArrayList(this.first, this.second), this.muteExpired);
+        Assert.assertEquals(Lists.newArrayList(this.first), this.jailExpired);
+    }
+
+    @Test
+    public void testSchedulingAgainReplacesTheDeadline() {
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(500));
+
+        this.service.expire(200);
+        Assert.assertTrue(this.muteExpired.isEmpty());
+
+        this.service.expire(500);
+        Assert.assertEquals(Lists.newArrayList(this.first), this.muteExpired);
+    }
+
+    @Test
+    public void testCancelOnlyRemovesThatKind() {
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.first, JAIL, Instant.ofEpochMilli(100));
+        this.service.cancel(this.first, MUTE);
+
+        // Cancelling something that is not scheduled does nothing.
+        this.service.cancel(this.second, MUTE);
+        this.service.cancel(this.first, "unknown");
+
+        this.service.expire(100);
+        Assert.assertTrue(this.muteExpired.isEmpty());
+        Assert.assertEquals(Lists.newArrayList(this.first), this.jailExpired);
+    }
+
+    @Test
+    public void testCancelAllRemovesEveryKindForThePlayer() {
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.first, JAIL, Instant.ofEpochMilli(100));
+        this.service.schedule(this.second, MUTE, Instant.ofEpochMilli(100));
+        this.service.cancelAll(this.first);
+
+        this.service.expire(100);
+        Assert.assertEquals(Lists.newArrayList(this.second), this.muteExpired);
+        Assert.assertTrue(this.jailExpired.isEmpty());
+    }
+
+    @Test
+    public void testHandlerThatThrowsDoesNotStopOtherHandlers() {
+        this.service.registerExpiryHandler(MUTE, x -> {
+            throw new IllegalStateException("test");
+        });
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+        this.service.schedule(this.first, JAIL, Instant.ofEpochMilli(200));
+
+        this.service.expire(200);
+        Assert.assertEquals(Lists.newArrayList(this.first), this.jailExpired);
+    }
+
+    @Test
+    public void testHandlerCanScheduleANewDeadline() {
+        this.service.registerExpiryHandler(MUTE, x -> {
+            this.muteExpired.add(x);
+            this.service.schedule(x, MUTE, Instant.ofEpochMilli(100));
+        });
+        this.service.schedule(this.first, MUTE, Instant.ofEpochMilli(100));
+
+        // The new deadline has passed too, but is left for the next run.
+        this.service.expire(100);
+        Assert.assertEquals(1, this.muteExpired.size());
+
+        this.service.expire(100);
+        Assert.assertEquals(2, this.muteExpired.size());
+    }
+
+    @Test
+    public void testDeadlinesWithoutAHandlerAreDropped() {
+        this.service.schedule(this.first, "unknown", Instant.ofEpochMilli(100));
+        this.service.expire(100);
+
+        this.service.registerExpiryHandler("unknown", this.muteExpired::add);
+        this.service.expire(100);
+        Assert.assertTrue(this.muteExpired.isEmpty());
+    }
+
+}
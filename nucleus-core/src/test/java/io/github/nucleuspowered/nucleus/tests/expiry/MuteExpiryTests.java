@@ -0,0 +1,114 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.expiry;
+
+import io.github.nucleuspowered.nucleus.modules.mute.data.MuteData;
+import io.github.nucleuspowered.nucleus.modules.mute.events.MuteEvent;
+import io.github.nucleuspowered.nucleus.modules.mute.services.MuteHandler;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.expiry.ExpiryService;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.UserDataObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.nucleus.tests.TestBase;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.slf4j.helpers.NOPLogger;
+import org.spongepowered.api.Server;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.EventManager;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class MuteExpiryTests extends TestBase {
+
+    private final UUID uuid = UUID.randomUUID();
+    private final EventManager eventManager = Mockito.mock(EventManager.class);
+    private ConfigurationNode stored = SimpleConfigurationNode.root();
+    private ExpiryService expiryService;
+    private MuteHandler handler;
+    private Player player;
+
+    @Before
+    public void setup() {
+        setupSpongeMock();
+        this.player = Mockito.mock(Player.class);
+        Mockito.when(this.player.getUniqueId()).thenReturn(this.uuid);
+        Mockito.when(this.player.isOnline()).thenReturn(true);
+        Mockito.when(this.player.getPlayer()).thenReturn(Optional.of(this.player));
+
+        Server server = Mockito.mock(Server.class);
+        Mockito.when(server.getPlayer(this.uuid)).thenReturn(Optional.of(this.player));
+        PowerMockito.when(Sponge.getServer()).thenReturn(server);
+        PowerMockito.when(Sponge.getEventManager()).thenReturn(this.eventManager);
+
+        // Every read decodes what was last saved, as it would once the user data has been reloaded.
+        IStorageManager storageManager = Mockito.mock(IStorageManager.class);
+        Mockito.when(storageManager.getOrCreateUserOnThread(this.uuid)).thenAnswer(x -> read());
+        Mockito.when(storageManager.getUserOnThread(this.uuid)).thenAnswer(x -> Optional.of(read()));
+        Mockito.when(storageManager.saveUser(Mockito.eq(this.uuid), Mockito.any(IUserDataObject.class))).thenAnswer(x -> {
+            this.stored = x.getArgumentAt(1, IUserDataObject.class).getBackingNode();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        this.expiryService = new ExpiryService(NOPLogger.NOP_LOGGER);
+        INucleusServiceCollection serviceCollection = Mockito.mock(INucleusServiceCollection.class);
+        Mockito.when(serviceCollection.messageProvider()).thenReturn(Mockito.mock(IMessageProviderService.class));
+        Mockito.when(serviceCollection.storageManager()).thenReturn(storageManager);
+        Mockito.when(serviceCollection.pluginContainer()).thenReturn(Mockito.mock(PluginContainer.class));
+        Mockito.when(serviceCollection.expiryService()).thenReturn(this.expiryService);
+        this.handler = new MuteHandler(serviceCollection);
+    }
+
+    @Test
+    public void testEndTimeSetAtLoginIsSaved() {
+        this.handler.updateMuteData(this.player, new MuteData(UUID.randomUUID(), "reason", Duration.ofMinutes(1)));
+
+        login();
+
+        MuteData data = this.handler.getPlayerMuteData(this.player).get();
+        Assert.assertTrue(data.getEndTimestamp().isPresent());
+        Assert.assertFalse(data.getTimeFromNextLogin().isPresent());
+    }
+
+    @Test
+    public void testMuteThatStartedAtLoginExpiresAfterTheDataIsReadAgain() throws Exception {
+        this.handler.updateMuteData(this.player, new MuteData(UUID.randomUUID(), "reason", Duration.ofSeconds(1)));
+
+        login();
+        Assert.assertTrue(this.handler.isMuted(this.player));
+
+        // End timestamps are in whole seconds.
+        Thread.sleep(1100);
+        this.expiryService.expire(System.currentTimeMillis());
+
+        Assert.assertFalse(this.handler.isMuted(this.player));
+        Mockito.verify(this.eventManager).post(Mockito.any(MuteEvent.Unmuted.class));
+    }
+
+    // What MuteListener does once a muted player has joined.
+    private void login() {
+        MuteData data = this.handler.getPlayerMuteData(this.player).get();
+        this.handler.startTimerOnLogin(this.player, data);
+        this.handler.scheduleExpiry(this.uuid, data);
+    }
+
+    private IUserDataObject read() {
+        IUserDataObject object = new UserDataObject();
+        object.setBackingNode(this.stored.copy());
+        return object;
+    }
+}
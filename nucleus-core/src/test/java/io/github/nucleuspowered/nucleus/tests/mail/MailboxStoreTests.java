@@ -0,0 +1,233 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.mail;
+
+import io.github.nucleuspowered.nucleus.api.module.mail.data.MailMessage;
+import io.github.nucleuspowered.nucleus.modules.mail.MailKeys;
+import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
+import io.github.nucleuspowered.nucleus.modules.mail.services.MailboxStore;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.storage.services.IStorageService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MailboxStoreTests {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final UUID recipient = UUID.randomUUID();
+    private final UUID sender = UUID.randomUUID();
+    private final AtomicReference<Path> dataDirectory = new AtomicReference<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private IStorageService.Keyed.KeyedData<UUID, IUserQueryObject, IUserDataObject> userService;
+    private IStorageManager storageManager;
+    private MailboxStore store;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        // No mail held in the user data, as previous versions would have.
+        this.userService = Mockito.mock(IStorageService.Keyed.KeyedData.class);
+        Mockito.when(this.userService.getOnThread(Mockito.any(UUID.class))).thenReturn(Optional.empty());
+        this.storageManager = Mockito.mock(IStorageManager.class);
+        Mockito.when(this.storageManager.getUserService()).thenReturn(this.userService);
+
+        this.dataDirectory.set(this.folder.newFolder("first").toPath());
+        this.store = new MailboxStore(this.dataDirectory::get, this.storageManager, this.scheduled::add, Runnable::run, NOPLogger.NOP_LOGGER);
+    }
+
+    @Test
+    public void testEmptyMailbox() {
+        Assert.assertEquals(0, this.store.getMailCount(this.recipient));
+        Assert.assertTrue(this.store.getMail(this.recipient, null).isEmpty());
+        Assert.assertFalse(this.store.clear(this.recipient));
+        Assert.assertFalse(this.store.remove(this.recipient, mail("missing")));
+    }
+
+    @Test
+    public void testMailIsReadBackFromLog() {
+        this.store.add(this.recipient, mail("first"));
+        this.store.add(this.recipient, mail("second"));
+        Assert.assertEquals(1, this.scheduled.size());
+
+        this.store.reset();
+        List<MailData> mail = this.store.getMail(this.recipient, null);
+        Assert.assertEquals(2, mail.size());
+        Assert.assertEquals("first", mail.get(0).getMessage());
+        Assert.assertEquals("second", mail.get(1).getMessage());
+    }
+
+    @Test
+    public void testRemoveAndClearAreReadBackFromLog() {
+        MailData first = mail("first");
+        this.store.add(this.recipient, first);
+        this.store.add(this.recipient, mail("second"));
+        Assert.assertTrue(this.store.remove(this.recipient, first));
+        this.store.reset();
+        Assert.assertEquals(1, this.store.getMailCount(this.recipient));
+
+        Assert.assertTrue(this.store.clear(this.recipient));
+        this.store.reset();
+        Assert.assertEquals(0, this.store.getMailCount(this.recipient));
+    }
+
+    @Test
+    public void testPendingWritesGoToDirectoryTheyWereMadeIn() throws IOException {
+        this.store.add(this.recipient, mail("first"));
+        Path first = this.dataDirectory.get();
+
+        // The data directory changes before the queued write has run.
+        this.dataDirectory.set(this.folder.newFolder("second").toPath());
+        this.store.reset();
+
+        Assert.assertEquals(0, this.store.getMailCount(this.recipient));
+
+        // Switching back finds the mail where it was written.
+        this.dataDirectory.set(first);
+        this.store.reset();
+        Assert.assertEquals(1, this.store.getMailCount(this.recipient));
+    }
+
+    @Test
+    public void testScheduledFlushWritesPendingMail() {
+        this.store.add(this.recipient, mail("first"));
+        this.scheduled.forEach(Runnable::run);
+        this.scheduled.clear();
+
+        // A later add schedules another flush.
+        this.store.add(this.recipient, mail("second"));
+        Assert.assertEquals(1, this.scheduled.size());
+    }
+
+    @Test
+    public void testMailSentWhileLoadingIsAddedAfterTheLog() {
+        this.store.add(this.recipient, mail("first"));
+        this.store.reset();
+
+        List<Runnable> loads = new ArrayList<>();
+        MailboxStore store = new MailboxStore(this.dataDirectory::get, this.storageManager, this.scheduled::add, loads::add,
+                NOPLogger.NOP_LOGGER);
+        store.add(this.recipient, mail("second"));
+        store.add(this.recipient, mail("third"));
+        Assert.assertEquals(1, loads.size());
+
+        loads.forEach(Runnable::run);
+        List<MailData> mail = store.getMail(this.recipient, null);
+        Assert.assertEquals(3, mail.size());
+        Assert.assertEquals("first", mail.get(0).getMessage());
+        Assert.assertEquals("second", mail.get(1).getMessage());
+        Assert.assertEquals("third", mail.get(2).getMessage());
+    }
+
+    @Test
+    public void testMailAddedAfterReloadIsNotConfusedWithEarlierMail() {
+        this.store.add(this.recipient, mail("first"));
+        MailData second = mail("second");
+        this.store.add(this.recipient, second);
+        this.store.reset();
+
+        Assert.assertTrue(this.store.remove(this.recipient, second));
+        this.store.add(this.recipient, mail("third"));
+        this.store.reset();
+
+        List<MailData> mail = this.store.getMail(this.recipient, null);
+        Assert.assertEquals(2, mail.size());
+        Assert.assertEquals("first", mail.get(0).getMessage());
+        Assert.assertEquals("third", mail.get(1).getMessage());
+    }
+
+    @Test
+    public void testLogIsCompactedWhenMostRecordsAreForRemovedMail() throws IOException {
+        List<MailData> sent = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            MailData data = mail("mail " + i);
+            sent.add(data);
+            this.store.add(this.recipient, data);
+        }
+
+        this.store.flush();
+        long size = Files.size(getFile());
+
+        for (int i = 0; i < 35; i++) {
+            Assert.assertTrue(this.store.remove(this.recipient, sent.get(i)));
+        }
+
+        this.store.reset();
+        Assert.assertTrue(Files.size(getFile()) < size);
+
+        List<MailData> mail = this.store.getMail(this.recipient, null);
+        Assert.assertEquals(sent.subList(35, 40), mail);
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws IOException {
+        this.store.add(this.recipient, mail("first"));
+        this.store.add(this.recipient, mail("second"));
+        this.store.reset();
+        long size = Files.size(getFile());
+
+        // The start of an add, as if the server stopped part way through writing it.
+        Files.write(getFile(), new byte[] { 1, 0, 0 }, StandardOpenOption.APPEND);
+
+        Assert.assertEquals(2, this.store.getMailCount(this.recipient));
+        Assert.assertEquals(size, Files.size(getFile()));
+
+        // Later records are not read as part of the discarded one.
+        this.store.add(this.recipient, mail("third"));
+        this.store.reset();
+        Assert.assertEquals(3, this.store.getMailCount(this.recipient));
+    }
+
+    @Test
+    public void testMailInUserDataIsMovedToTheLog() {
+        List<MailMessage> legacy = new ArrayList<>();
+        legacy.add(mail("second"));
+        legacy.add(mail("first"));
+        // Newest first, the log holds them in the order they were sent.
+        legacy.sort((x, y) -> y.getDate().compareTo(x.getDate()));
+        IUserDataObject userData = Mockito.mock(IUserDataObject.class);
+        Mockito.when(userData.get(MailKeys.MAIL_DATA)).thenReturn(Optional.of(legacy));
+        Mockito.when(this.userService.getOnThread(this.recipient)).thenReturn(Optional.of(userData));
+
+        List<MailData> mail = this.store.getMail(this.recipient, null);
+        Assert.assertEquals(2, mail.size());
+        Assert.assertTrue(mail.get(0).getDate().isBefore(mail.get(1).getDate()));
+        Mockito.verify(userData).remove(MailKeys.MAIL_DATA);
+        Mockito.verify(this.userService).save(this.recipient, userData);
+
+        // Read from the log from now on.
+        this.store.reset();
+        Assert.assertEquals(mail, this.store.getMail(this.recipient, null));
+        Mockito.verify(this.userService).getOnThread(this.recipient);
+    }
+
+    private Path getFile() {
+        return this.dataDirectory.get().resolve("mail").resolve(this.recipient.toString() + ".mail");
+    }
+
+    private MailData mail(String message) {
+        return new MailData(this.sender, Instant.ofEpochMilli(1000L + message.hashCode()), message);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.messageprovider;
+
+import com.google.common.collect.Lists;
+import io.github.nucleuspowered.nucleus.services.impl.messageprovider.repository.AbstractMessageRepository;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerDisplayNameService;
+import io.github.nucleuspowered.nucleus.services.interfaces.ITextStyleService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.text.LiteralText;
+import org.spongepowered.api.text.Text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class AbstractMessageRepositoryTests {
+
+    @Test
+    public void testArgumentsAreSubstitutedByIndex() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "Hello {0}, you have {1} mail");
+        repository.entries.put("reversed", "{1} before {0}");
+
+        Assert.assertEquals("Hello dualspiral, you have 3 mail", plain(repository.getText("test", new Object[] { "dualspiral", 3 })));
+        Assert.assertEquals("b before a", plain(repository.getText("reversed", new Object[] { "a", "b" })));
+    }
+
+    @Test
+    public void testArgumentsThatAreNotSuppliedAreLeftOut() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "a {0} b {1} c");
+
+        Assert.assertEquals("a x b  c", plain(repository.getText("test", new Object[] { "x" })));
+        Assert.assertEquals("a x b  c", plain(repository.getText("test", new Object[] { "x", null })));
+    }
+
+    @Test
+    public void testMessageWithoutArgumentsKeepsPlaceholders() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "a {0} b");
+
+        Assert.assertEquals("a {0} b", plain(repository.getText("test")));
+        Assert.assertEquals("a {0} b", plain(repository.getText("test", new Object[0])));
+    }
+
+    @Test
+    public void testLocalisedStringArgumentIsReplacedWithMessage() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "a {0}");
+        repository.entries.put("other.key", "other");
+
+        Assert.assertEquals("a other", plain(repository.getText("test", new Object[] { "loc:other.key" })));
+    }
+
+    @Test
+    public void testMessagesAreCompiledOnFirstUseWhenNotCompiledUpFront() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "first");
+
+        Assert.assertFalse(repository.isCompiled());
+        Assert.assertEquals("first", plain(repository.getText("test")));
+
+        // The compiled message is reused.
+        repository.entries.put("test", "second");
+        Assert.assertEquals("first", plain(repository.getText("test")));
+    }
+
+    @Test
+    public void testCompileReplacesAllCompiledMessages() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "first");
+        repository.entries.put("string", "first {0}");
+        Assert.assertEquals("first", plain(repository.getText("test")));
+        Assert.assertEquals("first x", repository.getString("string", new Object[] { "x" }));
+
+        repository.entries.put("test", "second");
+        repository.entries.put("string", "second {0}");
+        repository.compile(Lists.newArrayList("test", "string"));
+
+        Assert.assertTrue(repository.isCompiled());
+        Assert.assertEquals("second", plain(repository.getText("test")));
+        Assert.assertEquals("second x", repository.getString("string", new Object[] { "x" }));
+    }
+
+    @Test
+    public void testStringsKeepApostrophesAndNonNumericBraces() {
+        TestRepository repository = createRepository();
+        repository.entries.put("test", "It's {0} {name}");
+
+        Assert.assertEquals("It's x {name}", repository.getString("test", new Object[] { "x" }));
+    }
+
+    private static String plain(Text text) {
+        StringBuilder builder = new StringBuilder();
+        for (Text t : text.withChildren()) {
+            if (t instanceof LiteralText) {
+                builder.append(((LiteralText) t).getContent());
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static TestRepository createRepository() {
+        ITextStyleService textStyleService = Mockito.mock(ITextStyleService.class);
+        Mockito.when(textStyleService.oldLegacy(Mockito.anyString())).then(x -> Text.of(x.getArgumentAt(0, String.class)));
+        Mockito.when(textStyleService.getLastColourAndStyle(Mockito.any(), Mockito.any())).thenReturn(ITextStyleService.EMPTY);
+        return new TestRepository(textStyleService, Mockito.mock(IPlayerDisplayNameService.class));
+    }
+
+    private static class TestRepository extends AbstractMessageRepository {
+
+        private final Map<String, String> entries = new HashMap<>();
+
+        private TestRepository(ITextStyleService textStyleService, IPlayerDisplayNameService playerDisplayNameService) {
+            super(textStyleService, playerDisplayNameService);
+        }
+
+        @Override
+        protected String getEntry(String key) {
+            return this.entries.get(key);
+        }
+
+        @Override
+        public boolean hasEntry(String key) {
+            return this.entries.containsKey(key);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.permission;
+
+import io.github.nucleuspowered.nucleus.services.impl.permission.PermissionTrie;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PermissionTrieTests {
+
+    @Test
+    public void testEmptyTrieMatchesNothing() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        Assert.assertNull(trie.getLongestPrefix("nucleus.kits.test"));
+        Assert.assertNull(trie.getLongestPrefix(""));
+    }
+
+    @Test
+    public void testPrefixMatchesItselfAndChildren() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        trie.put("nucleus.kits", "kits");
+        Assert.assertEquals("kits", trie.getLongestPrefix("nucleus.kits"));
+        Assert.assertEquals("kits", trie.getLongestPrefix("nucleus.kits.starter"));
+        Assert.assertEquals("kits", trie.getLongestPrefix("nucleus.kits.starter.extra"));
+    }
+
+    @Test
+    public void testPrefixOnlyMatchesWholeSegments() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        trie.put("nucleus.kits", "kits");
+        Assert.assertNull(trie.getLongestPrefix("nucleus.kitsbase"));
+        Assert.assertNull(trie.getLongestPrefix("nucleus.kit"));
+        Assert.assertNull(trie.getLongestPrefix("nucleus"));
+    }
+
+    @Test
+    public void testLongestPrefixWins() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        trie.put("nucleus.chat", "chat");
+        trie.put("nucleus.chat.color", "color");
+        Assert.assertEquals("color", trie.getLongestPrefix("nucleus.chat.color.red"));
+        Assert.assertEquals("chat", trie.getLongestPrefix("nucleus.chat.style.bold"));
+        Assert.assertEquals("chat", trie.getLongestPrefix("nucleus.chat"));
+    }
+
+    @Test
+    public void testIntermediateSegmentsWithoutValuesDoNotMatch() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        trie.put("nucleus.gamemode.modes", "modes");
+        Assert.assertNull(trie.getLongestPrefix("nucleus.gamemode.base"));
+        Assert.assertEquals("modes", trie.getLongestPrefix("nucleus.gamemode.modes.creative"));
+    }
+
+    @Test
+    public void testPutReplacesValue() {
+        PermissionTrie<String> trie = new PermissionTrie<>();
+        trie.put("nucleus.warps", "first");
+        trie.put("nucleus.warps", "second");
+        Assert.assertEquals("second", trie.getLongestPrefix("nucleus.warps.spawn"));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.playername;
+
+import com.google.common.collect.Lists;
+import io.github.nucleuspowered.nucleus.services.impl.playername.NamePrefixIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+public class NamePrefixIndexTests {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    @Test
+    public void testEmptyIndexFindsNothing() {
+        NamePrefixIndex index = new NamePrefixIndex();
+        Assert.assertFalse(index.get("test").isPresent());
+        Assert.assertTrue(index.startsWith("").isEmpty());
+        Assert.assertTrue(index.startsWith("te").isEmpty());
+    }
+
+    @Test
+    public void testStartsWithIgnoresCaseAndIsInNameOrder() {
+        NamePrefixIndex index = createIndex();
+        Map<UUID, String> result = index.startsWith("TE");
+        Assert.assertEquals(Lists.newArrayList(this.first, this.second), new ArrayList<>(result.keySet()));
+        Assert.assertEquals("Test", result.get(this.first));
+    }
+
+    @Test
+    public void testShorterNameSortsBeforeLongerNameWithSamePrefix() {
+        NamePrefixIndex index = createIndex();
+        Assert.assertEquals(Lists.newArrayList("Test", "testtest"), new ArrayList<>(index.startsWith("test").values()));
+    }
+
+    @Test
+    public void testEmptyPrefixReturnsEverything() {
+        NamePrefixIndex index = createIndex();
+        Assert.assertEquals(index.getAll(), index.startsWith(""));
+        Assert.assertEquals(3, index.getAll().size());
+    }
+
+    @Test
+    public void testGetOnlyMatchesWholeName() {
+        NamePrefixIndex index = createIndex();
+        Assert.assertEquals(Optional.of(this.first), index.get("test"));
+        Assert.assertEquals(Optional.of(this.second), index.get("TESTTEST"));
+        Assert.assertFalse(index.get("tes").isPresent());
+    }
+
+    @Test
+    public void testPutReplacesPreviousName() {
+        NamePrefixIndex index = createIndex();
+        index.put(this.first, "Renamed");
+        Assert.assertFalse(index.startsWith("test").containsKey(this.first));
+        Assert.assertEquals(Optional.of(this.first), index.get("renamed"));
+        Assert.assertEquals(3, index.getAll().size());
+    }
+
+    @Test
+    public void testPlayersMayShareAName() {
+        NamePrefixIndex index = createIndex();
+        index.put(this.third, "test");
+        Assert.assertEquals(2, index.startsWith("test").entrySet().stream().filter(x -> x.getValue().equalsIgnoreCase("test")).count());
+    }
+
+    @Test
+    public void testRemove() {
+        NamePrefixIndex index = createIndex();
+        index.remove(this.first);
+        index.remove(UUID.randomUUID());
+        Assert.assertFalse(index.contains(this.first));
+        Assert.assertFalse(index.get("test").isPresent());
+        Assert.assertEquals(2, index.getAll().size());
+    }
+
+    private NamePrefixIndex createIndex() {
+        NamePrefixIndex index = new NamePrefixIndex();
+        index.put(this.first, "Test");
+        index.put(this.second, "testtest");
+        index.put(this.third, "other");
+        return index;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.storage;
+
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
+import io.github.nucleuspowered.storage.dataobjects.keyed.IKeyedDataObject;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.services.AbstractKeyedService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class AbstractKeyedServiceTests {
+
+    private final List<UUID> saved = new ArrayList<>();
+    private IStorageRepository.Keyed<UUID, IUserQueryObject, String> repository;
+    private AbstractKeyedService<IUserQueryObject, TestData> service;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        IDataTranslator<TestData, String> translator = Mockito.mock(IDataTranslator.class);
+        Mockito.when(translator.toDataAccessObject(Mockito.any())).thenReturn("data");
+        this.repository = Mockito.mock(IStorageRepository.Keyed.class);
+        this.service = new AbstractKeyedService<IUserQueryObject, TestData>(() -> translator, () -> this.repository,
+                Mockito.mock(PluginContainer.class)) {};
+        this.service.addSaveListener((key, value) -> this.saved.add(key));
+        this.service.enableWriteBehind(100);
+    }
+
+    @Test
+    public void testListenersAreToldWhenSaveIsQueuedAndWritten() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        this.service.save(uuid, data(true));
+        Assert.assertEquals(1, this.saved.size());
+
+        this.service.flushPendingWrites();
+        Mockito.verify(this.repository).saveAll(Mockito.<Map<UUID, String>>any());
+        Assert.assertEquals(2, this.saved.size());
+        Assert.assertEquals(uuid, this.saved.get(1));
+    }
+
+    @Test
+    public void testListenersAreToldOfChangesWrittenWithoutASave() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        TestData data = data(false);
+        this.service.save(uuid, data);
+        this.service.flushPendingWrites();
+        this.saved.clear();
+
+        // Changed in the cache without being saved, as a flush on shutdown would find it.
+        Mockito.when(data.isDirty()).thenReturn(true);
+        this.service.flushPendingWrites();
+        Assert.assertEquals(1, this.saved.size());
+        Assert.assertEquals(uuid, this.saved.get(0));
+    }
+
+    @Test
+    public void testListenersAreNotToldOfFailedWrites() throws Exception {
+        Mockito.doThrow(new IllegalStateException("test")).when(this.repository).saveAll(Mockito.<Map<UUID, String>>any());
+        this.service.save(UUID.randomUUID(), data(true));
+        this.saved.clear();
+
+        this.service.flushPendingWrites();
+        Assert.assertTrue(this.saved.isEmpty());
+    }
+
+    @Test
+    public void testPinFromAReconnectOutlivesTheUnpinOfThePreviousConnection() {
+        UUID uuid = UUID.randomUUID();
+        TestData data = data(false);
+        this.service.save(uuid, data);
+
+        // The new connection is pinned before the old one is unpinned.
+        this.service.pin(uuid);
+        this.service.pin(uuid);
+        this.service.unpin(uuid);
+        Assert.assertEquals(1, this.service.getPinnedCount());
+
+        this.service.unpin(uuid);
+        Assert.assertEquals(0, this.service.getPinnedCount());
+
+        // Unpinning something that is not pinned does nothing.
+        this.service.unpin(uuid);
+        Assert.assertEquals(0, this.service.getPinnedCount());
+    }
+
+    @Test
+    public void testChangesAreSavedWhenTheLastPinIsReleased() {
+        UUID uuid = UUID.randomUUID();
+        TestData data = data(true);
+        this.service.save(uuid, data);
+        this.saved.clear();
+
+        Assert.assertSame(data, this.service.pin(uuid));
+        Assert.assertSame(data, this.service.pin(uuid));
+        this.service.unpin(uuid);
+        Assert.assertTrue(this.saved.isEmpty());
+
+        this.service.unpin(uuid);
+        Assert.assertEquals(1, this.saved.size());
+        Assert.assertEquals(uuid, this.saved.get(0));
+    }
+
+    private static TestData data(boolean dirty) {
+        TestData data = Mockito.mock(TestData.class);
+        Mockito.when(data.isDirty()).thenReturn(dirty);
+        return data;
+    }
+
+    private interface TestData extends IKeyedDataObject<TestData> {}
+
+}
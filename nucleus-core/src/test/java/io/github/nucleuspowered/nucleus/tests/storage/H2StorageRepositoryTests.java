@@ -0,0 +1,139 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.storage;
+
+import com.google.common.collect.ImmutableMap;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.H2StorageRepository;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.UserQueryObject;
+import io.github.nucleuspowered.storage.exceptions.DataQueryException;
+import io.github.nucleuspowered.storage.queryobjects.QueryKey;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class H2StorageRepositoryTests {
+
+    private static final AtomicInteger DATABASE = new AtomicInteger();
+    private static final QueryKey<String, IUserQueryObject> IP = new QueryKey<String, IUserQueryObject>("ip") {};
+    private static final QueryKey<String, IUserQueryObject> NAME = new QueryKey<String, IUserQueryObject>("name") {};
+
+    private H2StorageRepository.UUIDKeyed<IUserQueryObject> repository;
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+
+    @Before
+    public void setup() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:nucleus" + DATABASE.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        this.repository = new H2StorageRepository.UUIDKeyed<>(
+                NOPLogger.NOP_LOGGER,
+                SimpleConfigurationNode::root,
+                () -> dataSource,
+                "userdata",
+                ImmutableMap.of(IP, "ip"));
+        this.repository.save(this.first, node("127.0.0.1"));
+        this.repository.save(this.second, node("127.0.0.2"));
+    }
+
+    @Test
+    public void testQueryOnKeys() throws Exception {
+        UserQueryObject query = new UserQueryObject();
+        query.addKey(this.first);
+        Assert.assertEquals(1, this.repository.count(query));
+        Assert.assertEquals(Collections.singleton(this.first), this.repository.getAllKeys(query));
+        Assert.assertTrue(this.repository.getAll(query).containsKey(this.first));
+    }
+
+    @Test
+    public void testQueryOnIndexedColumn() throws Exception {
+        UserQueryObject query = new UserQueryObject();
+        query.addConstraint(IP, "127.0.0.2");
+        Assert.assertEquals(1, this.repository.count(query));
+        Assert.assertEquals(Collections.singleton(this.second), this.repository.getAllKeys(query));
+    }
+
+    @Test
+    public void testRestrictionToNoKeysMatchesNothing() throws Exception {
+        UserQueryObject query = new UserQueryObject() {
+            @Override
+            public boolean restrictedToKeys() {
+                return true;
+            }
+        };
+
+        Assert.assertEquals(0, this.repository.count(query));
+        Assert.assertFalse(this.repository.exists(query));
+        Assert.assertTrue(this.repository.getAll(query).isEmpty());
+        Assert.assertTrue(this.repository.getAllKeys(query).isEmpty());
+    }
+
+    @Test
+    public void testRestrictionToNoValuesMatchesNothing() throws Exception {
+        UserQueryObject query = new UserQueryObject() {
+            @Override
+            public Map<QueryKey<?, IUserQueryObject>, List<?>> queries() {
+                return ImmutableMap.of(IP, Collections.emptyList());
+            }
+        };
+
+        Assert.assertEquals(0, this.repository.count(query));
+        Assert.assertTrue(this.repository.getAll(query).isEmpty());
+        Assert.assertTrue(this.repository.getAllKeys(query).isEmpty());
+    }
+
+    @Test(expected = DataQueryException.class)
+    public void testCountOnUnsupportedKeyThrows() throws Exception {
+        UserQueryObject query = new UserQueryObject();
+        query.addConstraint(NAME, "test");
+        this.repository.count(query);
+    }
+
+    @Test(expected = DataQueryException.class)
+    public void testRestrictionToNoKeysStillChecksQueryKeys() throws Exception {
+        UserQueryObject query = new UserQueryObject() {
+            @Override
+            public boolean restrictedToKeys() {
+                return true;
+            }
+        };
+
+        query.addConstraint(NAME, "test");
+        this.repository.getAllKeys(query);
+    }
+
+    @Test(expected = DataQueryException.class)
+    public void testCountThrowsWhenTheDatabaseCannotBeReached() throws Exception {
+        H2StorageRepository.UUIDKeyed<IUserQueryObject> unreachable = new H2StorageRepository.UUIDKeyed<>(
+                NOPLogger.NOP_LOGGER,
+                SimpleConfigurationNode::root,
+                () -> {
+                    throw new SQLException("test");
+                },
+                "userdata",
+                ImmutableMap.of());
+        UserQueryObject query = new UserQueryObject();
+        query.addKey(this.first);
+        unreachable.count(query);
+    }
+
+    private static ConfigurationNode node(String ip) {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode(IP.key()).setValue(ip);
+        return node;
+    }
+
+}
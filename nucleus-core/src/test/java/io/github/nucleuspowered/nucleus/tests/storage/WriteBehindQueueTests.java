@@ -0,0 +1,91 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.storage;
+
+import io.github.nucleuspowered.storage.services.WriteBehindQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindQueueTests {
+
+    @Test
+    public void testRepeatedSavesAreCoalesced() {
+        List<Map<String, String>> batches = new ArrayList<>();
+        WriteBehindQueue<String, String> queue = new WriteBehindQueue<>(batches::add, 100, () -> {});
+
+        CompletableFuture<Void> first = queue.enqueue("a", "1");
+        CompletableFuture<Void> second = queue.enqueue("a", "2");
+        queue.enqueue("b", "3");
+        Assert.assertEquals(2, queue.getQueueDepth());
+        Assert.assertEquals("2", queue.getPending("a").get());
+        Assert.assertFalse(first.isDone());
+
+        queue.flush();
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals("2", batches.get(0).get("a"));
+        Assert.assertEquals("3", batches.get(0).get("b"));
+        Assert.assertTrue(first.isDone());
+        Assert.assertTrue(second.isDone());
+        Assert.assertEquals(0, queue.getQueueDepth());
+        Assert.assertEquals(2, queue.getWrittenCount());
+        Assert.assertEquals(1, queue.getCoalescedCount());
+        Assert.assertEquals(1, queue.getFlushCount());
+    }
+
+    @Test
+    public void testFlushOfEmptyQueueDoesNotWrite() {
+        List<Map<String, String>> batches = new ArrayList<>();
+        WriteBehindQueue<String, String> queue = new WriteBehindQueue<>(batches::add, 100, () -> {});
+        queue.flush();
+        Assert.assertTrue(batches.isEmpty());
+        Assert.assertEquals(0, queue.getFlushCount());
+    }
+
+    @Test
+    public void testBatchSizeRequestsOneFlush() {
+        AtomicInteger requests = new AtomicInteger();
+        WriteBehindQueue<String, String> queue = new WriteBehindQueue<>(x -> {}, 2, requests::incrementAndGet);
+        queue.enqueue("a", "1");
+        Assert.assertEquals(0, requests.get());
+        queue.enqueue("b", "1");
+        queue.enqueue("c", "1");
+        Assert.assertEquals(1, requests.get());
+
+        // Once flushed, reaching the batch size again requests another flush.
+        queue.flush();
+        queue.enqueue("a", "1");
+        queue.enqueue("b", "1");
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testDiscardCompletesWithoutWriting() {
+        List<Map<String, String>> batches = new ArrayList<>();
+        WriteBehindQueue<String, String> queue = new WriteBehindQueue<>(batches::add, 100, () -> {});
+        CompletableFuture<Void> future = queue.enqueue("a", "1");
+        queue.discard("a");
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(queue.getPending("a").isPresent());
+        queue.flush();
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testFailedWriteCompletesExceptionally() {
+        WriteBehindQueue<String, String> queue = new WriteBehindQueue<>(x -> {
+            throw new IllegalStateException("test");
+        }, 100, () -> {});
+        CompletableFuture<Void> future = queue.enqueue("a", "1");
+        queue.flush();
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+}
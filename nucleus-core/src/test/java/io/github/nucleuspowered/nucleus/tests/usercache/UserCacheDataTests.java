@@ -0,0 +1,180 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.usercache;
+
+import static io.github.nucleuspowered.nucleus.tests.usercache.UserCacheTestUtil.node;
+
+import com.google.common.collect.Sets;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheVersionNode;
+import io.github.nucleuspowered.nucleus.services.impl.usercache.UserCacheData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.UUID;
+
+public class UserCacheDataTests {
+
+    // In UUID order.
+    private final UUID first = new UUID(0, 1);
+    private final UUID second = new UUID(0, 2);
+    private final UUID third = new UUID(0, 3);
+
+    @Test
+    public void testLiveCacheServesLookupsDuringWalk() {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        data.addIfAbsent(this.second, node(null, null, true));
+
+        Assert.assertEquals(Collections.singletonList(this.first), data.getMuted());
+        Assert.assertFalse(data.isEmpty());
+
+        data.completeWalk();
+        Assert.assertEquals(Collections.singletonList(this.second), data.getMuted());
+        Assert.assertFalse(data.isWalkInProgress());
+    }
+
+    @Test
+    public void testWalkIsSavedWithCheckpointAlongsideLiveCache() {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        data.addIfAbsent(this.second, node(null, null, true));
+        data.setWalkCheckpoint(this.second);
+
+        UserCacheVersionNode saved = data.copy();
+        Assert.assertTrue(saved.isWalkInProgress());
+        Assert.assertEquals(Optional.of(this.second), saved.getWalkCheckpoint());
+        Assert.assertEquals(Collections.singleton(this.first), saved.getNode().keySet());
+        Assert.assertEquals(Collections.singleton(this.second), saved.getWalkNode().keySet());
+    }
+
+    @Test
+    public void testSavesDuringWalkAreKeptAfterSwap() {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        data.update(this.second, node("127.0.0.1", null, false));
+
+        // The walk read the user before the save, so is older.
+        data.addIfAbsent(this.second, node("127.0.0.2", null, false));
+
+        Assert.assertEquals(Collections.singletonList(this.second), data.getForIp("127.0.0.1"));
+        data.completeWalk();
+        Assert.assertEquals(Collections.singletonList(this.second), data.getForIp("127.0.0.1"));
+        Assert.assertTrue(data.getForIp("127.0.0.2").isEmpty());
+    }
+
+    @Test
+    public void testDeletionsDuringWalkAreKeptAfterSwap() {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        data.addIfAbsent(this.first, node(null, null, true));
+        data.remove(this.first);
+
+        Assert.assertTrue(data.getMuted().isEmpty());
+        data.completeWalk();
+        Assert.assertTrue(data.getMuted().isEmpty());
+    }
+
+    @Test
+    public void testResumedWalkFromEmptyLiveCacheKeepsEveryUser() {
+        // The first walk, so there is nothing in the live cache.
+        UserCacheData data = new UserCacheData(new UserCacheVersionNode());
+        data.startWalk(false);
+        data.addIfAbsent(this.first, node(null, null, true));
+        data.addIfAbsent(this.second, node(null, null, true));
+        data.setWalkCheckpoint(this.second);
+        data.abandonWalk();
+
+        // As if the server restarted.
+        UserCacheData restarted = new UserCacheData(data.copy());
+        Assert.assertTrue(restarted.getMuted().isEmpty());
+        Assert.assertEquals(this.second, restarted.startWalk(true));
+        restarted.addIfAbsent(this.third, node(null, null, true));
+        restarted.completeWalk();
+
+        Assert.assertEquals(Sets.newHashSet(this.first, this.second, this.third), new HashSet<>(restarted.getMuted()));
+        Assert.assertFalse(restarted.isWalkInProgress());
+        Assert.assertNull(restarted.copy().getWalkNode());
+    }
+
+    @Test
+    public void testSavesWhileWalkIsAbandonedAreKeptOnResume() {
+        UserCacheData data = new UserCacheData(new UserCacheVersionNode());
+        data.startWalk(false);
+        data.addIfAbsent(this.first, node("127.0.0.1", null, false));
+        data.setWalkCheckpoint(this.first);
+        data.abandonWalk();
+
+        data.update(this.first, node("127.0.0.2", null, false));
+        data.startWalk(true);
+        data.completeWalk();
+
+        Assert.assertEquals(Collections.singletonList(this.first), data.getForIp("127.0.0.2"));
+        Assert.assertTrue(data.getForIp("127.0.0.1").isEmpty());
+    }
+
+    @Test
+    public void testResumeWithoutSavedWalkStartsAgain() {
+        // A checkpoint without the entries that were walked before it.
+        UserCacheVersionNode node = new UserCacheVersionNode();
+        node.getNode().put(this.first, node(null, null, true));
+        node.setWalkInProgress(true);
+        node.setWalkCheckpoint(this.second);
+        UserCacheData data = new UserCacheData(node);
+
+        Assert.assertNull(data.startWalk(true));
+        Assert.assertFalse(data.getWalkCheckpoint().isPresent());
+        data.completeWalk();
+
+        // Nothing was walked.
+        Assert.assertTrue(data.getMuted().isEmpty());
+    }
+
+    @Test
+    public void testAbandonedWalkLeavesLiveCacheAndCheckpoint() {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        data.addIfAbsent(this.second, node(null, null, true));
+        data.setWalkCheckpoint(this.second);
+        data.abandonWalk();
+
+        Assert.assertEquals(Collections.singletonList(this.first), data.getMuted());
+        Assert.assertTrue(data.isWalkInProgress());
+        Assert.assertEquals(Optional.of(this.second), data.getWalkCheckpoint());
+
+        // Nothing left to swap in.
+        data.completeWalk();
+        Assert.assertEquals(Collections.singletonList(this.first), data.getMuted());
+    }
+
+    @Test
+    public void testLookupsDuringConcurrentWalk() throws Exception {
+        UserCacheData data = createWithFirstMuted();
+        data.startWalk(false);
+        Thread walker = new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+                data.addIfAbsent(new UUID(1, i), node(null, null, true));
+            }
+        });
+
+        walker.start();
+        while (walker.isAlive()) {
+            Assert.assertEquals(Collections.singletonList(this.first), data.getMuted());
+        }
+
+        walker.join();
+        data.completeWalk();
+        Assert.assertEquals(10000, data.getMuted().size());
+    }
+
+    private UserCacheData createWithFirstMuted() {
+        UserCacheVersionNode node = new UserCacheVersionNode();
+        node.getNode().put(this.first, node(null, null, true));
+        return new UserCacheData(node);
+    }
+
+}
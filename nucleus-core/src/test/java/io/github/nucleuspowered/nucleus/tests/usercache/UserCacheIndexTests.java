@@ -0,0 +1,71 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.usercache;
+
+import static io.github.nucleuspowered.nucleus.tests.usercache.UserCacheTestUtil.node;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
+import io.github.nucleuspowered.nucleus.services.impl.usercache.UserCacheIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.UUID;
+
+public class UserCacheIndexTests {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+
+    @Test
+    public void testLookupsOnEmptyIndex() {
+        UserCacheIndex index = new UserCacheIndex();
+        Assert.assertTrue(index.getForIp("127.0.0.1").isEmpty());
+        Assert.assertTrue(index.getJailed().isEmpty());
+        Assert.assertTrue(index.getJailedIn("jail").isEmpty());
+        Assert.assertTrue(index.getMuted().isEmpty());
+    }
+
+    @Test
+    public void testAddIndexesEachValue() {
+        UserCacheIndex index = new UserCacheIndex();
+        index.add(this.first, node("127.0.0.1", "Jail", true));
+        index.add(this.second, node("127.0.0.1", null, false));
+
+        Assert.assertEquals(Sets.newHashSet(this.first, this.second), new HashSet<>(index.getForIp("127.0.0.1")));
+        Assert.assertEquals(Collections.singletonList(this.first), index.getJailed());
+        Assert.assertEquals(Collections.singletonList(this.first), index.getJailedIn("jail"));
+        Assert.assertEquals(Collections.singletonList(this.first), index.getMuted());
+    }
+
+    @Test
+    public void testRemoveOnlyRemovesTheUser() {
+        UserCacheIndex index = new UserCacheIndex();
+        UserCacheDataNode node = node("127.0.0.1", "jail", true);
+        index.add(this.first, node);
+        index.add(this.second, node("127.0.0.1", "jail", false));
+        index.remove(this.first, node);
+
+        Assert.assertEquals(Collections.singletonList(this.second), index.getForIp("127.0.0.1"));
+        Assert.assertEquals(Collections.singletonList(this.second), index.getJailedIn("jail"));
+        Assert.assertTrue(index.getMuted().isEmpty());
+    }
+
+    @Test
+    public void testRebuildReplacesEverything() {
+        UserCacheIndex index = new UserCacheIndex();
+        index.add(this.first, node("127.0.0.1", "jail", true));
+        index.rebuild(ImmutableMap.of(this.second, node("127.0.0.2", null, false)));
+
+        Assert.assertTrue(index.getForIp("127.0.0.1").isEmpty());
+        Assert.assertEquals(Collections.singletonList(this.second), index.getForIp("127.0.0.2"));
+        Assert.assertTrue(index.getJailed().isEmpty());
+        Assert.assertTrue(index.getMuted().isEmpty());
+    }
+
+}
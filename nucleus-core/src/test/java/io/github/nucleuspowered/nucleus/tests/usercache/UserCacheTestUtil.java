@@ -0,0 +1,31 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.usercache;
+
+import com.google.common.reflect.TypeToken;
+import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+
+import javax.annotation.Nullable;
+
+final class UserCacheTestUtil {
+
+    static UserCacheDataNode node(@Nullable String ip, @Nullable String jail, boolean muted) {
+        // As it would be read from the user cache file.
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("ipAddress").setValue(ip);
+        node.getNode("jail").setValue(jail);
+        node.getNode("isMuted").setValue(muted);
+        try {
+            return node.getValue(TypeToken.of(UserCacheDataNode.class));
+        } catch (ObjectMappingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private UserCacheTestUtil() {}
+}